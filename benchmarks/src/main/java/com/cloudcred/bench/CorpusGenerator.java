@@ -0,0 +1,303 @@
+package com.cloudcred.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Generates a synthetic repository tree for end-to-end scan measurements.
+ * The same seed and options always produce the same tree. Files use a mix of scanned
+ * extensions (ScanConfig.allowedExtensions) and unscanned ones, and include ordinary
+ * source/config text, planted secrets at a known rate, large single-line minified files
+ * and binary noise. Every planted secret is recorded so recall can be measured.
+ */
+public class CorpusGenerator {
+
+    // Generator settings; defaults give a few thousand files and ~100 MB
+    public static class Options {
+        // Random seed; same seed, same corpus
+        public long seed = 42;
+        // Number of files to generate
+        public int files = 5000;
+        // Maximum directory depth below the root
+        public int maxDepth = 6;
+        // Subdirectories per directory
+        public int fanout = 6;
+        // Average number of lines in a text file
+        public int averageLines = 400;
+        // Fraction of text files that contain planted secrets
+        public double secretFileRate = 0.05;
+        // Fraction of files that are large single-line minified files
+        public double minifiedRate = 0.01;
+        // Size of each minified file in bytes
+        public int minifiedBytes = 2 * 1024 * 1024;
+        // Fraction of files that contain binary noise
+        public double binaryRate = 0.03;
+
+        /**
+         * Reads --seed=, --files=, --depth=, --fanout=, --lines=, --secret-rate=, --minified-rate=,
+         * --minified-bytes= and --binary-rate=; other arguments are ignored.
+         */
+        public static Options fromArgs(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--seed=")) options.seed = Long.parseLong(value);
+                else if (arg.startsWith("--files=")) options.files = Integer.parseInt(value);
+                else if (arg.startsWith("--depth=")) options.maxDepth = Integer.parseInt(value);
+                else if (arg.startsWith("--fanout=")) options.fanout = Integer.parseInt(value);
+                else if (arg.startsWith("--lines=")) options.averageLines = Integer.parseInt(value);
+                else if (arg.startsWith("--secret-rate=")) options.secretFileRate = Double.parseDouble(value);
+                else if (arg.startsWith("--minified-rate=")) options.minifiedRate = Double.parseDouble(value);
+                else if (arg.startsWith("--minified-bytes=")) options.minifiedBytes = Integer.parseInt(value);
+                else if (arg.startsWith("--binary-rate=")) options.binaryRate = Double.parseDouble(value);
+            }
+            return options;
+        }
+    }
+
+    // One planted secret; path is relative to the corpus root
+    public static class Planted {
+        public final String path;
+        public final int line;
+        public final String kind;
+
+        Planted(String path, int line, String kind) {
+            this.path = path;
+            this.line = line;
+            this.kind = kind;
+        }
+    }
+
+    // What was generated
+    public static class Corpus {
+        public final Path root;
+        public final List<Planted> planted = new ArrayList<>();
+        // Files and bytes the scanner is expected to read (scanned extensions only)
+        public long scannableFiles;
+        public long scannableBytes;
+        public long totalFiles;
+        public long totalBytes;
+
+        Corpus(Path root) {
+            this.root = root;
+        }
+    }
+
+    // Scanned extensions (subset of ScanConfig.allowedExtensions) and unscanned ones
+    private static final String[] TEXT_EXTENSIONS = {
+            "java", "py", "js", "ts", "go", "rb", "php", "json", "yml", "yaml",
+            "xml", "properties", "ini", "conf", "sh", "txt", "log", "csv"
+    };
+    private static final String[] UNSCANNED_EXTENSIONS = {"md", "html", "css", "png", "jar", "bin"};
+
+    // Secret kinds, each matched by a different FileScanner rule
+    private static final String[] SECRET_KINDS = {
+            "aws-access-key-id", "aws-secret-access-key", "generic-secret", "high-entropy-string", "generic-key-value"
+    };
+
+    private static final String[] CODE_LINES = {
+            "    public void handle(Request request) {",
+            "        if (request == null) return;",
+            "import java.util.List;",
+            "def process(items):",
+            "    for item in items:",
+            "const result = await fetch(url, { method: 'GET' });",
+            "func (s *Server) Start() error {",
+            "server.port=8080",
+            "logging.level.root=INFO",
+            "  replicas: 3",
+            "  image: registry.example.com/app:1.4.2",
+            "<property name=\"timeout\" value=\"30\"/>",
+            "echo \"Starting build\"",
+            "2024-03-01 12:00:01 INFO Request handled in 12 ms",
+            "id,name,created_at",
+            "42,widget,2024-01-01",
+            "    return response;",
+            "}",
+            "",
+    };
+
+    private static final String BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789/+";
+    private static final String UPPER = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private final Options options;
+    private final Random random;
+
+    /**
+     * @param options Generator settings.
+     */
+    public CorpusGenerator(Options options) {
+        this.options = options;
+        this.random = new Random(options.seed);
+    }
+
+    /**
+     * Generates the corpus below root, which must be empty or missing.
+     * @param root Corpus root directory.
+     * @return Description of the generated corpus, including every planted secret.
+     * @throws IOException If writing fails.
+     */
+    public Corpus generate(Path root) throws IOException {
+        Files.createDirectories(root);
+        Corpus corpus = new Corpus(root);
+        List<Path> dirs = new ArrayList<>();
+        dirs.add(root);
+
+        for (int i = 0; i < options.files; i++) {
+            Path dir = pickDirectory(root, dirs);
+            double roll = random.nextDouble();
+            if (roll < options.binaryRate) {
+                // Binary noise, half of it under a scanned extension
+                String ext = random.nextBoolean() ? "log" : UNSCANNED_EXTENSIONS[random.nextInt(UNSCANNED_EXTENSIONS.length)];
+                writeBinary(corpus, dir.resolve("blob" + i + "." + ext), ext);
+            } else if (roll < options.binaryRate + options.minifiedRate) {
+                writeMinified(corpus, dir.resolve("bundle" + i + ".min.js"));
+            } else {
+                boolean scanned = random.nextInt(10) != 0;
+                String ext = scanned
+                        ? TEXT_EXTENSIONS[random.nextInt(TEXT_EXTENSIONS.length)]
+                        : UNSCANNED_EXTENSIONS[random.nextInt(3)];
+                writeText(corpus, dir.resolve("file" + i + "." + ext), scanned);
+            }
+        }
+        return corpus;
+    }
+
+    /**
+     * Writes the planted secrets as tab-separated path, line and kind.
+     * @param corpus Generated corpus.
+     * @param out    Output file (should be outside the corpus root).
+     */
+    public static void writeManifest(Corpus corpus, Path out) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            for (Planted p : corpus.planted) {
+                writer.write(p.path + "\t" + p.line + "\t" + p.kind + "\n");
+            }
+        }
+    }
+
+    // Picks an existing directory or creates a new one below it, up to maxDepth
+    private Path pickDirectory(Path root, List<Path> dirs) throws IOException {
+        Path dir = dirs.get(random.nextInt(dirs.size()));
+        int depth = root.relativize(dir).getNameCount();
+        if (dir.equals(root)) depth = 0;
+        if (depth < options.maxDepth && random.nextInt(options.fanout + 1) == 0) {
+            dir = dir.resolve("d" + dirs.size());
+            Files.createDirectories(dir);
+            dirs.add(dir);
+        }
+        return dir;
+    }
+
+    private void writeText(Corpus corpus, Path file, boolean scanned) throws IOException {
+        int lines = 1 + random.nextInt(Math.max(1, options.averageLines * 2));
+        boolean plant = scanned && random.nextDouble() < options.secretFileRate;
+        int secrets = plant ? 1 + random.nextInt(3) : 0;
+        String relative = corpus.root.relativize(file).toString();
+
+        StringBuilder sb = new StringBuilder(lines * 32);
+        for (int line = 1; line <= lines; line++) {
+            if (secrets > 0 && random.nextInt(Math.max(1, (lines - line + 1) / secrets)) == 0) {
+                String kind = SECRET_KINDS[random.nextInt(SECRET_KINDS.length)];
+                sb.append(secret(kind)).append('\n');
+                corpus.planted.add(new Planted(relative, line, kind));
+                secrets--;
+            } else {
+                sb.append(CODE_LINES[random.nextInt(CODE_LINES.length)]).append('\n');
+            }
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(file, bytes);
+        count(corpus, bytes.length, scanned);
+    }
+
+    // One very long line of minified code, sometimes with a secret embedded
+    private void writeMinified(Corpus corpus, Path file) throws IOException {
+        StringBuilder sb = new StringBuilder(options.minifiedBytes + 128);
+        boolean plant = random.nextDouble() < options.secretFileRate;
+        int plantAt = plant ? random.nextInt(options.minifiedBytes) : -1;
+        while (sb.length() < options.minifiedBytes) {
+            if (plantAt >= 0 && sb.length() >= plantAt) {
+                sb.append("var k=\"AKIA").append(token(UPPER, 16)).append("\";");
+                corpus.planted.add(new Planted(corpus.root.relativize(file).toString(), 1, "aws-access-key-id"));
+                plantAt = -1;
+            }
+            sb.append("function ").append(token(BASE64.substring(0, 52), 6)).append("(a,b){return a+b*")
+                    .append(random.nextInt(1000)).append("};");
+        }
+        sb.append('\n');
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(file, bytes);
+        count(corpus, bytes.length, true);
+    }
+
+    private void writeBinary(Corpus corpus, Path file, String ext) throws IOException {
+        byte[] bytes = new byte[1024 + random.nextInt(256 * 1024)];
+        random.nextBytes(bytes);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(bytes);
+        }
+        count(corpus, bytes.length, ext.equals("log"));
+    }
+
+    private static void count(Corpus corpus, long bytes, boolean scanned) {
+        corpus.totalFiles++;
+        corpus.totalBytes += bytes;
+        if (scanned) {
+            corpus.scannableFiles++;
+            corpus.scannableBytes += bytes;
+        }
+    }
+
+    // A line that the named rule detects
+    private String secret(String kind) {
+        switch (kind) {
+            case "aws-access-key-id":
+                return "aws_access_key_id = AKIA" + token(UPPER, 16);
+            case "aws-secret-access-key":
+                return "aws_secret_access_key = " + token(BASE64, 40);
+            case "generic-secret":
+                return "api_token: " + token(BASE64, 36);
+            case "high-entropy-string":
+                // Random alphanumeric tokens of 40+ characters clear the default entropy threshold
+                return "checksum " + token(BASE64.substring(0, 62), 40 + random.nextInt(25)) + " ok";
+            default:
+                return "\"db_password\": \"" + token(BASE64.substring(0, 62), 32) + "\",";
+        }
+    }
+
+    private String token(String alphabet, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Generates a corpus from the command line: CorpusGenerator <dir> [options].
+     * The planted-secret manifest is written next to the directory as <dir>.planted.tsv.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: CorpusGenerator <dir> [--seed=N] [--files=N] [--depth=N] [--fanout=N] [--lines=N]"
+                    + " [--secret-rate=R] [--minified-rate=R] [--minified-bytes=N] [--binary-rate=R]");
+            System.exit(2);
+        }
+        Path root = Paths.get(args[0]);
+        Corpus corpus = new CorpusGenerator(Options.fromArgs(args)).generate(root);
+        Path manifest = Paths.get(args[0] + ".planted.tsv");
+        writeManifest(corpus, manifest);
+        System.out.println("Generated " + corpus.totalFiles + " files (" + corpus.totalBytes / (1024 * 1024) + " MB), "
+                + corpus.planted.size() + " planted secrets; manifest: " + manifest);
+    }
+}
@@ -0,0 +1,122 @@
+package com.cloudcred.bench;
+
+import java.util.Random;
+
+
+/**
+ * Deterministic line sets shared by the benchmarks.
+ * Every set is generated from a fixed seed, so results are comparable across commits.
+ * - clean: ordinary source and config lines with no secrets
+ * - noisy: mostly clean lines with ~10% near-misses and real hits (keys, tokens, hashes)
+ * - pathological: long lines and long base64-style runs that stress the regexes
+ */
+public final class Lines {
+    // Lines per set; large enough to defeat branch-prediction memorization
+    public static final int SIZE = 1024;
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789/+=";
+    private static final String UPPER = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private static final String[] CLEAN_TEMPLATES = {
+            "    public static void main(String[] args) {",
+            "import java.util.concurrent.ConcurrentHashMap;",
+            "server.port=8080",
+            "log.level: INFO",
+            "  - name: build-and-test",
+            "for (int i = 0; i < items.size(); i++) {",
+            "# Configuration for the staging environment",
+            "\"description\": \"Customer facing dashboard service\",",
+            "echo \"Deploying version $VERSION to $TARGET\"",
+            "return new Response(status, headers, body);",
+    };
+
+    private Lines() {
+    }
+
+    /**
+     * Returns the named line set.
+     * @param kind clean, noisy or pathological.
+     * @return SIZE lines.
+     */
+    public static String[] of(String kind) {
+        Random random = new Random(42);
+        String[] lines = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            switch (kind) {
+                case "clean":
+                    lines[i] = clean(random);
+                    break;
+                case "noisy":
+                    lines[i] = random.nextInt(10) == 0 ? secret(random) : clean(random);
+                    break;
+                case "pathological":
+                    lines[i] = pathological(random);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown line set: " + kind);
+            }
+        }
+        return lines;
+    }
+
+    private static String clean(Random random) {
+        return CLEAN_TEMPLATES[random.nextInt(CLEAN_TEMPLATES.length)];
+    }
+
+    // Real hits and near-misses for every rule
+    private static String secret(Random random) {
+        switch (random.nextInt(8)) {
+            case 0:
+                return "aws_access_key_id = AKIA" + token(random, UPPER, 16);
+            case 1:
+                return "aws_secret_access_key = " + token(random, ALPHABET, 40);
+            case 2:
+                return "api_token: \"" + token(random, ALPHABET, 36) + "\"";
+            case 3:
+                return "checksum " + token(random, ALPHABET, 40) + " ok";
+            case 4:
+                return "\"client_secret\": \"" + token(random, ALPHABET, 32) + "\",";
+            case 5:
+                // Too short to be a key
+                return "AKIA" + token(random, UPPER, 8);
+            case 6:
+                // Suspicious key, value too short
+                return "password=" + token(random, ALPHABET, 12);
+            default:
+                // Long run of the wrong length for the 40-character rule
+                return "sha = " + token(random, ALPHABET, 64);
+        }
+    }
+
+    // Lines that make regex engines work hard
+    private static String pathological(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                // One very long base64-style run
+                return token(random, ALPHABET, 4096);
+            case 1:
+                // Keyword followed by many near-matching windows
+                return repeat("secret=" + token(random, ALPHABET, 29) + " ", 64);
+            case 2:
+                // Minified JSON blob with many short tokens
+                return repeat("{\"k\":\"" + token(random, ALPHABET, 20) + "\"},", 200);
+            default:
+                // Many partial AKIA prefixes
+                return repeat("AKIA" + token(random, UPPER, 12) + " ", 128);
+        }
+    }
+
+    private static String token(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder(s.length() * times);
+        for (int i = 0; i < times; i++) sb.append(s);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,209 @@
+package com.cloudcred.bench;
+
+import com.cloudcred.alert.AlertChannel;
+import com.cloudcred.alert.AlertService;
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.FindingSink;
+import com.cloudcred.model.ScanConfig;
+import com.cloudcred.pipeline.FindingCounter;
+import com.cloudcred.pipeline.FindingPipeline;
+import com.cloudcred.report.ReportWriter;
+import com.cloudcred.scanner.FileScanner;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+
+/**
+ * End-to-end scan measurement on a generated corpus.
+ * Runs the same scan, alert and report pipeline as Main against a CorpusGenerator tree and
+ * records wall time, files/sec, MB/sec, peak heap and recall of the planted secrets.
+ * Results are printed and appended as JSON lines to --out=, and --min-recall= /
+ * --max-seconds= turn regressions into a non-zero exit code.
+ *
+ * Usage: ThroughputHarness [--corpus=dir] [--runs=N] [--out=file] [--min-recall=R] [--max-seconds=S]
+ *        [generator options, see CorpusGenerator] [scanner options, see ScanConfig.fromArgs]
+ */
+public class ThroughputHarness {
+
+    // Result of one measured run
+    static class Result {
+        double seconds;
+        long peakHeapBytes;
+        long findings;
+        long plantedFound;
+        long unexpected;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String corpusDir = null;
+        int runs = 3;
+        String out = null;
+        double minRecall = 0;
+        double maxSeconds = 0;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--corpus=")) corpusDir = value;
+            else if (arg.startsWith("--runs=")) runs = Integer.parseInt(value);
+            else if (arg.startsWith("--out=")) out = value;
+            else if (arg.startsWith("--min-recall=")) minRecall = Double.parseDouble(value);
+            else if (arg.startsWith("--max-seconds=")) maxSeconds = Double.parseDouble(value);
+        }
+
+        // Generate the corpus; the seed makes it identical every time
+        CorpusGenerator.Options options = CorpusGenerator.Options.fromArgs(args);
+        Path root = corpusDir != null ? Paths.get(corpusDir) : Files.createTempDirectory("cloudcred-corpus");
+        if (corpusDir != null && Files.isDirectory(root)) {
+            try (Stream<Path> entries = Files.list(root)) {
+                if (entries.findAny().isPresent()) {
+                    System.err.println("Corpus directory must be empty or missing: " + root);
+                    System.exit(2);
+                }
+            }
+        }
+        CorpusGenerator.Corpus corpus = new CorpusGenerator(options).generate(root);
+        System.out.println(String.format(Locale.ROOT, "Corpus: %d files, %.1f MB (%d scannable, %.1f MB), %d planted secrets, seed %d",
+                corpus.totalFiles, mb(corpus.totalBytes), corpus.scannableFiles, mb(corpus.scannableBytes),
+                corpus.planted.size(), options.seed));
+
+        ScanConfig config = ScanConfig.fromArgs(args);
+        config.path = root.toString();
+        Path report = Files.createTempFile("cloudcred-report", ".txt");
+
+        // The first run warms up the JIT and the page cache and is not recorded
+        runOnce(config, corpus, report);
+        Result best = null;
+        for (int i = 1; i <= runs; i++) {
+            Result result = runOnce(config, corpus, report);
+            print("run " + i, corpus, result);
+            if (best == null || result.seconds < best.seconds) best = result;
+        }
+        print("best", corpus, best);
+
+        double recall = recall(corpus, best);
+        if (out != null) {
+            try (Writer writer = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(String.format(Locale.ROOT,
+                        "{\"timestamp\":%d,\"seed\":%d,\"files\":%d,\"bytes\":%d,\"parallelism\":%d,\"mmap\":%b,"
+                                + "\"seconds\":%.3f,\"filesPerSecond\":%.1f,\"mbPerSecond\":%.2f,\"peakHeapBytes\":%d,"
+                                + "\"findings\":%d,\"planted\":%d,\"recall\":%.4f,\"unexpected\":%d}%n",
+                        System.currentTimeMillis(), options.seed, corpus.scannableFiles, corpus.scannableBytes,
+                        config.parallelism, config.memoryMappedScan, best.seconds,
+                        corpus.scannableFiles / best.seconds, mb(corpus.scannableBytes) / best.seconds,
+                        best.peakHeapBytes, best.findings, corpus.planted.size(), recall, best.unexpected));
+            }
+        }
+        Files.deleteIfExists(report);
+        if (corpusDir == null) deleteTree(root);
+
+        if (recall < minRecall) {
+            System.out.println("FAIL: recall " + recall + " is below " + minRecall);
+            System.exit(1);
+        }
+        if (maxSeconds > 0 && best.seconds > maxSeconds) {
+            System.out.println("FAIL: best run took " + best.seconds + " s, limit is " + maxSeconds + " s");
+            System.exit(1);
+        }
+    }
+
+    // One scan through the full pipeline: counter, alerts, report and planted-secret matching
+    private static Result runOnce(ScanConfig config, CorpusGenerator.Corpus corpus, Path report) {
+        Set<String> planted = new HashSet<>();
+        for (CorpusGenerator.Planted p : corpus.planted) {
+            planted.add(key(p.path, p.line));
+        }
+        Result result = new Result();
+        Set<String> found = new HashSet<>();
+
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+
+        long start = System.nanoTime();
+        FindingCounter counter = new FindingCounter();
+        // Alerts go through the real dispatcher but are not printed
+        AlertService alerts = new AlertService(config.alertQueueCapacity, Collections.singletonList(new DiscardingChannel()));
+        FindingSink alertStage = alerts::sendAlert;
+        FindingSink reportStage = new ReportWriter().openReport(report.toString(), config);
+        Path base = corpus.root.toAbsolutePath().normalize();
+        FindingSink recallStage = finding -> {
+            String k = key(base.relativize(Paths.get(finding.getFilePath()).toAbsolutePath().normalize()).toString(),
+                    finding.getLineNumber());
+            if (planted.contains(k)) {
+                found.add(k);
+            } else {
+                result.unexpected++;
+            }
+        };
+        FindingPipeline pipeline = new FindingPipeline(FindingPipeline.DEFAULT_CAPACITY,
+                Arrays.asList(counter, alertStage, reportStage, recallStage));
+        new FileScanner(config).scanDirectory(config.path, pipeline);
+        pipeline.close();
+        alerts.close();
+        result.seconds = (System.nanoTime() - start) / 1e9;
+
+        for (MemoryPoolMXBean pool : heapPools) {
+            result.peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        result.findings = counter.total();
+        result.plantedFound = found.size();
+        return result;
+    }
+
+    private static void print(String label, CorpusGenerator.Corpus corpus, Result result) {
+        System.out.println(String.format(Locale.ROOT,
+                "%-6s %8.3f s  %10.1f files/s  %8.2f MB/s  peak heap %6d MB  findings %d  recall %.4f  unexpected %d",
+                label, result.seconds, corpus.scannableFiles / result.seconds, mb(corpus.scannableBytes) / result.seconds,
+                result.peakHeapBytes / (1024 * 1024), result.findings, recall(corpus, result), result.unexpected));
+    }
+
+    private static double recall(CorpusGenerator.Corpus corpus, Result result) {
+        return corpus.planted.isEmpty() ? 1.0 : (double) result.plantedFound / corpus.planted.size();
+    }
+
+    private static String key(String path, int line) {
+        return path + ":" + line;
+    }
+
+    private static double mb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    // Alert channel that only drops what it receives
+    private static class DiscardingChannel implements AlertChannel {
+        @Override
+        public String getName() {
+            return "discard";
+        }
+
+        @Override
+        public void add(Finding finding) {
+        }
+
+        @Override
+        public void flush(boolean closing) {
+        }
+    }
+}
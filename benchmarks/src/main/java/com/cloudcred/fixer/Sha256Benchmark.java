@@ -0,0 +1,38 @@
+package com.cloudcred.fixer;
+
+import com.cloudcred.bench.Lines;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Redaction hashing: one SHA-256 hex digest per remediated line.
+ * Results are per line set (Lines.SIZE lines).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class Sha256Benchmark {
+
+    @Param({"noisy", "pathological"})
+    public String lines;
+
+    private String[] input;
+
+    @Setup
+    public void setup() {
+        input = Lines.of(lines);
+    }
+
+    @Benchmark
+    public void sha256(Blackhole bh) {
+        for (String line : input) {
+            bh.consume(Fixer.sha256(line));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.bench.Lines;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Full line classification as the scanners run it: prefilter, rules in precedence order
+ * and, for local files, the key/value heuristic. "files" is FileScanner's engine and
+ * "s3" is S3FileScanner's. Results are per line set (Lines.SIZE lines).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ClassifyBenchmark {
+
+    @Param({"files", "s3"})
+    public String engine;
+
+    @Param({"clean", "noisy", "pathological"})
+    public String lines;
+
+    private String[] input;
+    private MatchEngine matchEngine;
+
+    @Setup
+    public void setup() {
+        input = Lines.of(lines);
+        matchEngine = engine.equals("s3") ? MatchEngine.forS3() : MatchEngine.forFiles();
+    }
+
+    @Benchmark
+    public void classify(Blackhole bh) {
+        for (String line : input) {
+            bh.consume(matchEngine.classify(line));
+        }
+    }
+
+    // The key/value heuristic alone, without the prefilter that normally guards it
+    @Benchmark
+    public void keyValueHeuristic(Blackhole bh) {
+        for (String line : input) {
+            bh.consume(matchEngine.checkKeyValue(line));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.bench.Lines;
+import com.cloudcred.model.ScanConfig;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * LOW-tier detection cost: the entropy detector against the 40-character regex it replaced.
+ * Both run on every line without a prefilter. Results are per line set (Lines.SIZE lines).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EntropyBenchmark {
+
+    @Param({"clean", "noisy", "pathological"})
+    public String lines;
+
+    private String[] input;
+    private EntropyDetector detector;
+    private Matcher legacy;
+
+    @Setup
+    public void setup() {
+        input = Lines.of(lines);
+        detector = EntropyDetector.fromConfig(new ScanConfig());
+        legacy = Pattern.compile("\\b[A-Za-z0-9/+=]{40}\\b").matcher("");
+    }
+
+    @Benchmark
+    public void entropy(Blackhole bh) {
+        for (String line : input) {
+            bh.consume(detector.find(line));
+        }
+    }
+
+    @Benchmark
+    public void legacyRegex(Blackhole bh) {
+        for (String line : input) {
+            bh.consume(legacy.reset(line).find());
+        }
+    }
+}
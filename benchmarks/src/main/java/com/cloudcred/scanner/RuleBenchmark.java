@@ -0,0 +1,49 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.bench.Lines;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+
+/**
+ * Cost of each file-scanner rule regex on its own, without the keyword/run prefilter.
+ * This is the price a line pays when its prefilter passes, and the number to watch
+ * when a rule pattern is changed. Results are per line set (Lines.SIZE lines).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RuleBenchmark {
+
+    // Rule ids of MatchEngine.forFiles() (HIGH, HIGH, MEDIUM patterns; LOW is EntropyBenchmark)
+    @Param({"aws-access-key-id", "aws-secret-access-key", "generic-secret"})
+    public String rule;
+
+    @Param({"clean", "noisy", "pathological"})
+    public String lines;
+
+    private String[] input;
+    private Matcher matcher;
+
+    @Setup
+    public void setup() {
+        input = Lines.of(lines);
+        for (Rule r : MatchEngine.forFiles().getRules()) {
+            if (r.getId().equals(rule)) matcher = r.getPattern().matcher("");
+        }
+        if (matcher == null) throw new IllegalStateException("Unknown rule: " + rule);
+    }
+
+    @Benchmark
+    public void find(Blackhole bh) {
+        for (String line : input) {
+            bh.consume(matcher.reset(line).find());
+        }
+    }
+}
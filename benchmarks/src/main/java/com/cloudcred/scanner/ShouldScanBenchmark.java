@@ -0,0 +1,48 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.model.ScanConfig;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Extension and ignore-list filtering, run once for every file the walk visits.
+ * The names mix scanned, ignored, extensionless and upper-case files.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ShouldScanBenchmark {
+
+    private static final String[] NAMES = {
+            "Main.java", "application.yml", "config.JSON", "README", "Makefile",
+            "scan_report.txt", "credentials", "logo.png", "archive.tar.gz", "deploy.sh",
+            "styles.css", "index.ts", "data.csv", "id_rsa", "settings.properties",
+            "notes.md", "server.log", "Dockerfile", "docker-compose.yml", ".env"
+    };
+
+    private FileScanner scanner;
+    private File[] files;
+
+    @Setup
+    public void setup() {
+        scanner = new FileScanner(new ScanConfig());
+        files = new File[NAMES.length];
+        for (int i = 0; i < NAMES.length; i++) {
+            files[i] = new File("project/src/" + NAMES[i]);
+        }
+    }
+
+    @Benchmark
+    public void shouldScan(Blackhole bh) {
+        for (File file : files) {
+            bh.consume(scanner.shouldScan(file));
+        }
+    }
+}
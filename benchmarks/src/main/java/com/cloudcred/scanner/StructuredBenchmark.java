@@ -0,0 +1,107 @@
+package com.cloudcred.scanner;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Classification of config files as FileScanner runs it, per generated file of about 2000 lines:
+ * "lineHeuristic" is the engine with the line-based key/value heuristic (--no-structured),
+ * "keyPaths" the engine without it followed by the file's KeyPathTokenizer. The files are
+ * config-heavy: nested sections of plain settings with a few passwords, tokens and placeholders.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StructuredBenchmark {
+
+    @Param({"json", "yml", "properties", "xml"})
+    public String format;
+
+    private String[] input;
+    private MatchEngine engine;
+
+    @Setup
+    public void setup() {
+        input = generate(format, 200);
+        engine = MatchEngine.forFiles();
+    }
+
+    @Benchmark
+    public void lineHeuristic(Blackhole bh) {
+        for (String line : input) {
+            bh.consume(engine.classify(line));
+        }
+    }
+
+    @Benchmark
+    public void keyPaths(Blackhole bh) {
+        KeyPathTokenizer tokenizer = KeyPathTokenizer.forFile("config." + format);
+        for (String line : input) {
+            bh.consume(tokenizer.classify(line, engine.classifyAll(line, false)));
+        }
+    }
+
+    // A config file of the given format with the given number of sections of ten settings each
+    static String[] generate(String format, int sections) {
+        Random random = new Random(7);
+        List<String> lines = new ArrayList<>();
+        if (format.equals("json")) lines.add("{");
+        if (format.equals("xml")) lines.add("<configuration>");
+        for (int s = 0; s < sections; s++) {
+            String section = "service" + s;
+            if (format.equals("json")) lines.add("  \"" + section + "\": {");
+            if (format.equals("yml")) lines.add(section + ":");
+            if (format.equals("xml")) lines.add("  <" + section + ">");
+            for (int k = 0; k < 10; k++) {
+                String key;
+                String value;
+                switch (random.nextInt(10)) {
+                    case 0:
+                        key = "password";
+                        value = random.nextBoolean() ? "${DB_PASSWORD}" : "Pw" + Long.toString(random.nextLong(), 36);
+                        break;
+                    case 1:
+                        key = "api_token";
+                        value = Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+                        break;
+                    case 2:
+                        key = "key_file";
+                        value = "/etc/ssl/private/" + section + ".key";
+                        break;
+                    default:
+                        key = "setting_" + k;
+                        value = "value-" + random.nextInt(100000);
+                        break;
+                }
+                switch (format) {
+                    case "json":
+                        lines.add("    \"" + key + "\": \"" + value + "\"" + (k < 9 ? "," : ""));
+                        break;
+                    case "yml":
+                        lines.add("  " + key + ": " + value);
+                        break;
+                    case "xml":
+                        lines.add("    <" + key + ">" + value + "</" + key + ">");
+                        break;
+                    default:
+                        lines.add(section + "." + key + "=" + value);
+                        break;
+                }
+            }
+            if (format.equals("json")) lines.add("  }" + (s < sections - 1 ? "," : ""));
+            if (format.equals("xml")) lines.add("  </" + section + ">");
+        }
+        if (format.equals("json")) lines.add("}");
+        if (format.equals("xml")) lines.add("</configuration>");
+        return lines.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,297 @@
+package com.cloudcred;
+
+import com.cloudcred.alert.AlertService;
+import com.cloudcred.fixer.Fixer;
+import com.cloudcred.metrics.MetricsExporter;
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.FindingSink;
+import com.cloudcred.model.ScanConfig;
+import com.cloudcred.pipeline.FindingCounter;
+import com.cloudcred.pipeline.FindingPipeline;
+import com.cloudcred.pipeline.FindingStore;
+import com.cloudcred.report.ReportWriter;
+import com.cloudcred.report.ResultMerger;
+import com.cloudcred.scanner.DirectoryWatcher;
+import com.cloudcred.scanner.FileScanner;
+import com.cloudcred.scanner.GitHistoryScanner;
+import com.cloudcred.scanner.RulePack;
+import com.cloudcred.scanner.S3FileScanner;
+import com.cloudcred.server.ScanServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Command-line entry point of the shaded jar.
+ * Without arguments, or with --interactive, it starts the interactive prompts of Main. Otherwise
+ * the scan is configured by flags only (see ScanConfig.fromArgs) and runs without reading stdin:
+ * config.path is scanned unless --no-local is given, S3 only for --s3-bucket= and git history only
+ * for --git-history=. A trailing argument without "--" is taken as the directory to scan.
+ *
+ * The AWS SDK and the mail classes are only loaded when S3 or email alerts are actually used,
+ * so a local scan starts quickly, and faster still with the AppCDS archive built by the pom.
+ *
+ * Exit status: 0 when nothing was found, 1 when there are findings, 2 on errors. Nothing is scanned
+ * and no report is written for an unknown option, an invalid value or a config.path that is not
+ * a readable directory. A failing rule pack, S3 bucket or --git-history= repository, a --merge=
+ * with missing or unfinished shards, or a scan index, S3 manifest or report that cannot be
+ * written also gives 2, but the findings of the parts that did run are still reported.
+ */
+public final class Cli {
+    static final int EXIT_CLEAN = 0;
+    static final int EXIT_FINDINGS = 1;
+    static final int EXIT_ERROR = 2;
+
+    private Cli() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0 || Arrays.asList(args).contains("--interactive")) {
+            Main.main(args);
+            return;
+        }
+        ScanConfig config = ScanConfig.fromArgs(args);
+        if (!argumentsValid(config)) System.exit(EXIT_ERROR);
+
+        int status = run(config);
+        // Exit explicitly only on failure; the scan server keeps running after run() returns
+        if (status != EXIT_CLEAN) System.exit(status);
+    }
+
+    /**
+     * Prints the argument errors collected by ScanConfig.fromArgs.
+     * @param config Scan configuration.
+     * @return True if there were none.
+     */
+    static boolean argumentsValid(ScanConfig config) {
+        for (String error : config.argumentErrors) System.out.println("❌ " + error);
+        return config.argumentErrors.isEmpty();
+    }
+
+    /**
+     * Whether the configuration selects a mode that never prompts (watch, serve, merge or shard).
+     * @param config Scan configuration.
+     */
+    static boolean runsWithoutPrompts(ScanConfig config) {
+        return config.watch || config.serve || !config.mergeInputs.isEmpty() || config.shardCount > 0;
+    }
+
+    /**
+     * Runs the mode selected by the configuration without prompting.
+     * @param config Scan configuration.
+     * @return Exit status.
+     */
+    static int run(ScanConfig config) {
+        // Without prompts nobody sees a pack error scroll by, so a broken pack stops the run
+        if (config.mergeInputs.isEmpty() && !RulePack.loadAll(config.rulePacks)) return EXIT_ERROR;
+        if (config.watch) return watch(config);
+        if (config.serve) return serve(config);
+        if (!config.mergeInputs.isEmpty()) {
+            long merged = new ResultMerger(config).merge(config.mergeInputs);
+            return merged < 0 ? EXIT_ERROR : merged > 0 ? EXIT_FINDINGS : EXIT_CLEAN;
+        }
+        if (config.shardCount > 0) return scanShard(config);
+        return scan(config);
+    }
+
+    /**
+     * Scans, reports and alerts like the interactive flow. Findings are fixed only when
+     * --fix-policy= is given; without a policy nothing is changed.
+     * @param config Scan configuration.
+     * @return Exit status.
+     */
+    private static int scan(ScanConfig config) {
+        if (!rootReadable(config)) return EXIT_ERROR;
+        MetricsExporter metrics = config.metricsPath != null
+                ? new MetricsExporter(config.metricsPath, config.metricsIntervalSeconds) : null;
+
+        FindingCounter counter = new FindingCounter();
+        AlertService alertService = new AlertService(config);
+        ReportWriter report = new ReportWriter();
+        List<FindingSink> stages = new ArrayList<>(Arrays.asList(counter, alertStage(config, alertService),
+                report.openReport(config.reportPath, config)));
+        // Remediation needs the complete list; keep it only when there is a policy to apply
+        FindingStore fixable = null;
+        if (config.fixPolicy != null) {
+            fixable = new FindingStore(config.findingsInMemory);
+            stages.add(fixable);
+        }
+        FindingPipeline pipeline = new FindingPipeline(FindingPipeline.DEFAULT_CAPACITY, stages);
+
+        boolean complete = runScans(config, config.scanLocal, !config.s3Buckets.isEmpty(),
+                !config.gitRepositories.isEmpty(), pipeline, counter);
+        pipeline.close();
+        alertService.close();
+
+        if (fixable != null) {
+            new Fixer(config).handleFindings(fixable);
+            fixable.clear();
+        }
+        if (metrics != null) metrics.close();
+
+        System.out.println("\nDone. Total findings: " + counter.total());
+        return status(complete && !report.failed(), counter);
+    }
+
+    /**
+     * Runs the selected scans into the pipeline and prints the number of findings of each.
+     * The S3 scanner is referenced only inside its branch, so local scans never load the AWS SDK.
+     * Every selected scan runs even if an earlier one failed.
+     * @return False if the local, S3 or git history scan failed.
+     */
+    static boolean runScans(ScanConfig config, boolean scanLocal, boolean scanS3, boolean scanGit,
+                         FindingPipeline pipeline, FindingCounter counter) {
+        boolean complete = true;
+        // Scan local files if requested
+        if (scanLocal) {
+            System.out.println("\n===> Scanning local directory...");
+            long before = counter.total();
+            complete &= new FileScanner(config).scanDirectory(config.path, pipeline);
+            pipeline.awaitDrained();
+            System.out.println("Local findings: " + (counter.total() - before));
+        }
+
+        // Scan selected S3 buckets if requested
+        if (scanS3) {
+            System.out.println("\n===> Scanning selected S3 buckets...");
+            long before = counter.total();
+            complete &= new S3FileScanner(config).scanS3(pipeline);
+            pipeline.awaitDrained();
+            System.out.println("S3 findings: " + (counter.total() - before));
+        }
+
+        // Scan the history of git repositories given with --git-history=
+        if (scanGit) {
+            System.out.println("\n===> Scanning git history...");
+            long before = counter.total();
+            complete &= new GitHistoryScanner(config).scanHistory(pipeline);
+            pipeline.awaitDrained();
+            System.out.println("Git history findings: " + (counter.total() - before));
+        }
+        return complete;
+    }
+
+    // Checks config.path before a local scan, so a missing root stops the run instead of
+    // producing an empty "All clear" report
+    private static boolean rootReadable(ScanConfig config) {
+        if (!config.scanLocal) return true;
+        File root = new File(config.path);
+        if (root.isDirectory() && root.canRead()) return true;
+        System.out.println("❌ Not a readable directory: " + config.path);
+        return false;
+    }
+
+    // Exit status of a scan: errors win over findings
+    private static int status(boolean complete, FindingCounter counter) {
+        if (!complete) return EXIT_ERROR;
+        return counter.total() > 0 ? EXIT_FINDINGS : EXIT_CLEAN;
+    }
+
+    // Pipeline stage that alerts on findings at or above the minimum severity
+    static FindingSink alertStage(ScanConfig config, AlertService alertService) {
+        Finding.Severity minSeverity = config.minSeverity;
+        return finding -> {
+            // Generate alerts for findings at or above minimum severity
+            if (finding.getSeverity().atLeast(minSeverity)) {
+                alertService.sendAlert(finding);
+            }
+        };
+    }
+
+    /**
+     * Scans one shard (--shard=i/N) of config.path and the --s3-bucket= buckets
+     * and writes its findings to a partial result file for --merge=. Git history is not split
+     * and is scanned by shard 1 only.
+     * @param config Scan configuration.
+     * @return Exit status.
+     */
+    private static int scanShard(ScanConfig config) {
+        String shard = (config.shardIndex + 1) + "/" + config.shardCount;
+        String output = config.shardOutput != null ? config.shardOutput
+                : "scan_shard_" + (config.shardIndex + 1) + "_of_" + config.shardCount + ".jsonl";
+        config.reportFormat = "jsonl";
+        if (!rootReadable(config)) return EXIT_ERROR;
+        System.out.println("Scanning shard " + shard + "...");
+
+        MetricsExporter metrics = config.metricsPath != null
+                ? new MetricsExporter(config.metricsPath, config.metricsIntervalSeconds) : null;
+        FindingCounter counter = new FindingCounter();
+        AlertService alertService = new AlertService(config);
+        ReportWriter report = new ReportWriter();
+        FindingPipeline pipeline = new FindingPipeline(FindingPipeline.DEFAULT_CAPACITY,
+                Arrays.asList(counter, alertStage(config, alertService), report.openReport(output, config)));
+
+        boolean complete = runScans(config, config.scanLocal, !config.s3Buckets.isEmpty(),
+                !config.gitRepositories.isEmpty() && config.shardIndex == 0, pipeline, counter);
+        pipeline.close();
+        alertService.close();
+        if (metrics != null) metrics.close();
+
+        System.out.println("\nShard " + shard + " done. Total findings: " + counter.total());
+        return status(complete && !report.failed(), counter);
+    }
+
+    /**
+     * Starts the HTTP scan server, which runs until the process is stopped (Ctrl+C).
+     * @param config Scan configuration shared by all requests.
+     * @return Exit status; EXIT_CLEAN once the server is listening.
+     */
+    private static int serve(ScanConfig config) {
+        MetricsExporter metrics = config.metricsPath != null
+                ? new MetricsExporter(config.metricsPath, config.metricsIntervalSeconds) : null;
+        ScanServer server;
+        try {
+            server = new ScanServer(config);
+        } catch (IOException e) {
+            System.out.println("❌ Cannot start scan server on " + config.serverHost + ":" + config.serverPort + " - " + e.getMessage());
+            return EXIT_ERROR;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (metrics != null) metrics.close();
+        }));
+        // The server's dispatcher thread keeps the JVM running
+        server.start();
+        return EXIT_CLEAN;
+    }
+
+    /**
+     * Watches config.path and alerts on new findings until the process is stopped (Ctrl+C).
+     * @param config Scan configuration.
+     * @return Exit status.
+     */
+    private static int watch(ScanConfig config) {
+        MetricsExporter metrics = config.metricsPath != null
+                ? new MetricsExporter(config.metricsPath, config.metricsIntervalSeconds) : null;
+        // The watcher sends only findings that are new to their file, so a secret that is removed
+        // and added again alerts again; deduplicating in the service would swallow it
+        AlertService alertService = new AlertService(config, false);
+        DirectoryWatcher watcher;
+        try {
+            watcher = new DirectoryWatcher(config, alertService);
+        } catch (IOException e) {
+            System.out.println("❌ Cannot watch " + config.path + " - " + e.getMessage());
+            alertService.close();
+            return EXIT_ERROR;
+        }
+
+        // Stop the watcher on Ctrl+C and let the main thread deliver pending alerts before exit
+        Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            watcher.close();
+            try {
+                mainThread.join(10_000);
+            } catch (InterruptedException ignored) {
+            }
+        }));
+
+        watcher.run();
+        alertService.close();
+        if (metrics != null) metrics.close();
+        return EXIT_CLEAN;
+    }
+}
@@ -2,11 +2,14 @@ package com.cloudcred;
 
 import com.cloudcred.alert.AlertService;
 import com.cloudcred.fixer.Fixer;
+import com.cloudcred.metrics.MetricsExporter;
 import com.cloudcred.model.Finding;
+import com.cloudcred.model.FindingSink;
 import com.cloudcred.model.ScanConfig;
+import com.cloudcred.pipeline.FindingCounter;
+import com.cloudcred.pipeline.FindingPipeline;
+import com.cloudcred.pipeline.FindingStore;
 import com.cloudcred.report.ReportWriter;
-import com.cloudcred.scanner.FileScanner;
-import com.cloudcred.scanner.S3FileScanner;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.Bucket;
 import software.amazon.awssdk.services.s3.model.ListBucketsRequest;
@@ -27,7 +30,15 @@ public class Main {
         System.out.println("=======================================================================\n");
 
         Scanner scanner = new Scanner(System.in);
-        ScanConfig config = new ScanConfig();
+        // Command-line flags (e.g. --fix-policy=, --parallelism=) seed the defaults for the prompts below
+        ScanConfig config = ScanConfig.fromArgs(args);
+        if (!Cli.argumentsValid(config)) System.exit(Cli.EXIT_ERROR);
+
+        // Watch, serve, merge and shard modes run without prompts
+        if (Cli.runsWithoutPrompts(config)) {
+            if (Cli.run(config) == Cli.EXIT_ERROR) System.exit(Cli.EXIT_ERROR);
+            return;
+        }
 
         // Prompt user for minimum severity level (LOW/MEDIUM/HIGH)
         while (true) {
@@ -113,40 +124,32 @@ public class Main {
             }
         }
 
-        List<Finding> allFindings = new ArrayList<>();
-
-        // Scan local files if requested
-        if (scanLocal) {
-            System.out.println("\n===> Scanning local directory...");
-            FileScanner fileScanner = new FileScanner(config);
-            List<Finding> localFindings = fileScanner.scanDirectory(config.path);
-            System.out.println("Local findings: " + localFindings.size());
-            allFindings.addAll(localFindings);
-        }
-
-        // Scan selected S3 buckets if requested
-        if (scanS3 && config.s3Buckets != null) {
-            System.out.println("\n===> Scanning selected S3 buckets...");
-            S3FileScanner s3Scanner = new S3FileScanner(config);
-            List<Finding> s3Findings = s3Scanner.scanS3();
-            System.out.println("S3 findings: " + s3Findings.size());
-            allFindings.addAll(s3Findings);
-        }
-
-        // Generate alerts for findings above minimum severity
-        System.out.println("\n===> Generating alerts and report...");
-        AlertService alertService = new AlertService();
-        for (Finding finding : allFindings) {
-            if (finding.getSeverity().ordinal() >= config.minSeverity.ordinal()) {
-                alertService.sendAlert(finding);
-            }
-        }
-
-        // Write scan report and handle remediation
-        new ReportWriter().writeReport(allFindings, "scan_report.txt", config);
-        new Fixer().handleFindings(allFindings);
-
-        System.out.println("\nDone. Total findings: " + allFindings.size());
+        // Findings stream through a bounded pipeline: counting, alerting and report writing
+        // run while the scan is in progress. Interactive remediation still needs the complete
+        // list, which is collected as a stage in a compact store that spills to disk when large.
+        // Metrics are exported periodically during the scan and once more at the end
+        MetricsExporter metrics = config.metricsPath != null
+                ? new MetricsExporter(config.metricsPath, config.metricsIntervalSeconds) : null;
+
+        FindingStore allFindings = new FindingStore(config.findingsInMemory);
+        FindingCounter counter = new FindingCounter();
+        AlertService alertService = new AlertService(config);
+        FindingSink reportStage = new ReportWriter().openReport(config.reportPath, config);
+        FindingPipeline pipeline = new FindingPipeline(FindingPipeline.DEFAULT_CAPACITY,
+                Arrays.asList(counter, Cli.alertStage(config, alertService), reportStage, allFindings));
+
+        Cli.runScans(config, scanLocal, scanS3 && config.s3Buckets != null, !config.gitRepositories.isEmpty(), pipeline, counter);
+        // Closing the pipeline finishes the report with its summary
+        pipeline.close();
+        // Deliver queued alerts and send the final email digest
+        alertService.close();
+
+        // Handle remediation
+        new Fixer(config).handleFindings(allFindings);
+        allFindings.clear();
+        if (metrics != null) metrics.close();
+
+        System.out.println("\nDone. Total findings: " + counter.total());
 
         // Ask user if they want to open the scan report
         System.out.print("\nWould you like to open the scan report now? (yes/no): ");
@@ -154,7 +157,7 @@ public class Main {
         if (openReport.equals("exit")) System.exit(0);
         if (openReport.equals("yes")) {
             try {
-                java.awt.Desktop.getDesktop().open(new File("scan_report.txt"));
+                java.awt.Desktop.getDesktop().open(new File(config.reportPath));
             } catch (Exception e) {
                 System.out.println("Could not open report: " + e.getMessage());
             }
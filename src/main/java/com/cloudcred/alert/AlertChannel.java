@@ -0,0 +1,28 @@
+package com.cloudcred.alert;
+
+import com.cloudcred.model.Finding;
+
+
+/**
+ * A destination for alerts (console, email digest, ...).
+ * Channels are only called from the alert dispatcher thread, so they can buffer freely;
+ * each channel decides itself when to deliver and how fast.
+ */
+public interface AlertChannel {
+
+    // Name used in delivery error messages
+    String getName();
+
+    /**
+     * Buffers a new, deduplicated finding for delivery.
+     * @param finding The detected leak or secret.
+     */
+    void add(Finding finding);
+
+    /**
+     * Delivers whatever is due. Called periodically and once more when the service closes.
+     * @param closing true on the final call; everything still buffered should be delivered.
+     * @throws Exception If delivery fails; buffered findings may be retried on the next call.
+     */
+    void flush(boolean closing) throws Exception;
+}
@@ -1,16 +1,235 @@
 
 package com.cloudcred.alert;
 
+import com.cloudcred.metrics.Counter;
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.metrics.Timer;
 import com.cloudcred.model.Finding;
+import com.cloudcred.model.ScanConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 // This service is responsible for sending alerts when a leak is detected.
-// For now, it just prints to the console, but you could extend it to send emails or notifications.
-public class AlertService {
+// sendAlert() only queues the finding; a dispatcher thread deduplicates findings and hands
+// them to the configured channels (console, email digest), which batch and rate-limit delivery.
+// A scan therefore never waits on console or SMTP I/O. Deduplication remembers a bounded number
+// of findings, so a long-running service does not grow without limit.
+public class AlertService implements AutoCloseable {
+    // How often channels get a chance to deliver what they have buffered
+    private static final long TICK_MILLIS = 200;
+
+    private static final Counter QUEUED = Metrics.counter("cloudcred_alerts_queued_total", "Alerts accepted by the alert queue");
+    private static final Counter DROPPED = Metrics.counter("cloudcred_alerts_dropped_total", "Alerts dropped because the alert queue was full");
+    private static final Counter DUPLICATES = Metrics.counter("cloudcred_alerts_duplicate_total", "Alerts merged as duplicates");
+
+    // Marker that tells the dispatcher to stop
+    private static final Finding END = new Finding("", 0, "", Finding.Severity.LOW);
+
+    private final BlockingQueue<Finding> queue;
+    private final List<AlertChannel> channels;
+    // Delivery time per channel, indexed like channels
+    private final List<Timer> deliveryTimers = new ArrayList<>();
+    private final Thread dispatcher;
+    // Fingerprints of findings already alerted, least recently seen first; null without deduplication
+    private final Set<Long> seen;
+    private final AtomicLong dropped = new AtomicLong();
+    private long duplicates;
+    private volatile boolean closed;
+
+    /**
+     * Creates a console-only alert service with default settings.
+     */
+    public AlertService() {
+        this(new ScanConfig());
+    }
+
     /**
-     * Print an alert to the console for a detected finding.
+     * Creates an alert service for the scan settings: console alerts always, and
+     * email digests when config.emailAddress is set.
+     * @param config Scan configuration.
+     */
+    public AlertService(ScanConfig config) {
+        this(config, true);
+    }
+
+    /**
+     * Creates an alert service for the scan settings, optionally without deduplication for callers
+     * that only send what is new to them, e.g. the directory watcher, which must alert again when
+     * a removed secret comes back.
+     * @param config      Scan configuration.
+     * @param deduplicate Whether findings already alerted are merged.
+     */
+    public AlertService(ScanConfig config, boolean deduplicate) {
+        this(config.alertQueueCapacity, defaultChannels(config), deduplicate ? config.alertDedupLimit : 0);
+    }
+
+    /**
+     * Creates an alert service with explicit channels and the default deduplication limit.
+     * @param capacity Maximum number of queued alerts; further alerts are dropped and counted.
+     * @param channels Channels that receive every deduplicated finding.
+     */
+    public AlertService(int capacity, List<AlertChannel> channels) {
+        this(capacity, channels, new ScanConfig().alertDedupLimit);
+    }
+
+    /**
+     * Creates an alert service with explicit channels.
+     * @param capacity   Maximum number of queued alerts; further alerts are dropped and counted.
+     * @param channels   Channels that receive every deduplicated finding.
+     * @param dedupLimit Number of alerted findings remembered for deduplication; 0 alerts every finding.
+     */
+    public AlertService(int capacity, List<AlertChannel> channels, int dedupLimit) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.seen = dedupLimit > 0 ? lruSet(dedupLimit) : null;
+        this.channels = new ArrayList<>(channels);
+        for (AlertChannel channel : channels) {
+            deliveryTimers.add(Metrics.timer("cloudcred_alert_delivery_seconds", "Time to deliver one batch of alerts",
+                    "channel", channel.getName()));
+        }
+        this.dispatcher = new Thread(this::run, "alert-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    // Set that forgets its least recently added or re-added element beyond limit
+    private static Set<Long> lruSet(int limit) {
+        return Collections.newSetFromMap(new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > limit;
+            }
+        });
+    }
+
+    private static List<AlertChannel> defaultChannels(ScanConfig config) {
+        List<AlertChannel> channels = new ArrayList<>();
+        channels.add(new ConsoleAlertChannel(config.alertConsoleRate));
+        if (config.emailAddress != null && !config.emailAddress.isEmpty()) {
+            channels.add(new EmailDigestChannel(config));
+        }
+        return channels;
+    }
+
+    /**
+     * Queues an alert for a detected finding without blocking.
      * @param finding The detected leak or secret.
      */
     public void sendAlert(Finding finding) {
-        System.out.println("⚠️ ALERT: " + finding);
+        if (closed || !queue.offer(finding)) {
+            dropped.incrementAndGet();
+            DROPPED.increment();
+        } else {
+            QUEUED.increment();
+        }
+    }
+
+    /**
+     * Delivers every queued alert, sends final digests and stops the dispatcher.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            queue.put(END);
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (duplicates > 0) {
+            System.out.println("ℹ️ " + duplicates + " duplicate alerts were merged");
+        }
+        if (dropped.get() > 0) {
+            System.out.println("⚠️ " + dropped.get() + " alerts were dropped because the alert queue was full (see the scan report)");
+        }
+    }
+
+    // Dispatcher loop: deduplicate, hand findings to channels and let them flush on every tick
+    private void run() {
+        List<Finding> batch = new ArrayList<>();
+        while (true) {
+            Finding first;
+            try {
+                first = queue.poll(TICK_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first != null) {
+                batch.add(first);
+                queue.drainTo(batch);
+            }
+
+            boolean end = false;
+            boolean delivered = !batch.isEmpty();
+            for (Finding finding : batch) {
+                if (finding == END) {
+                    end = true;
+                    continue;
+                }
+                if (seen != null && !seen.add(fingerprint(finding))) {
+                    duplicates++;
+                    DUPLICATES.increment();
+                    continue;
+                }
+                for (AlertChannel channel : channels) {
+                    channel.add(finding);
+                }
+            }
+            batch.clear();
+
+            flushChannels(end, delivered);
+            if (end) return;
+        }
+    }
+
+    // Lets every channel deliver; only ticks that had new findings are timed
+    private void flushChannels(boolean closing, boolean timed) {
+        for (int i = 0; i < channels.size(); i++) {
+            AlertChannel channel = channels.get(i);
+            long started = timed || closing ? Metrics.start() : 0;
+            try {
+                channel.flush(closing);
+            } catch (Exception e) {
+                System.err.println("Failed to deliver " + channel.getName() + " alerts: " + e.getMessage());
+            }
+            deliveryTimers.get(i).record(started);
+        }
+    }
+
+    /**
+     * Fingerprint of a finding: the same secret found by the same rule in the same file
+     * alerts once, even if it appears on several lines or is reported again. The hash of the
+     * unmasked secret is used, not the context around it, which differs from line to line;
+     * two secrets that share their first and last characters therefore stay apart. Findings
+     * without a secret hash (e.g. rebuilt from a merged report) fall back to the masked secret.
+     */
+    static long fingerprint(Finding finding) {
+        // 64-bit FNV-1a over rule, path and secret hash (or masked secret)
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv(hash, finding.getRuleId() != null ? finding.getRuleId() : finding.getSeverity().name());
+        hash = fnv(hash, finding.getFilePath());
+        hash = fnv(hash, finding.getSecretHash() != 0 ? Long.toHexString(finding.getSecretHash()) : finding.getMaskedSecret());
+        return hash;
+    }
+
+    private static long fnv(long hash, String value) {
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        // Field separator so ("ab", "c") and ("a", "bc") differ
+        hash ^= 0xff;
+        hash *= 0x100000001b3L;
+        return hash;
     }
 }
@@ -0,0 +1,55 @@
+package com.cloudcred.alert;
+
+import com.cloudcred.model.Finding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Prints alerts to the console, one block per dispatcher tick.
+ * Alerts above the rate limit are counted instead of printed and summarized on close;
+ * the scan report still lists every finding.
+ */
+public class ConsoleAlertChannel implements AlertChannel {
+    private final RateLimiter limiter;
+    private final List<Finding> pending = new ArrayList<>();
+    private long suppressed;
+
+    /**
+     * @param alertsPerSecond Maximum sustained number of printed alerts per second.
+     */
+    public ConsoleAlertChannel(int alertsPerSecond) {
+        this.limiter = new RateLimiter(alertsPerSecond, alertsPerSecond * 5.0);
+    }
+
+    @Override
+    public String getName() {
+        return "console";
+    }
+
+    @Override
+    public void add(Finding finding) {
+        pending.add(finding);
+    }
+
+    @Override
+    public void flush(boolean closing) {
+        if (!pending.isEmpty()) {
+            StringBuilder out = new StringBuilder();
+            for (Finding finding : pending) {
+                if (limiter.tryAcquire()) {
+                    out.append("⚠️ ALERT: ").append(finding).append('\n');
+                } else {
+                    suppressed++;
+                }
+            }
+            pending.clear();
+            System.out.print(out);
+        }
+        if (closing && suppressed > 0) {
+            System.out.println("⚠️ " + suppressed + " further alerts suppressed by the console rate limit (see the scan report)");
+            suppressed = 0;
+        }
+    }
+}
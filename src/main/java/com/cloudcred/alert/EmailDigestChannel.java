@@ -0,0 +1,114 @@
+package com.cloudcred.alert;
+
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.ScanConfig;
+import jakarta.mail.*;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+
+/**
+ * Collects alerts into periodic digest emails sent over SMTP with jakarta.mail.
+ * One email is sent per digest interval at most, and the number of emails per hour is capped;
+ * findings that arrive while the channel is held back simply go into the next digest.
+ * A digest lists at most MAX_LISTED findings and counts the rest.
+ */
+public class EmailDigestChannel implements AlertChannel {
+    // Findings listed individually in one digest
+    static final int MAX_LISTED = 500;
+
+    private final ScanConfig config;
+    private final Session session;
+    private final RateLimiter limiter;
+    private final long intervalMillis;
+
+    private final List<Finding> listed = new ArrayList<>();
+    private final long[] counts = new long[Severity.values().length];
+    private long total;
+    private long lastSent = System.currentTimeMillis();
+
+    /**
+     * @param config Scan configuration with the recipient and SMTP settings.
+     */
+    public EmailDigestChannel(ScanConfig config) {
+        this.config = config;
+        this.intervalMillis = Math.max(0, config.alertDigestIntervalSeconds) * 1000L;
+        this.limiter = new RateLimiter(config.alertEmailsPerHour / 3600.0, config.alertEmailsPerHour);
+
+        Properties props = new Properties();
+        props.put("mail.smtp.host", config.smtpHost);
+        props.put("mail.smtp.port", String.valueOf(config.smtpPort));
+        props.put("mail.smtp.connectiontimeout", "10000");
+        props.put("mail.smtp.timeout", "30000");
+        props.put("mail.smtp.starttls.enable", String.valueOf(config.smtpStartTls));
+        String password = System.getenv("CLOUDCRED_SMTP_PASSWORD");
+        if (config.smtpUsername != null && password != null) {
+            props.put("mail.smtp.auth", "true");
+            this.session = Session.getInstance(props, new Authenticator() {
+                @Override
+                protected PasswordAuthentication getPasswordAuthentication() {
+                    return new PasswordAuthentication(config.smtpUsername, password);
+                }
+            });
+        } else {
+            this.session = Session.getInstance(props);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "email";
+    }
+
+    @Override
+    public void add(Finding finding) {
+        counts[finding.getSeverity().ordinal()]++;
+        total++;
+        if (listed.size() < MAX_LISTED) listed.add(finding);
+    }
+
+    @Override
+    public void flush(boolean closing) throws MessagingException {
+        if (total == 0) return;
+        if (!closing && System.currentTimeMillis() - lastSent < intervalMillis) return;
+        // The final digest on close is always sent so no alert is lost
+        if (!limiter.tryAcquire() && !closing) return;
+        // A failed send is retried after another interval, with the findings still pending
+        lastSent = System.currentTimeMillis();
+
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(config.smtpFrom));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(config.emailAddress));
+        message.setSubject("CloudCred Shield: " + total + " new findings ("
+                + counts[Severity.HIGH.ordinal()] + " high, "
+                + counts[Severity.MEDIUM.ordinal()] + " medium, "
+                + counts[Severity.LOW.ordinal()] + " low)", "UTF-8");
+        message.setSentDate(new Date());
+        message.setText(body(), "UTF-8");
+        Transport.send(message);
+
+        listed.clear();
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    // Plain-text digest body
+    private String body() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("CloudCred Shield detected ").append(total).append(" new findings.\n\n");
+        for (Finding finding : listed) {
+            sb.append(finding).append("\n\n");
+        }
+        if (total > listed.size()) {
+            sb.append("... and ").append(total - listed.size()).append(" more; see the scan report for the full list.\n");
+        }
+        return sb.toString();
+    }
+}
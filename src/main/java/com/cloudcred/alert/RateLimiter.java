@@ -0,0 +1,38 @@
+package com.cloudcred.alert;
+
+
+/**
+ * Token bucket used to cap how often a channel delivers.
+ * Tokens refill continuously at the configured rate up to the burst size.
+ */
+public class RateLimiter {
+    private final double permitsPerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Creates a full bucket.
+     * @param permitsPerSecond Sustained rate.
+     * @param burst            Maximum number of permits available at once.
+     */
+    public RateLimiter(double permitsPerSecond, double burst) {
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000.0;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes one permit if available.
+     * @return true if the caller may deliver now.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+        if (tokens < 1) return false;
+        tokens -= 1;
+        return true;
+    }
+}
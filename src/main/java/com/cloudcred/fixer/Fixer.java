@@ -1,168 +1,300 @@
 
 package com.cloudcred.fixer;
 
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.metrics.Timer;
 import com.cloudcred.model.Finding;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import com.cloudcred.model.ScanConfig;
+import com.cloudcred.scanner.ArchiveScanner;
+import com.cloudcred.scanner.GitHistoryScanner;
+import com.cloudcred.scanner.S3ClientCache;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermission;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.*;
 
 // This class is responsible for helping the user remediate detected leaks.
-// It can redact, replace, or leave credentials as-is, based on user choice.
+// It can redact, replace, or leave credentials as-is, based on user choice or on a policy.
+// Local files are rewritten in a single streaming pass into a temporary sibling file that is
+// atomically renamed over the original, so a crash never leaves a truncated file behind.
+// S3 objects are streamed back through S3ObjectRewriter without touching local disk.
 public class Fixer {
+    private static final Timer REMEDIATION_PHASE = Metrics.timer("cloudcred_phase_seconds", "Wall time of each scan phase", "phase", "remediation");
+    private static final Timer LOCAL_REWRITE = Metrics.timer("cloudcred_remediation_seconds", "Time to rewrite one file or object", "target", "local");
+
+    // Placeholder written for RemediationAction.PLACEHOLDER
+    private static final String PLACEHOLDER = "REMOVED_CREDENTIAL";
+
+    private final ScanConfig config;
+    // Non-interactive policy, or null to prompt for every finding
+    private final RemediationPolicy policy;
+    // Shared stdin reader for interactive prompts
+    private Scanner scanner;
 
     /**
-     * Handles all findings by grouping them by file and prompting the user for remediation.
-     * @param findings List of detected leaks.
+     * Creates an interactive Fixer that prompts for every finding.
      */
-    public void handleFindings(List<Finding> findings) {
-        if (findings.isEmpty()) return;
+    public Fixer() {
+        this(new ScanConfig());
+    }
+
+    /**
+     * Creates a Fixer configured by the scan settings.
+     * When config.fixPolicy is set, findings are remediated without prompting.
+     * @param config Scan configuration.
+     */
+    public Fixer(ScanConfig config) {
+        this.config = config;
+        this.policy = config.fixPolicy == null ? null : RemediationPolicy.parse(config.fixPolicy);
+    }
 
-        // Group findings by file for easier processing
-        Map<String, List<Finding>> groupedByFile = new HashMap<>();
+    /**
+     * Handles all findings by grouping them by file and remediating each file.
+     * Actions are decided first (by policy or by prompting), then files are rewritten in parallel:
+     * local files on config.parallelism threads and S3 objects on config.s3Concurrency threads.
+     * @param findings Detected leaks, e.g. a List or a FindingStore.
+     */
+    public void handleFindings(Iterable<Finding> findings) {
+        // Group findings by file for easier processing, keeping scan order
+        Map<String, List<Finding>> groupedByFile = new LinkedHashMap<>();
         for (Finding finding : findings) {
             groupedByFile.computeIfAbsent(finding.getFilePath(), k -> new ArrayList<>()).add(finding);
         }
+        if (groupedByFile.isEmpty()) return;
 
-        // Remediate each file
+        // Decide every action up front so prompting never waits on I/O
+        Map<String, Map<Integer, RemediationAction>> plans = new LinkedHashMap<>();
         for (Map.Entry<String, List<Finding>> entry : groupedByFile.entrySet()) {
-            String filePath = entry.getKey();
-            List<Finding> fileFindings = entry.getValue();
+            if (entry.getKey().startsWith(GitHistoryScanner.PATH_PREFIX)) {
+                // Committed history cannot be edited in place; the secret has to be rotated
+                System.out.println("⚠️ Cannot fix findings in git history, skipping: " + entry.getKey());
+                continue;
+            }
+            if (entry.getKey().contains(ArchiveScanner.ENTRY_SEPARATOR)) {
+                // Archives are read-only to the scanner; the artifact has to be rebuilt instead
+                System.out.println("⚠️ Cannot fix findings inside an archive, skipping: " + entry.getKey());
+                continue;
+            }
+            Map<Integer, RemediationAction> actions = decide(entry.getKey(), entry.getValue());
+            if (actions.containsValue(RemediationAction.REDACT) || actions.containsValue(RemediationAction.PLACEHOLDER)) {
+                plans.put(entry.getKey(), actions);
+            }
+        }
+        if (plans.isEmpty()) return;
 
-            if (filePath.startsWith("s3://")) {
-                handleS3File(filePath, fileFindings);
-            } else {
-                handleLocalFile(filePath, fileFindings);
+        long started = Metrics.start();
+        ExecutorService localPool = null;
+        ExecutorService s3Pool = null;
+        // Created with the first S3 plan, so fixing local files never loads the AWS SDK
+        S3ClientCache clients = null;
+        S3ObjectRewriter rewriter = null;
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (Map.Entry<String, Map<Integer, RemediationAction>> plan : plans.entrySet()) {
+                String filePath = plan.getKey();
+                Map<Integer, RemediationAction> actions = plan.getValue();
+                if (filePath.startsWith("s3://")) {
+                    if (s3Pool == null) {
+                        s3Pool = Executors.newFixedThreadPool(Math.max(1, config.s3Concurrency));
+                        clients = new S3ClientCache(config);
+                        rewriter = new S3ObjectRewriter(clients);
+                    }
+                    S3ObjectRewriter s3 = rewriter;
+                    String eTag = groupedByFile.get(filePath).get(0).getSourceVersion();
+                    tasks.add(s3Pool.submit(() -> s3.rewrite(filePath, eTag, actions)));
+                } else {
+                    if (localPool == null) localPool = Executors.newFixedThreadPool(Math.max(1, config.parallelism));
+                    tasks.add(localPool.submit(() -> handleLocalFile(filePath, actions)));
+                }
             }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    System.out.println("❌ Remediation failed: " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (localPool != null) localPool.shutdownNow();
+            if (s3Pool != null) s3Pool.shutdownNow();
+            if (clients != null) clients.close();
+            REMEDIATION_PHASE.record(started);
         }
     }
 
     /**
-     * Handles remediation for local files.
-     * Prompts the user for each finding and updates the file accordingly.
+     * Decides the action for every line with findings in a file, by policy or by prompting the user.
+     * A line may hold several findings; it gets the strongest of their actions, and the user is
+     * asked once per line.
+     * @return Actions keyed by line number.
      */
-    private void handleLocalFile(String filePath, List<Finding> fileFindings) {
-        try {
-            List<String> originalLines = new ArrayList<>();
-            try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    originalLines.add(line);
+    private Map<Integer, RemediationAction> decide(String filePath, List<Finding> fileFindings) {
+        Map<Integer, List<Finding>> byLine = new LinkedHashMap<>();
+        for (Finding finding : fileFindings) {
+            byLine.computeIfAbsent(finding.getLineNumber(), k -> new ArrayList<>()).add(finding);
+        }
+        Map<Integer, RemediationAction> actions = new HashMap<>();
+        for (Map.Entry<Integer, List<Finding>> line : byLine.entrySet()) {
+            RemediationAction action;
+            if (policy != null) {
+                action = RemediationAction.LEAVE;
+                for (Finding finding : line.getValue()) {
+                    action = action.strongest(policy.actionFor(finding));
                 }
+            } else {
+                action = prompt(filePath, line.getKey(), line.getValue());
             }
+            actions.put(line.getKey(), action);
+        }
+        return actions;
+    }
 
-            String[] modifiedLines = new String[originalLines.size()];
-            System.arraycopy(originalLines.toArray(new String[0]), 0, modifiedLines, 0, originalLines.size());
-
-            Scanner scanner = new Scanner(System.in);
-
-            for (Finding finding : fileFindings) {
-                int idx = finding.getLineNumber() - 1;
-                System.out.println("\nFile: " + filePath);
-                System.out.println("Line " + finding.getLineNumber() + ": " + originalLines.get(idx));
-                System.out.println("Severity: " + finding.getSeverity());
-                System.out.println("Choose how to handle this finding:");
-                System.out.println("  1. Leave as is");
-                System.out.println("  2. Replace with REDACTED hash (SHA256)");
-                System.out.println("  3. Replace with placeholder (e.g., REMOVED_CREDENTIAL)");
-                System.out.print("Your choice (default 2): ");
-
-                String choice = scanner.nextLine().trim();
-                switch (choice) {
-                    case "1":
-                        // Leave the line as is
-                        break;
-                    case "3":
-                        // Replace with a generic placeholder
-                        modifiedLines[idx] = "REMOVED_CREDENTIAL";
-                        break;
-                    case "2":
-                    default:
-                        // Replace with a SHA256 hash for redaction
-                        modifiedLines[idx] = "[REDACTED_SHA256:" + sha256(originalLines.get(idx)) + "]";
-                        break;
-                }
+    // Asks the user how to handle one line and the findings on it
+    private RemediationAction prompt(String filePath, int lineNumber, List<Finding> lineFindings) {
+        if (scanner == null) scanner = new Scanner(System.in);
+
+        System.out.println("\nFile: " + filePath);
+        for (Finding finding : lineFindings) {
+            System.out.println("Line " + lineNumber + ": " + finding.getSuspiciousLine());
+            System.out.println("Severity: " + finding.getSeverity());
+        }
+        System.out.println(lineFindings.size() == 1 ? "Choose how to handle this finding:"
+                : "Choose how to handle these " + lineFindings.size() + " findings (the whole line is rewritten):");
+        System.out.println("  1. Leave as is");
+        System.out.println("  2. Replace with REDACTED hash (SHA256)");
+        System.out.println("  3. Replace with placeholder (e.g., REMOVED_CREDENTIAL)");
+        System.out.print("Your choice (default 2): ");
+
+        String choice = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+        switch (choice) {
+            case "1":
+                // Leave the line as is
+                return RemediationAction.LEAVE;
+            case "3":
+                // Replace with a generic placeholder
+                return RemediationAction.PLACEHOLDER;
+            case "2":
+            default:
+                // Replace with a SHA256 hash for redaction
+                return RemediationAction.REDACT;
+        }
+    }
+
+    /**
+     * Handles remediation for local files.
+     * Streams the file once into a temporary sibling, replacing the selected lines and keeping
+     * every other byte (including the original line endings) unchanged, then atomically
+     * renames the temporary file over the original.
+     */
+    private void handleLocalFile(String filePath, Map<Integer, RemediationAction> actions) {
+        Path target = Paths.get(filePath);
+        Path temp = null;
+        long started = Metrics.start();
+        try {
+            if (isUtf16(target)) {
+                System.out.println("❌ Skipping UTF-16 file (remediate manually): " + filePath);
+                return;
             }
 
-            // Write the modified lines back to the file
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-                for (String line : modifiedLines) {
-                    writer.write(line);
-                    writer.newLine();
-                }
+            Path dir = target.toAbsolutePath().getParent();
+            temp = Files.createTempFile(dir, "." + target.getFileName(), ".cloudcred.tmp");
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(target), 64 * 1024);
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                rewriteLines(in, out, actions);
             }
+            copyPermissions(target, temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
 
+            LOCAL_REWRITE.record(started);
             System.out.println("✅ File updated: " + filePath);
 
         } catch (IOException e) {
             System.out.println("❌ Error processing file: " + filePath + " - " + e.getMessage());
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
         }
     }
 
     /**
-     * Handles remediation for S3 files.
-     * Downloads, modifies, and uploads the file back to S3.
+     * Copies lines from in to out, replacing the lines that have a REDACT or PLACEHOLDER action.
+     * Line numbering follows BufferedReader.readLine() (\n, \r and \r\n), matching the scanners,
+     * and terminators are copied byte for byte.
      */
-    private void handleS3File(String s3Path, List<Finding> fileFindings) {
-        String bucket = s3Path.split("/")[2];
-        String key = s3Path.substring("s3://".length() + bucket.length() + 1);
-
-        try (S3Client s3 = S3Client.create()) {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(
-                    s3.getObject(r -> r.bucket(bucket).key(key)), StandardCharsets.UTF_8));
-
-            List<String> lines = new ArrayList<>();
-            String line;
-            while ((line = reader.readLine()) != null) lines.add(line);
-
-            String[] modifiedLines = new String[lines.size()];
-            System.arraycopy(lines.toArray(new String[0]), 0, modifiedLines, 0, lines.size());
-
-            Scanner scanner = new Scanner(System.in);
-            for (Finding finding : fileFindings) {
-                int idx = finding.getLineNumber() - 1;
-                System.out.println("\nFile: s3://" + bucket + "/" + key);
-                System.out.println("Line " + finding.getLineNumber() + ": " + lines.get(idx));
-                System.out.println("Severity: " + finding.getSeverity());
-                System.out.println("Choose how to handle this finding:");
-                System.out.println("  1. Leave as is");
-                System.out.println("  2. Replace with REDACTED hash (SHA256)");
-                System.out.println("  3. Replace with placeholder (e.g., REMOVED_CREDENTIAL)");
-                System.out.print("Your choice (default 2): ");
-
-                String choice = scanner.nextLine().trim();
-                switch (choice) {
-                    case "1":
-                        break;
-                    case "3":
-                        modifiedLines[idx] = "REMOVED_CREDENTIAL";
-                        break;
-                    case "2":
-                    default:
-                        modifiedLines[idx] = "[REDACTED_SHA256:" + sha256(lines.get(idx)) + "]";
-                        break;
+    static void rewriteLines(InputStream in, OutputStream out, Map<Integer, RemediationAction> actions) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        int lineNum = 0;
+        int b;
+        boolean pendingCr = false;
+        while ((b = in.read()) != -1) {
+            if (pendingCr) {
+                pendingCr = false;
+                if (b == '\n') {
+                    out.write('\n');
+                    continue;
                 }
             }
-
-            // Write the modified lines to a temp file and upload to S3
-            File tempFile = File.createTempFile("s3fix", null);
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile))) {
-                for (String l : modifiedLines) {
-                    writer.write(l);
-                    writer.newLine();
-                }
+            if (b == '\n' || b == '\r') {
+                writeLine(out, line, ++lineNum, actions);
+                out.write(b);
+                pendingCr = b == '\r';
+            } else {
+                line.write(b);
             }
+        }
+        if (line.size() > 0) {
+            writeLine(out, line, ++lineNum, actions);
+        }
+    }
+
+    // Writes one line (without terminator), applying its action, and clears the buffer
+    private static void writeLine(OutputStream out, ByteArrayOutputStream line, int lineNum,
+                                  Map<Integer, RemediationAction> actions) throws IOException {
+        RemediationAction action = actions.getOrDefault(lineNum, RemediationAction.LEAVE);
+        switch (action) {
+            case PLACEHOLDER:
+                out.write(PLACEHOLDER.getBytes(StandardCharsets.UTF_8));
+                break;
+            case REDACT:
+                String original = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                out.write(("[REDACTED_SHA256:" + sha256(original) + "]").getBytes(StandardCharsets.UTF_8));
+                break;
+            case LEAVE:
+            default:
+                line.writeTo(out);
+                break;
+        }
+        line.reset();
+    }
 
-            s3.putObject(PutObjectRequest.builder().bucket(bucket).key(key).build(), tempFile.toPath());
-            tempFile.delete();
-            System.out.println("✅ S3 file updated: s3://" + bucket + "/" + key);
+    // UTF-16 text cannot be rewritten byte-wise
+    private static boolean isUtf16(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            int b0 = in.read();
+            int b1 = in.read();
+            return (b0 == 0xFF && b1 == 0xFE) || (b0 == 0xFE && b1 == 0xFF);
+        }
+    }
 
-        } catch (IOException e) {
-            System.out.println("❌ Error fixing S3 file: " + s3Path + " - " + e.getMessage());
+    // Keeps the original file mode on POSIX file systems
+    private static void copyPermissions(Path from, Path to) {
+        try {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(from);
+            Files.setPosixFilePermissions(to, permissions);
+        } catch (UnsupportedOperationException | IOException ignored) {
+            // Not a POSIX file system; the temporary file keeps default permissions
         }
     }
 
@@ -170,7 +302,7 @@ public class Fixer {
      * Utility method to compute SHA256 hash of a string.
      * Used for redacting secrets.
      */
-    private String sha256(String input) {
+    static String sha256(String input) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] encodedHash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
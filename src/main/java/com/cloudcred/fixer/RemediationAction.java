@@ -0,0 +1,46 @@
+package com.cloudcred.fixer;
+
+
+// What to do with a line that contains a finding.
+public enum RemediationAction {
+    // Leave the line as is
+    LEAVE,
+    // Replace the line with its SHA-256 hash
+    REDACT,
+    // Replace the line with a generic placeholder
+    PLACEHOLDER;
+
+    /**
+     * Returns the stronger of two actions for the same line: REDACT over PLACEHOLDER over LEAVE.
+     * @param other Another action for the line.
+     * @return The action that removes more of the line.
+     */
+    public RemediationAction strongest(RemediationAction other) {
+        return strength() >= other.strength() ? this : other;
+    }
+
+    // Rank used by strongest()
+    private int strength() {
+        switch (this) {
+            case REDACT:
+                return 2;
+            case PLACEHOLDER:
+                return 1;
+            case LEAVE:
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Parses an action name; "hash" and "hash-redact" are accepted for REDACT.
+     * @param name Action name.
+     * @return The action.
+     * @throws IllegalArgumentException If the name is unknown.
+     */
+    public static RemediationAction parse(String name) {
+        String normalized = name.trim().toUpperCase().replace('-', '_');
+        if (normalized.equals("HASH") || normalized.equals("HASH_REDACT")) return REDACT;
+        return valueOf(normalized);
+    }
+}
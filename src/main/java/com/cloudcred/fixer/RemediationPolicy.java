@@ -0,0 +1,65 @@
+package com.cloudcred.fixer;
+
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * RemediationPolicy decides the action for each finding without prompting.
+ * A rule-specific action wins over a severity action, which wins over the default.
+ * Policies are written as comma-separated assignments, for example:
+ * "HIGH=redact,MEDIUM=placeholder,LOW=leave,generic-key-value=redact,default=leave".
+ */
+public class RemediationPolicy {
+    private final Map<Severity, RemediationAction> bySeverity = new EnumMap<>(Severity.class);
+    private final Map<String, RemediationAction> byRule = new HashMap<>();
+    private RemediationAction defaultAction = RemediationAction.LEAVE;
+
+    /**
+     * Parses a policy specification.
+     * Keys that name a severity set the action for that severity, "default" sets the
+     * fallback, and any other key is taken as a rule id.
+     * @param spec Policy specification.
+     * @return Parsed policy.
+     * @throws IllegalArgumentException If an entry is malformed or names an unknown action.
+     */
+    public static RemediationPolicy parse(String spec) {
+        RemediationPolicy policy = new RemediationPolicy();
+        for (String entry : spec.split(",")) {
+            if (entry.trim().isEmpty()) continue;
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid policy entry: " + entry.trim());
+            }
+            String key = parts[0].trim();
+            RemediationAction action = RemediationAction.parse(parts[1]);
+            if (key.equalsIgnoreCase("default")) {
+                policy.defaultAction = action;
+                continue;
+            }
+            try {
+                policy.bySeverity.put(Severity.valueOf(key.toUpperCase()), action);
+            } catch (IllegalArgumentException e) {
+                policy.byRule.put(key, action);
+            }
+        }
+        return policy;
+    }
+
+    /**
+     * Returns the action for a finding.
+     * @param finding The detected leak or secret.
+     * @return Action to apply.
+     */
+    public RemediationAction actionFor(Finding finding) {
+        if (finding.getRuleId() != null) {
+            RemediationAction action = byRule.get(finding.getRuleId());
+            if (action != null) return action;
+        }
+        return bySeverity.getOrDefault(finding.getSeverity(), defaultAction);
+    }
+}
@@ -0,0 +1,194 @@
+package com.cloudcred.fixer;
+
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.metrics.Timer;
+import com.cloudcred.scanner.S3ClientCache;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Rewrites S3 objects in a single streaming pass.
+ * The object is read with a GET pinned to the ETag seen by the scan and the rewritten bytes go
+ * straight into a multipart upload, one part buffer at a time, so neither the whole object nor
+ * a local temp file is ever needed. Objects that fit in one part are written with a single PUT.
+ * Content type, user metadata, storage class and encryption settings are carried over.
+ */
+class S3ObjectRewriter {
+    private static final Timer S3_REWRITE = Metrics.timer("cloudcred_remediation_seconds", "Time to rewrite one file or object", "target", "s3");
+
+    // Size of each uploaded part; S3 requires at least 5 MiB for every part but the last
+    static final int PART_SIZE = 8 * 1024 * 1024;
+
+    private final S3ClientCache clients;
+
+    S3ObjectRewriter(S3ClientCache clients) {
+        this.clients = clients;
+    }
+
+    /**
+     * Rewrites one object, applying the actions line by line.
+     * @param s3Path  Object path in s3://bucket/key form.
+     * @param eTag    ETag of the scanned version, or null to skip the change check.
+     * @param actions Actions keyed by line number.
+     */
+    void rewrite(String s3Path, String eTag, Map<Integer, RemediationAction> actions) {
+        String bucket = s3Path.split("/")[2];
+        String key = s3Path.substring("s3://".length() + bucket.length() + 1);
+        S3Client s3 = clients.forBucket(bucket);
+        long started = Metrics.start();
+
+        GetObjectRequest getRequest = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .ifMatch(eTag)
+                .build();
+
+        try (ResponseInputStream<GetObjectResponse> in = s3.getObject(getRequest)) {
+            GetObjectResponse source = in.response();
+            String version = eTag != null ? eTag : source.eTag();
+
+            try (MultipartUploadStream out = new MultipartUploadStream(s3, bucket, key, version, source)) {
+                Fixer.rewriteLines(new BufferedInputStream(in, 64 * 1024), out, actions);
+                out.complete();
+            }
+            S3_REWRITE.record(started);
+            System.out.println("✅ S3 file updated: " + s3Path);
+
+        } catch (S3Exception e) {
+            if (e.statusCode() == 412) {
+                System.out.println("❌ S3 object changed since the scan, skipping: " + s3Path);
+            } else {
+                System.out.println("❌ Error fixing S3 file: " + s3Path + " - " + e.getMessage());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("❌ Error fixing S3 file: " + s3Path + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * OutputStream that uploads its content as S3 multipart parts.
+     * Closing without complete() aborts any started upload, leaving the original object untouched.
+     */
+    private static class MultipartUploadStream extends OutputStream {
+        private final S3Client s3;
+        private final String bucket;
+        private final String key;
+        private final String eTag;
+        private final GetObjectResponse source;
+
+        private final byte[] buffer = new byte[PART_SIZE];
+        private int position;
+        private String uploadId;
+        private final List<CompletedPart> parts = new ArrayList<>();
+        private boolean completed;
+
+        MultipartUploadStream(S3Client s3, String bucket, String key, String eTag, GetObjectResponse source) {
+            this.s3 = s3;
+            this.bucket = bucket;
+            this.key = key;
+            this.eTag = eTag;
+            this.source = source;
+        }
+
+        @Override
+        public void write(int b) {
+            if (position == buffer.length) uploadPart();
+            buffer[position++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                if (position == buffer.length) uploadPart();
+                int n = Math.min(len, buffer.length - position);
+                System.arraycopy(b, off, buffer, position, n);
+                position += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        // Publishes the rewritten object
+        void complete() {
+            // S3 has no conditional write here, so re-check the version right before publishing
+            if (eTag != null) {
+                s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).ifMatch(eTag).build());
+            }
+
+            if (uploadId == null) {
+                PutObjectRequest.Builder put = PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType(source.contentType())
+                        .contentEncoding(source.contentEncoding())
+                        .contentDisposition(source.contentDisposition())
+                        .contentLanguage(source.contentLanguage())
+                        .cacheControl(source.cacheControl())
+                        .metadata(source.metadata())
+                        .storageClass(source.storageClassAsString())
+                        .serverSideEncryption(source.serverSideEncryptionAsString())
+                        .ssekmsKeyId(source.ssekmsKeyId());
+                s3.putObject(put.build(), RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, position), position));
+            } else {
+                if (position > 0) uploadPart();
+                s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                        .build());
+            }
+            completed = true;
+        }
+
+        @Override
+        public void close() {
+            if (uploadId != null && !completed) {
+                try {
+                    s3.abortMultipartUpload(r -> r.bucket(bucket).key(key).uploadId(uploadId));
+                } catch (RuntimeException e) {
+                    System.out.println("❌ Could not abort multipart upload for s3://" + bucket + "/" + key + " - " + e.getMessage());
+                }
+            }
+        }
+
+        // Uploads the buffered bytes as the next part, starting the upload on first use
+        private void uploadPart() {
+            if (uploadId == null) {
+                CreateMultipartUploadRequest.Builder create = CreateMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType(source.contentType())
+                        .contentEncoding(source.contentEncoding())
+                        .contentDisposition(source.contentDisposition())
+                        .contentLanguage(source.contentLanguage())
+                        .cacheControl(source.cacheControl())
+                        .metadata(source.metadata())
+                        .storageClass(source.storageClassAsString())
+                        .serverSideEncryption(source.serverSideEncryptionAsString())
+                        .ssekmsKeyId(source.ssekmsKeyId());
+                uploadId = s3.createMultipartUpload(create.build()).uploadId();
+            }
+
+            int partNumber = parts.size() + 1;
+            UploadPartResponse response = s3.uploadPart(UploadPartRequest.builder()
+                            .bucket(bucket)
+                            .key(key)
+                            .uploadId(uploadId)
+                            .partNumber(partNumber)
+                            .contentLength((long) position)
+                            .build(),
+                    RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, position), position));
+            parts.add(CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build());
+            position = 0;
+        }
+    }
+}
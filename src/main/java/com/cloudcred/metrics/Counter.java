@@ -0,0 +1,45 @@
+package com.cloudcred.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Monotonic counter (files scanned, bytes read, alerts dropped, ...).
+ */
+public class Counter extends Metric {
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name, String help, String[] labels) {
+        super(name, help, labels);
+    }
+
+    // Add one
+    public void increment() {
+        if (Metrics.isEnabled()) value.increment();
+    }
+
+    // Add n
+    public void add(long n) {
+        if (Metrics.isEnabled()) value.add(n);
+    }
+
+    // Get the current value
+    public long get() {
+        return value.sum();
+    }
+
+    @Override
+    String type() {
+        return "counter";
+    }
+
+    @Override
+    void writePrometheus(StringBuilder sb) {
+        sb.append(getName()).append(labels(null, null)).append(' ').append(get()).append('\n');
+    }
+
+    @Override
+    void writeJsonFields(StringBuilder sb) {
+        sb.append(",\"value\":").append(get());
+    }
+}
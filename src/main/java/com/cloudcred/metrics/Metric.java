@@ -0,0 +1,76 @@
+package com.cloudcred.metrics;
+
+import com.cloudcred.report.Json;
+
+
+/**
+ * Base class for a named metric with optional labels (name/value pairs).
+ */
+public abstract class Metric {
+    private final String name;
+    private final String help;
+    private final String[] labels;
+
+    Metric(String name, String help, String[] labels) {
+        if (labels.length % 2 != 0) throw new IllegalArgumentException("Labels must be name/value pairs");
+        this.name = name;
+        this.help = help;
+        this.labels = labels;
+    }
+
+    // Get the metric name (Prometheus style, e.g. cloudcred_files_scanned_total)
+    public String getName() {
+        return name;
+    }
+
+    // Get the help text
+    public String getHelp() {
+        return help;
+    }
+
+    // Prometheus type: counter or histogram
+    abstract String type();
+
+    // Appends the Prometheus sample lines (without HELP/TYPE)
+    abstract void writePrometheus(StringBuilder sb);
+
+    // Appends the JSON fields after name and labels
+    abstract void writeJsonFields(StringBuilder sb);
+
+    // Label set for a sample, with an optional extra label (e.g. le for histogram buckets)
+    String labels(String extraName, String extraValue) {
+        if (labels.length == 0 && extraName == null) return "";
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        if (extraName != null) {
+            if (labels.length > 0) sb.append(',');
+            sb.append(extraName).append("=\"").append(extraValue).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    void writeJson(StringBuilder sb) {
+        sb.append("{\"name\":");
+        Json.appendQuoted(sb, name);
+        sb.append(",\"type\":\"").append(type()).append('"');
+        if (labels.length > 0) {
+            sb.append(",\"labels\":{");
+            for (int i = 0; i < labels.length; i += 2) {
+                if (i > 0) sb.append(',');
+                Json.appendQuoted(sb, labels[i]);
+                sb.append(':');
+                Json.appendQuoted(sb, labels[i + 1]);
+            }
+            sb.append('}');
+        }
+        writeJsonFields(sb);
+        sb.append('}');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,49 @@
+package com.cloudcred.metrics;
+
+
+/**
+ * Process-wide access to the scan metrics.
+ * Instrumented classes hold their Counter and Timer instances in static fields and record
+ * unconditionally; while metrics are disabled (the default) recording is a single flag check,
+ * so the scan hot paths pay nothing unless --metrics= is given.
+ */
+public final class Metrics {
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+    private static volatile boolean enabled;
+
+    private Metrics() {
+    }
+
+    // Get the shared registry
+    public static MetricsRegistry registry() {
+        return REGISTRY;
+    }
+
+    // Turn recording on or off
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    // Whether metrics are being recorded
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start timestamp for Timer.record(), or 0 when metrics are disabled.
+     * @return System.nanoTime() or 0.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    // Shortcut for registry().counter(name, help, labels)
+    public static Counter counter(String name, String help, String... labels) {
+        return REGISTRY.counter(name, help, labels);
+    }
+
+    // Shortcut for registry().timer(name, help, labels)
+    public static Timer timer(String name, String help, String... labels) {
+        return REGISTRY.timer(name, help, labels);
+    }
+}
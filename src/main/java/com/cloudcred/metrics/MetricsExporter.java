@@ -0,0 +1,75 @@
+package com.cloudcred.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Writes the metrics to <prefix>.prom (Prometheus text format, e.g. for the node_exporter
+ * textfile collector) and <prefix>.json, periodically during the scan and once more on close.
+ * Files are replaced atomically, so readers never see a partial export.
+ */
+public class MetricsExporter implements AutoCloseable {
+    private final MetricsRegistry registry;
+    private final Path promPath;
+    private final Path jsonPath;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Enables metrics and starts periodic export.
+     * @param prefix          Output path prefix; ".prom" and ".json" are appended.
+     * @param intervalSeconds Seconds between exports during the scan (0 = only at the end).
+     */
+    public MetricsExporter(String prefix, int intervalSeconds) {
+        this.registry = Metrics.registry();
+        this.promPath = Paths.get(prefix + ".prom");
+        this.jsonPath = Paths.get(prefix + ".json");
+        Metrics.setEnabled(true);
+
+        if (intervalSeconds > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics-export");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleAtFixedRate(this::export, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Writes both files now.
+     */
+    public synchronized void export() {
+        try {
+            write(promPath, registry.toPrometheus());
+            write(jsonPath, registry.toJson());
+        } catch (IOException e) {
+            System.err.println("Failed to export metrics: " + e.getMessage());
+        }
+    }
+
+    // Stops periodic export and writes the final metrics
+    @Override
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+        export();
+        System.out.println("Metrics saved to: " + promPath + ", " + jsonPath);
+    }
+
+    private static void write(Path target, String content) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, "." + target.getFileName(), ".tmp");
+        try {
+            Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.cloudcred.metrics;
+
+import com.cloudcred.report.Json;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+
+/**
+ * Holds every metric by name and label, plus the slowest-files list, the rule costs and the
+ * sampled files.
+ * Metrics are created on first request and kept sorted so exports group samples by name.
+ */
+public class MetricsRegistry {
+    // Number of slowest files/objects kept
+    public static final int SLOWEST_LIMIT = 20;
+
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+    private final SlowestFiles slowest = new SlowestFiles(SLOWEST_LIMIT);
+    private final RuleCosts ruleCosts = new RuleCosts();
+    private final SampledFiles sampled = new SampledFiles();
+
+    /**
+     * Returns the counter with the given name and labels, creating it on first use.
+     * @param labels Label name/value pairs.
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) metrics.computeIfAbsent(key(name, labels), k -> new Counter(name, help, labels));
+    }
+
+    /**
+     * Returns the timer with the given name and labels, creating it on first use.
+     * @param labels Label name/value pairs.
+     */
+    public Timer timer(String name, String help, String... labels) {
+        return (Timer) metrics.computeIfAbsent(key(name, labels), k -> new Timer(name, help, labels));
+    }
+
+    // Sort key: name first, so all samples of one metric are adjacent
+    private static String key(String name, String[] labels) {
+        return labels.length == 0 ? name : name + " " + String.join(" ", labels);
+    }
+
+    // Get the slowest files and objects seen so far
+    public SlowestFiles slowest() {
+        return slowest;
+    }
+
+    // Get the matching cost of every rule
+    public RuleCosts ruleCosts() {
+        return ruleCosts;
+    }
+
+    // Get the files and objects of which only a sample was scanned
+    public SampledFiles sampled() {
+        return sampled;
+    }
+
+    /**
+     * Renders all metrics in the Prometheus text exposition format.
+     * @return Exposition text.
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        String current = null;
+        for (Metric metric : metrics.values()) {
+            if (!metric.getName().equals(current)) {
+                current = metric.getName();
+                sb.append("# HELP ").append(current).append(' ').append(metric.getHelp()).append('\n');
+                sb.append("# TYPE ").append(current).append(' ').append(metric.type()).append('\n');
+            }
+            metric.writePrometheus(sb);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Renders all metrics and the slowest files as one JSON object.
+     * @return JSON text.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("{\"timestamp\":").append(System.currentTimeMillis()).append(",\"metrics\":[");
+        boolean first = true;
+        for (Metric metric : metrics.values()) {
+            if (!first) sb.append(',');
+            first = false;
+            metric.writeJson(sb);
+        }
+        sb.append("],\"slowest\":[");
+        first = true;
+        for (SlowestFiles.Entry entry : slowest.snapshot()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append("{\"path\":");
+            Json.appendQuoted(sb, entry.getPath());
+            sb.append(",\"seconds\":").append(entry.getNanos() / 1e9)
+                    .append(",\"bytes\":").append(entry.getBytes()).append('}');
+        }
+        sb.append("]}\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package com.cloudcred.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Matching cost of every detection rule: how often it ran, how often it matched, the time spent
+ * and how many lines it gave up on because they exceeded the regex step budget.
+ * Unlike the other metrics this is recorded even without --metrics=, because the scan report
+ * lists the slowest rules.
+ */
+public class RuleCosts {
+
+    // Cost of one rule in one engine
+    public static class Entry {
+        private final String engine;
+        private final String rule;
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder overBudget = new LongAdder();
+
+        Entry(String engine, String rule) {
+            this.engine = engine;
+            this.rule = rule;
+        }
+
+        /**
+         * Records one evaluation of the rule on a line.
+         * @param elapsedNanos Time spent matching.
+         * @param hit          Whether the rule matched.
+         */
+        public void record(long elapsedNanos, boolean hit) {
+            evaluations.increment();
+            nanos.add(elapsedNanos);
+            if (hit) hits.increment();
+        }
+
+        // Count a line abandoned because matching exceeded the step budget
+        public void recordOverBudget() {
+            overBudget.increment();
+        }
+
+        public String getEngine() {
+            return engine;
+        }
+
+        public String getRule() {
+            return rule;
+        }
+
+        public long getEvaluations() {
+            return evaluations.sum();
+        }
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+        public long getOverBudget() {
+            return overBudget.sum();
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    RuleCosts() {
+    }
+
+    /**
+     * Returns the entry of a rule, creating it on first use.
+     * @param engine Engine name (e.g. file, s3).
+     * @param rule   Rule id.
+     */
+    public Entry entry(String engine, String rule) {
+        return entries.computeIfAbsent(engine + " " + rule, k -> new Entry(engine, rule));
+    }
+
+    /**
+     * Returns the rules that cost the most matching time, slowest first.
+     * Rules that exceeded the step budget are always included.
+     * @param limit Number of rules to return besides those over budget.
+     */
+    public List<Entry> slowest(int limit) {
+        List<Entry> ran = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.getEvaluations() > 0) ran.add(entry);
+        }
+        ran.sort(Comparator.comparingLong(Entry::getNanos).reversed());
+        List<Entry> result = new ArrayList<>();
+        for (int i = 0; i < ran.size(); i++) {
+            if (i < limit || ran.get(i).getOverBudget() > 0) result.add(ran.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package com.cloudcred.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Files and objects over the scan size limit of which only the beginning was scanned.
+ * Every one is counted; the first LISTED_LIMIT are kept for the report. Unlike the other
+ * registry contents this is recorded whether or not metrics are enabled, since a sampled
+ * file may hide findings past its sample and the report has to say so.
+ */
+public class SampledFiles {
+    // Number of sampled files kept for listing
+    public static final int LISTED_LIMIT = 100;
+
+    // One sampled file
+    public static class Entry {
+        private final String path;
+        private final long bytes;
+        private final long sampleBytes;
+
+        Entry(String path, long bytes, long sampleBytes) {
+            this.path = path;
+            this.bytes = bytes;
+            this.sampleBytes = sampleBytes;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getSampleBytes() {
+            return sampleBytes;
+        }
+    }
+
+    private final List<Entry> listed = new ArrayList<>();
+    private long count;
+
+    SampledFiles() {
+    }
+
+    /**
+     * Records a sampled file.
+     * @param path        File path or S3 URI.
+     * @param bytes       Size of the whole file.
+     * @param sampleBytes Number of leading bytes that were scanned.
+     */
+    public synchronized void record(String path, long bytes, long sampleBytes) {
+        count++;
+        if (listed.size() < LISTED_LIMIT) listed.add(new Entry(path, bytes, sampleBytes));
+    }
+
+    /**
+     * Counts sampled files that are not listed, e.g. those a shard counted beyond its listed ones.
+     * @param unlisted Number of files.
+     */
+    public synchronized void addUnlisted(long unlisted) {
+        count += unlisted;
+    }
+
+    // Get the number of sampled files, including those beyond the listed ones
+    public synchronized long count() {
+        return count;
+    }
+
+    /**
+     * Returns the listed entries in the order they were sampled.
+     */
+    public synchronized List<Entry> snapshot() {
+        return new ArrayList<>(listed);
+    }
+}
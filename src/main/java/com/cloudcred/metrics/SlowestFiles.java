@@ -0,0 +1,72 @@
+package com.cloudcred.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+
+/**
+ * Keeps the N slowest files or objects by scan time.
+ * Most files are faster than the current N-th slowest and are rejected without locking.
+ */
+public class SlowestFiles {
+
+    // One slow file
+    public static class Entry {
+        private final String path;
+        private final long nanos;
+        private final long bytes;
+
+        Entry(String path, long nanos, long bytes) {
+            this.path = path;
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    private final int limit;
+    // Min-heap: the fastest of the kept entries is evicted first
+    private final PriorityQueue<Entry> heap = new PriorityQueue<>(Comparator.comparingLong(Entry::getNanos));
+    private volatile long threshold;
+
+    SlowestFiles(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Offers a scanned file.
+     * @param path  File path or S3 URI.
+     * @param nanos Scan time in nanoseconds (0 when metrics are disabled).
+     * @param bytes File size.
+     */
+    public void record(String path, long nanos, long bytes) {
+        if (nanos <= threshold || !Metrics.isEnabled()) return;
+        synchronized (this) {
+            heap.add(new Entry(path, nanos, bytes));
+            if (heap.size() > limit) heap.poll();
+            if (heap.size() == limit) threshold = heap.peek().getNanos();
+        }
+    }
+
+    /**
+     * Returns the kept entries, slowest first.
+     */
+    public synchronized List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>(heap);
+        entries.sort(Comparator.comparingLong(Entry::getNanos).reversed());
+        return entries;
+    }
+}
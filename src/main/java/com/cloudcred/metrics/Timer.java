@@ -0,0 +1,104 @@
+package com.cloudcred.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Latency histogram with fixed buckets from 1 µs to 60 s.
+ * Recording is lock-free: one LongAdder per bucket plus count, sum and max.
+ */
+public class Timer extends Metric {
+    // Bucket upper bounds in nanoseconds
+    private static final long[] BOUNDS = {
+            1_000L, 5_000L, 10_000L, 50_000L, 100_000L, 500_000L,
+            1_000_000L, 5_000_000L, 10_000_000L, 50_000_000L, 100_000_000L, 500_000_000L,
+            1_000_000_000L, 5_000_000_000L, 10_000_000_000L, 60_000_000_000L
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    Timer(String name, String help, String[] labels) {
+        super(name, help, labels);
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    /**
+     * Records the time since a Metrics.start() timestamp; does nothing for 0.
+     * @param startNanos Value returned by Metrics.start().
+     * @return Elapsed nanoseconds, or 0 when metrics are disabled.
+     */
+    public long record(long startNanos) {
+        if (startNanos == 0) return 0;
+        long elapsed = System.nanoTime() - startNanos;
+        recordNanos(elapsed);
+        return elapsed;
+    }
+
+    /**
+     * Records a duration.
+     * @param nanos Duration in nanoseconds.
+     */
+    public void recordNanos(long nanos) {
+        if (!Metrics.isEnabled()) return;
+        int i = 0;
+        while (i < BOUNDS.length && nanos > BOUNDS[i]) i++;
+        buckets[i].increment();
+        count.increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    // Get the number of recorded durations
+    public long getCount() {
+        return count.sum();
+    }
+
+    // Get the total recorded time in seconds
+    public double getSumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    @Override
+    String type() {
+        return "histogram";
+    }
+
+    @Override
+    void writePrometheus(StringBuilder sb) {
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            cumulative += buckets[i].sum();
+            sb.append(getName()).append("_bucket").append(labels("le", seconds(BOUNDS[i])))
+                    .append(' ').append(cumulative).append('\n');
+        }
+        cumulative += buckets[BOUNDS.length].sum();
+        sb.append(getName()).append("_bucket").append(labels("le", "+Inf")).append(' ').append(cumulative).append('\n');
+        sb.append(getName()).append("_sum").append(labels(null, null)).append(' ').append(seconds(sumNanos.sum())).append('\n');
+        sb.append(getName()).append("_count").append(labels(null, null)).append(' ').append(cumulative).append('\n');
+    }
+
+    @Override
+    void writeJsonFields(StringBuilder sb) {
+        long n = count.sum();
+        sb.append(",\"count\":").append(n)
+                .append(",\"sumSeconds\":").append(seconds(sumNanos.sum()))
+                .append(",\"maxSeconds\":").append(seconds(maxNanos.get()))
+                .append(",\"meanSeconds\":").append(seconds(n == 0 ? 0 : sumNanos.sum() / n))
+                .append(",\"buckets\":[");
+        for (int i = 0; i <= BOUNDS.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"le\":").append(i < BOUNDS.length ? seconds(BOUNDS[i]) : "\"+Inf\"")
+                    .append(",\"count\":").append(buckets[i].sum()).append('}');
+        }
+        sb.append(']');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9g", nanos / 1e9).replaceAll("\\.?0+(e|$)", "$1");
+    }
+}
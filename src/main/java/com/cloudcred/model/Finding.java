@@ -1,21 +1,60 @@
 package com.cloudcred.model;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 
 // This class represents a single detected leak or suspicious credential in a file.
-// It stores the file path, line number, suspicious content, and severity level.
+// It stores the file path, line number, suspicious content, severity level, the rule that fired,
+// and for remote objects the version (S3 ETag) that was scanned.
+// Findings in structured config files (JSON, YAML, .properties, .ini, XML) also carry the key path
+// of the value, e.g. "db.credentials.password".
+// Findings produced by the scanners keep the offsets of the match and a short masked snippet
+// around it instead of the whole line (see snippet()), so very long lines do not stay on the heap.
+// They also keep a hash of the unmasked secret (see secretHash()), which tells apart secrets whose
+// masked forms are the same.
 public class Finding {
+    // Characters of context kept on each side of the secret in a snippet
+    public static final int SNIPPET_CONTEXT = 40;
+    // Characters of the secret left visible at each end; the rest is masked
+    private static final int VISIBLE_SECRET_CHARS = 4;
+    // Maximum number of mask characters, so long secrets do not make long snippets
+    private static final int MAX_MASK_LENGTH = 8;
+    // Replaces values in the context that could be secrets; nothing of them is kept, not even the length
+    private static final String CONTEXT_MASK = "****";
+    // Unassigned values in the context shorter than this are kept as they are
+    private static final int MIN_MASKED_LENGTH = 8;
+    // Characters that end a value, besides blanks
+    private static final String VALUE_DELIMITERS = "\"'`,;=:<>(){}[]";
 
     // Severity levels for a finding (HIGH, MEDIUM, LOW)
     public enum Severity {
         HIGH,
         MEDIUM,
-        LOW
+        LOW;
+
+        /**
+         * Whether this severity is as severe as the given one or more.
+         * Severities are declared from HIGH to LOW, so that is a smaller or equal ordinal.
+         * @param minimum Least severity that qualifies.
+         * @return true if this severity is at least the minimum.
+         */
+        public boolean atLeast(Severity minimum) {
+            return ordinal() <= minimum.ordinal();
+        }
     }
 
     private final String filePath;
     private final int lineNumber;
     private final String suspiciousLine;
     private final Severity severity;
+    private final String ruleId;
+    private final String sourceVersion;
+    private final int matchStart;
+    private final int matchEnd;
+    private final String keyPath;
+    private final long secretHash;
 
     /**
      * Constructs a Finding object.
@@ -25,10 +64,281 @@ public class Finding {
      * @param severity       Severity level of the finding.
      */
     public Finding(String filePath, int lineNumber, String suspiciousLine, Severity severity) {
+        this(filePath, lineNumber, suspiciousLine, severity, null);
+    }
+
+    /**
+     * Constructs a Finding object attributed to a detection rule.
+     * @param filePath       Path to the file containing the finding.
+     * @param lineNumber     Line number where the suspicious content was found.
+     * @param suspiciousLine The actual line content.
+     * @param severity       Severity level of the finding.
+     * @param ruleId         Identifier of the rule that produced the finding (may be null).
+     */
+    public Finding(String filePath, int lineNumber, String suspiciousLine, Severity severity, String ruleId) {
+        this(filePath, lineNumber, suspiciousLine, severity, ruleId, null);
+    }
+
+    /**
+     * Constructs a Finding object for a specific version of its source.
+     * @param filePath       Path to the file containing the finding.
+     * @param lineNumber     Line number where the suspicious content was found.
+     * @param suspiciousLine The actual line content.
+     * @param severity       Severity level of the finding.
+     * @param ruleId         Identifier of the rule that produced the finding (may be null).
+     * @param sourceVersion  Version of the scanned content, e.g. the S3 ETag (may be null).
+     */
+    public Finding(String filePath, int lineNumber, String suspiciousLine, Severity severity, String ruleId,
+                   String sourceVersion) {
+        this(filePath, lineNumber, suspiciousLine, -1, -1, severity, ruleId, sourceVersion);
+    }
+
+    /**
+     * Constructs a Finding object with the position of the match within its line.
+     * @param filePath       Path to the file containing the finding.
+     * @param lineNumber     Line number where the suspicious content was found.
+     * @param snippet        Masked excerpt of the line, usually built with snippet().
+     * @param matchStart     Start offset of the match in the original line (inclusive), or -1 if unknown.
+     * @param matchEnd       End offset of the match in the original line (exclusive), or -1 if unknown.
+     * @param severity       Severity level of the finding.
+     * @param ruleId         Identifier of the rule that produced the finding (may be null).
+     * @param sourceVersion  Version of the scanned content, e.g. the S3 ETag (may be null).
+     */
+    public Finding(String filePath, int lineNumber, String snippet, int matchStart, int matchEnd,
+                   Severity severity, String ruleId, String sourceVersion) {
+        this(filePath, lineNumber, snippet, matchStart, matchEnd, severity, ruleId, sourceVersion, null);
+    }
+
+    /**
+     * Constructs a Finding object for a value of a structured config file.
+     * @param filePath       Path to the file containing the finding.
+     * @param lineNumber     Line number where the suspicious content was found.
+     * @param snippet        Masked excerpt of the line, usually built with snippet().
+     * @param matchStart     Start offset of the match in the original line (inclusive), or -1 if unknown.
+     * @param matchEnd       End offset of the match in the original line (exclusive), or -1 if unknown.
+     * @param severity       Severity level of the finding.
+     * @param ruleId         Identifier of the rule that produced the finding (may be null).
+     * @param sourceVersion  Version of the scanned content, e.g. the S3 ETag (may be null).
+     * @param keyPath        Dotted path of the key whose value matched, e.g. "db.password" (may be null).
+     */
+    public Finding(String filePath, int lineNumber, String snippet, int matchStart, int matchEnd,
+                   Severity severity, String ruleId, String sourceVersion, String keyPath) {
+        this(filePath, lineNumber, snippet, matchStart, matchEnd, severity, ruleId, sourceVersion, keyPath, 0);
+    }
+
+    /**
+     * Constructs a Finding object with the hash of its secret.
+     * @param filePath       Path to the file containing the finding.
+     * @param lineNumber     Line number where the suspicious content was found.
+     * @param snippet        Masked excerpt of the line, usually built with snippet().
+     * @param matchStart     Start offset of the match in the original line (inclusive), or -1 if unknown.
+     * @param matchEnd       End offset of the match in the original line (exclusive), or -1 if unknown.
+     * @param severity       Severity level of the finding.
+     * @param ruleId         Identifier of the rule that produced the finding (may be null).
+     * @param sourceVersion  Version of the scanned content, e.g. the S3 ETag (may be null).
+     * @param keyPath        Dotted path of the key whose value matched, e.g. "db.password" (may be null).
+     * @param secretHash     Hash of the unmasked secret built with secretHash(), or 0 if unknown.
+     */
+    public Finding(String filePath, int lineNumber, String snippet, int matchStart, int matchEnd,
+                   Severity severity, String ruleId, String sourceVersion, String keyPath, long secretHash) {
         this.filePath = filePath;
         this.lineNumber = lineNumber;
-        this.suspiciousLine = suspiciousLine;
+        this.suspiciousLine = snippet;
+        this.matchStart = matchStart;
+        this.matchEnd = matchEnd;
         this.severity = severity;
+        this.ruleId = ruleId;
+        this.sourceVersion = sourceVersion;
+        this.keyPath = keyPath;
+        this.secretHash = secretHash;
+    }
+
+    /**
+     * Builds the bounded, masked excerpt stored for a match.
+     * The secret is the longest run of token characters inside the match, widened to the whole
+     * value it belongs to (up to the next blank, quote or delimiter), so a regex that stops short
+     * of the end of a value does not leave its tail visible. All but the first and last few
+     * characters of the secret are replaced with '*'. Up to SNIPPET_CONTEXT characters are kept on
+     * either side; the context is cut at value boundaries, cut ends are marked with "...", and
+     * surrounding whitespace is trimmed. Values in the context that could be other secrets (anything
+     * assigned with '=' or ':', and tokens mixing letters and digits) are replaced entirely by
+     * CONTEXT_MASK, so a second secret on the same line never appears in clear text.
+     * @param line  The full line.
+     * @param start Start offset of the match (inclusive).
+     * @param end   End offset of the match (exclusive).
+     * @return Snippet of at most about 2 * SNIPPET_CONTEXT + 16 characters.
+     */
+    public static String snippet(CharSequence line, int start, int end) {
+        start = Math.max(0, Math.min(start, line.length()));
+        end = Math.max(start, Math.min(end, line.length()));
+        int[] secret = secret(line, start, end);
+        int secretStart = secret[0];
+        int secretEnd = secret[1];
+
+        // Context ends fall on value boundaries, so no value is shown in part
+        int from = Math.max(0, secretStart - SNIPPET_CONTEXT);
+        int to = Math.min(line.length(), secretEnd + SNIPPET_CONTEXT);
+        while (from < secretStart && from > 0 && isValueChar(line.charAt(from - 1)) && isValueChar(line.charAt(from))) from++;
+        while (to > secretEnd && to < line.length() && isValueChar(line.charAt(to - 1)) && isValueChar(line.charAt(to))) to--;
+        while (from < secretStart && line.charAt(from) <= ' ') from++;
+        while (to > secretEnd && line.charAt(to - 1) <= ' ') to--;
+
+        StringBuilder sb = new StringBuilder(to - from + 2 * MAX_MASK_LENGTH);
+        if (from > 0 && from > firstNonBlank(line)) sb.append("...");
+        appendContext(sb, line, from, secretStart);
+        int length = secretEnd - secretStart;
+        int visible = Math.min(VISIBLE_SECRET_CHARS, length / 4);
+        sb.append(line, secretStart, secretStart + visible);
+        for (int i = 0; i < Math.min(length - 2 * visible, MAX_MASK_LENGTH); i++) sb.append('*');
+        sb.append(line, secretEnd - visible, secretEnd);
+        appendContext(sb, line, secretEnd, to);
+        if (to < line.length() && to < lastNonBlank(line)) sb.append("...");
+        return sb.toString();
+    }
+
+    /**
+     * Hashes the unmasked secret of a match, the same part of the line that snippet() masks.
+     * Two different secrets almost never share a hash, even if their masked forms are the same,
+     * and the hash does not reveal the secret. Only the first 64 bits of a SHA-256 are kept.
+     * @param line  The full line.
+     * @param start Start offset of the match (inclusive).
+     * @param end   End offset of the match (exclusive).
+     * @return Hash of the secret; never 0, which stands for an unknown secret.
+     */
+    public static long secretHash(CharSequence line, int start, int end) {
+        start = Math.max(0, Math.min(start, line.length()));
+        end = Math.max(start, Math.min(end, line.length()));
+        int[] secret = secret(line, start, end);
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(
+                    line.subSequence(secret[0], secret[1]).toString().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        long hash = 0;
+        for (int i = 0; i < 8; i++) hash = (hash << 8) | (digest[i] & 0xff);
+        return hash != 0 ? hash : 1;
+    }
+
+    // Offsets {start, end} of the secret of a match within its line
+    private static int[] secret(CharSequence line, int start, int end) {
+        // Locate the secret: the longest token run within the match, preferring assigned values to keys
+        int secretStart = start;
+        int secretEnd = start;
+        boolean secretAssigned = false;
+        for (int i = start; i < end; ) {
+            if (!isSecretChar(line.charAt(i))) {
+                i++;
+                continue;
+            }
+            int runStart = i;
+            while (i < end && isSecretChar(line.charAt(i))) i++;
+            boolean assigned = isAssigned(line, runStart);
+            if ((assigned && !secretAssigned) || (assigned == secretAssigned && i - runStart > secretEnd - secretStart)) {
+                secretStart = runStart;
+                secretEnd = i;
+                secretAssigned = assigned;
+            }
+        }
+        // ... and the rest of the value around it, including base64 padding
+        if (secretEnd > secretStart) {
+            while (secretStart > 0 && isValueChar(line.charAt(secretStart - 1))) secretStart--;
+            while (secretEnd < line.length() && isValueChar(line.charAt(secretEnd))) secretEnd++;
+            while (secretEnd < line.length() && line.charAt(secretEnd) == '=') secretEnd++;
+        }
+        return new int[]{secretStart, secretEnd};
+    }
+
+    // Copies line[from..to) into the snippet, replacing values that could be secrets with CONTEXT_MASK
+    private static void appendContext(StringBuilder sb, CharSequence line, int from, int to) {
+        int i = from;
+        while (i < to) {
+            if (!isValueChar(line.charAt(i))) {
+                sb.append(line.charAt(i++));
+                continue;
+            }
+            int runStart = i;
+            while (i < to && isValueChar(line.charAt(i))) i++;
+            if (mayBeSecret(line, runStart, i)) {
+                sb.append(CONTEXT_MASK);
+            } else {
+                sb.append(line, runStart, i);
+            }
+        }
+    }
+
+    // Whether a value in the context could be a secret: any assigned value, or a token with letters and digits
+    private static boolean mayBeSecret(CharSequence line, int start, int end) {
+        if (isAssigned(line, start)) return true;
+        if (end - start < MIN_MASKED_LENGTH) return false;
+        boolean letter = false;
+        boolean digit = false;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (Character.isLetter(c)) letter = true;
+            else if (Character.isDigit(c)) digit = true;
+            else if (c == '+' || c == '/') return true;
+        }
+        return letter && digit;
+    }
+
+    // Whether the value starting at offset start follows '=' or ':', possibly after blanks and a quote
+    private static boolean isAssigned(CharSequence line, int start) {
+        int before = start - 1;
+        while (before >= 0 && (line.charAt(before) <= ' ' || line.charAt(before) == '"' || line.charAt(before) == '\'')) before--;
+        return before >= 0 && (line.charAt(before) == '=' || line.charAt(before) == ':');
+    }
+
+    /**
+     * The masked secret of a snippet built by snippet(): its first part that contains mask
+     * characters and is not a masked context value. Findings of the same secret have the same
+     * masked secret wherever they occur, whatever the context around it.
+     * @return The masked secret, or the whole snippet if it contains none.
+     */
+    public String getMaskedSecret() {
+        String snippet = suspiciousLine;
+        String fallback = null;
+        for (int i = 0; i < snippet.length(); ) {
+            if (!isValueChar(snippet.charAt(i))) {
+                i++;
+                continue;
+            }
+            int runStart = i;
+            boolean masked = false;
+            while (i < snippet.length() && isValueChar(snippet.charAt(i))) {
+                if (snippet.charAt(i) == '*') masked = true;
+                i++;
+            }
+            if (!masked) continue;
+            String run = snippet.substring(runStart, i);
+            if (!run.equals(CONTEXT_MASK)) return run;
+            if (fallback == null) fallback = run;
+        }
+        return fallback != null ? fallback : snippet;
+    }
+
+    // Characters that make up keys and tokens, as in the [A-Za-z0-9/+=] classes of the rules
+    private static boolean isSecretChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+            || c == '/' || c == '+' || c == '-' || c == '_';
+    }
+
+    // Characters that can be part of a value: anything but blanks, quotes and delimiters
+    private static boolean isValueChar(char c) {
+        return c > ' ' && VALUE_DELIMITERS.indexOf(c) < 0;
+    }
+
+    private static int firstNonBlank(CharSequence line) {
+        int i = 0;
+        while (i < line.length() && line.charAt(i) <= ' ') i++;
+        return i;
+    }
+
+    private static int lastNonBlank(CharSequence line) {
+        int i = line.length();
+        while (i > 0 && line.charAt(i - 1) <= ' ') i--;
+        return i;
     }
 
     // Get the file path where the leak was found
@@ -41,19 +351,50 @@ public class Finding {
         return lineNumber;
     }
 
-    // Get the suspicious line content
+    // Get the suspicious content: the masked snippet for scanner findings
     public String getSuspiciousLine() {
         return suspiciousLine;
     }
 
+    // Get the start offset of the match in the original line, or -1 if unknown
+    public int getMatchStart() {
+        return matchStart;
+    }
+
+    // Get the end offset of the match in the original line, or -1 if unknown
+    public int getMatchEnd() {
+        return matchEnd;
+    }
+
     // Get the severity of the finding
     public Severity getSeverity() {
         return severity;
     }
 
+    // Get the identifier of the rule that produced the finding, or null if unknown
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    // Get the version of the scanned content (S3 ETag), or null for local files
+    public String getSourceVersion() {
+        return sourceVersion;
+    }
+
+    // Get the key path of the matched value in a structured file, or null
+    public String getKeyPath() {
+        return keyPath;
+    }
+
+    // Get the hash of the unmasked secret (see secretHash()), or 0 if unknown
+    public long getSecretHash() {
+        return secretHash;
+    }
+
     // String representation for reporting and alerts
     @Override
     public String toString() {
-        return "[" + severity + "] " + filePath + " (line " + lineNumber + "):\n" + suspiciousLine;
+        return "[" + severity + "] " + filePath + " (line " + lineNumber
+            + (keyPath != null ? ", key " + keyPath : "") + "):\n" + suspiciousLine;
     }
 }
@@ -0,0 +1,23 @@
+package com.cloudcred.model;
+
+
+// A push-based consumer of findings.
+// Scanners emit each finding into a sink as soon as it is produced instead of returning a full list.
+// FileScanner calls its sink from one thread at a time; S3FileScanner scans buckets in parallel,
+// so sinks passed to it must be thread-safe.
+@FunctionalInterface
+public interface FindingSink {
+
+    /**
+     * Receives one finding.
+     * @param finding The detected leak or secret.
+     */
+    void accept(Finding finding);
+
+    /**
+     * Signals that no more findings will be emitted.
+     * Sinks that buffer or own resources flush and release them here.
+     */
+    default void close() {
+    }
+}
@@ -34,24 +34,162 @@ public class ScanConfig {
 
     // Whether to overwrite the report file
     public boolean overwriteReport = true;
+    // Path of the scan report
+    public String reportPath = "scan_report.txt";
+    // Report format: text, jsonl or sarif
+    public String reportFormat = "text";
+    // Whether to gzip-compress the report (".gz" is appended to the path)
+    public boolean reportGzip = false;
     // Optional email address for alerts
     public String emailAddress = null;
 
+    // Maximum number of alerts waiting for delivery; further alerts are dropped (the report still has them)
+    public int alertQueueCapacity = 10000;
+    // Number of alerted findings remembered for deduplication; the least recently seen are forgotten first
+    public int alertDedupLimit = 100000;
+    // Maximum sustained number of console alerts per second
+    public int alertConsoleRate = 20;
+    // Minimum number of seconds between two alert digest emails
+    public int alertDigestIntervalSeconds = 300;
+    // Maximum number of alert digest emails per hour
+    public int alertEmailsPerHour = 12;
+    // SMTP server used for alert digests (password is read from CLOUDCRED_SMTP_PASSWORD)
+    public String smtpHost = "localhost";
+    public int smtpPort = 25;
+    public String smtpFrom = "cloudcred-shield@localhost";
+    public String smtpUsername = null;
+    public boolean smtpStartTls = false;
+
     // Optional prefix for S3 scanning
     public String s3Prefix = "";
 
     // List of S3 buckets to scan
     public List<String> s3Buckets = new ArrayList<>();
 
+    // Number of S3 objects downloaded and scanned concurrently
+    public int s3Concurrency = 16;
+    // Number of S3 buckets scanned in parallel
+    public int s3BucketParallelism = 4;
+    // Upper bound on the total size of S3 objects being downloaded/scanned at once
+    public long s3MaxInFlightBytes = 256L * 1024 * 1024;
+
+    // Optional path of the S3 object manifest; objects with an unchanged ETag are not downloaded again.
+    // A sharded run keeps its own manifest at <path>.shard-<i>-of-<N>
+    public String s3ManifestPath = null;
+    // Optional S3 endpoint override (e.g. a local S3-compatible server)
+    public String s3Endpoint = null;
+
+    // Number of worker threads for local scanning (1 = sequential single-threaded walk)
+    public int parallelism = Runtime.getRuntime().availableProcessors();
+
+    // Scan local files on their raw bytes (memory-mapped / reusable buffers) instead of a Reader
+    public boolean memoryMappedScan = false;
+
+    // Classify content from its first block before scanning: binary and compressed content is skipped
+    public boolean contentTriage = true;
+    // Files and objects larger than this are sampled (or skipped when sampleBytes is 0)
+    public long maxScanBytes = 256L * 1024 * 1024;
+    // Leading bytes scanned of an oversized file or object (0 = skip oversized content)
+    public long sampleBytes = 16L * 1024 * 1024;
+
+    // Parse JSON, YAML, .properties/.env, .ini and XML files by format: secrets are looked up by key
+    // path instead of with the line-based key/value heuristic, and findings carry the key path.
+    // Off by default since it costs more than the line-based check; --structured turns it on
+    public boolean structuredScan = false;
+
+    // Scan inside zip/jar/war/ear and tar/tar.gz archives; entries are streamed, never extracted
+    public boolean scanArchives = false;
+    // Limits per top-level archive, guarding against zip bombs: nesting depth, number of entries
+    // and decompressed bytes across all nesting levels
+    public int archiveMaxDepth = 3;
+    public int archiveMaxEntries = 100000;
+    public long archiveMaxBytes = 2L * 1024 * 1024 * 1024;
+
+    // Watch config.path continuously and alert on new findings instead of scanning once
+    public boolean watch = false;
+    // Quiet time in milliseconds before a changed file is rescanned in watch mode
+    public int watchDebounceMillis = 250;
+
+    // Run the local HTTP scan server instead of scanning once
+    public boolean serve = false;
+    // Address and port of the scan server (loopback only by default)
+    public String serverHost = "127.0.0.1";
+    public int serverPort = 8765;
+    // Request threads of the scan server when the JVM has no virtual threads
+    public int serverThreads = Runtime.getRuntime().availableProcessors();
+
+    // Local git repositories whose commit history is scanned
+    public List<String> gitRepositories = new ArrayList<>();
+    // Scan the whole history instead of only the commits added since the last run
+    public boolean gitFullHistory = false;
+
+    // Distributed scanning: this process scans shard shardIndex (0-based) of shardCount, chosen by
+    // a stable hash of each file's relative path or each object's bucket and key (0 = not sharded)
+    public int shardIndex = 0;
+    public int shardCount = 0;
+    // Partial result file written by a shard (default scan_shard_<i>_of_<N>.jsonl)
+    public String shardOutput = null;
+    // Partial result files to merge into one report instead of scanning
+    public List<String> mergeInputs = new ArrayList<>();
+    // Whether non-interactive runs (shards) scan config.path; S3 and git history are selected by their own flags
+    public boolean scanLocal = true;
+
+    // Number of findings kept in memory for remediation before the rest are spilled to a temporary file
+    public int findingsInMemory = 100000;
+
+    // Optional path of the incremental scan index; unchanged files are answered from it.
+    // A sharded run keeps its own index at <path>.shard-<i>-of-<N>
+    public String indexPath = null;
+
+    // High-entropy token detection (LOW severity): tokens of entropyMinLength..entropyMaxLength
+    // characters are flagged when their Shannon entropy, in bits per character, reaches the
+    // threshold for their charset. An n-character token has at most log2(n) bits per character,
+    // so for short tokens the threshold is lowered to what their length allows (see EntropyDetector)
+    public int entropyMinLength = 20;
+    public int entropyMaxLength = 256;
+    public double entropyHexThreshold = 3.0;
+    public double entropyBase64Threshold = 4.5;
+    public double entropyAlphanumericThreshold = 4.2;
+    // Whether hex tokens with digest lengths (MD5, SHA-1 / git object ids, SHA-256) are flagged too
+    public boolean entropyFlagDigests = false;
+
+    // Optional metrics output prefix; <prefix>.prom and <prefix>.json are written during and after the scan
+    public String metricsPath = null;
+    // Seconds between metrics exports during the scan (0 = only at the end)
+    public int metricsIntervalSeconds = 30;
+
+    // Rule packs (JSON Lines files, see RulePack) whose rules are added to the built-in ones
+    public List<String> rulePacks = new ArrayList<>();
+    // Regex step budget per character of a line; a rule needing more on a line is abandoned for that line
+    public int ruleStepsPerChar = 200;
+
+    // Optional remediation policy (e.g. "HIGH=redact,MEDIUM=placeholder,default=leave");
+    // when set, findings are fixed without prompting
+    public String fixPolicy = null;
+
+    // Unknown options and invalid values found by fromArgs; a run without prompts refuses to start with any
+    public List<String> argumentErrors = new ArrayList<>();
+
     /**
      * Legacy support for command-line args (optional if using interactive mode)
-     * Allows configuration via command-line arguments.
+     * Allows configuration via command-line arguments. A trailing argument without "--" is taken
+     * as the path. Unknown options and invalid values are collected in argumentErrors instead of
+     * being ignored; the affected settings keep their defaults.
      */
     public static ScanConfig fromArgs(String[] args) {
         ScanConfig config = new ScanConfig();
 
-        for (String arg : args) {
-            if (arg.startsWith("--path=")) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                if (i == args.length - 1) {
+                    config.path = arg;
+                } else {
+                    config.argumentErrors.add("Unexpected argument '" + arg + "'. Only the last argument may be the path to scan.");
+                }
+            } else if (arg.equals("--interactive")) {
+                // Handled by Cli
+            } else if (arg.startsWith("--path=")) {
                 config.path = arg.substring("--path=".length());
             } else if (arg.startsWith("--min-severity=")) {
                 try {
@@ -59,7 +197,7 @@ public class ScanConfig {
                             arg.substring("--min-severity=".length()).toUpperCase()
                     );
                 } catch (IllegalArgumentException e) {
-                    System.out.println("Invalid severity level. Using default: LOW");
+                    config.argumentErrors.add("Invalid severity level in '" + arg + "'. Expected LOW, MEDIUM or HIGH.");
                 }
             } else if (arg.startsWith("--ext=")) {
                 String[] exts = arg.substring("--ext=".length()).split(",");
@@ -75,15 +213,185 @@ public class ScanConfig {
                 }
             } else if (arg.equals("--no-overwrite-report")) {
                 config.overwriteReport = false;
+            } else if (arg.startsWith("--report=")) {
+                config.reportPath = arg.substring("--report=".length()).trim();
+            } else if (arg.startsWith("--report-format=")) {
+                config.reportFormat = arg.substring("--report-format=".length()).trim().toLowerCase();
+            } else if (arg.equals("--gzip-report")) {
+                config.reportGzip = true;
             } else if (arg.startsWith("--email=")) {
                 config.emailAddress = arg.substring("--email=".length()).trim();
+            } else if (arg.startsWith("--alert-queue=")) {
+                config.alertQueueCapacity = parsePositiveInt(config, arg, config.alertQueueCapacity);
+            } else if (arg.startsWith("--alert-dedup-limit=")) {
+                config.alertDedupLimit = parsePositiveInt(config, arg, config.alertDedupLimit);
+            } else if (arg.startsWith("--alert-console-rate=")) {
+                config.alertConsoleRate = parsePositiveInt(config, arg, config.alertConsoleRate);
+            } else if (arg.startsWith("--alert-digest-interval=")) {
+                config.alertDigestIntervalSeconds = parsePositiveInt(config, arg, config.alertDigestIntervalSeconds);
+            } else if (arg.startsWith("--alert-emails-per-hour=")) {
+                config.alertEmailsPerHour = parsePositiveInt(config, arg, config.alertEmailsPerHour);
+            } else if (arg.startsWith("--smtp-host=")) {
+                config.smtpHost = arg.substring("--smtp-host=".length()).trim();
+            } else if (arg.startsWith("--smtp-port=")) {
+                config.smtpPort = parsePositiveInt(config, arg, config.smtpPort);
+            } else if (arg.startsWith("--smtp-from=")) {
+                config.smtpFrom = arg.substring("--smtp-from=".length()).trim();
+            } else if (arg.startsWith("--smtp-user=")) {
+                config.smtpUsername = arg.substring("--smtp-user=".length()).trim();
+            } else if (arg.equals("--smtp-starttls")) {
+                config.smtpStartTls = true;
             } else if (arg.startsWith("--s3-bucket=")) {
                 config.s3Buckets.add(arg.substring("--s3-bucket=".length()).trim());
             } else if (arg.startsWith("--s3-prefix=")) {
                 config.s3Prefix = arg.substring("--s3-prefix=".length()).trim();
+            } else if (arg.startsWith("--s3-concurrency=")) {
+                config.s3Concurrency = parsePositiveInt(config, arg, config.s3Concurrency);
+            } else if (arg.startsWith("--s3-bucket-parallelism=")) {
+                config.s3BucketParallelism = parsePositiveInt(config, arg, config.s3BucketParallelism);
+            } else if (arg.startsWith("--s3-max-inflight-bytes=")) {
+                config.s3MaxInFlightBytes = parseLong(config, arg, 1, config.s3MaxInFlightBytes);
+            } else if (arg.startsWith("--s3-manifest=")) {
+                config.s3ManifestPath = arg.substring("--s3-manifest=".length()).trim();
+            } else if (arg.startsWith("--s3-endpoint=")) {
+                config.s3Endpoint = arg.substring("--s3-endpoint=".length()).trim();
+            } else if (arg.startsWith("--shard=")) {
+                parseShard(config, arg.substring("--shard=".length()));
+            } else if (arg.startsWith("--shard-output=")) {
+                config.shardOutput = arg.substring("--shard-output=".length()).trim();
+            } else if (arg.startsWith("--merge=")) {
+                for (String input : arg.substring("--merge=".length()).split(",")) {
+                    if (!input.trim().isEmpty()) config.mergeInputs.add(input.trim());
+                }
+            } else if (arg.equals("--no-local")) {
+                config.scanLocal = false;
+            } else if (arg.startsWith("--findings-in-memory=")) {
+                config.findingsInMemory = parsePositiveInt(config, arg, config.findingsInMemory);
+            } else if (arg.startsWith("--index=")) {
+                config.indexPath = arg.substring("--index=".length()).trim();
+            } else if (arg.equals("--watch")) {
+                config.watch = true;
+            } else if (arg.startsWith("--watch-debounce=")) {
+                config.watchDebounceMillis = parsePositiveInt(config, arg, config.watchDebounceMillis);
+            } else if (arg.equals("--serve")) {
+                config.serve = true;
+            } else if (arg.startsWith("--server-host=")) {
+                config.serverHost = arg.substring("--server-host=".length()).trim();
+            } else if (arg.startsWith("--server-port=")) {
+                config.serverPort = parsePositiveInt(config, arg, config.serverPort);
+            } else if (arg.startsWith("--server-threads=")) {
+                config.serverThreads = parsePositiveInt(config, arg, config.serverThreads);
+            } else if (arg.startsWith("--git-history=")) {
+                config.gitRepositories.add(arg.substring("--git-history=".length()).trim());
+            } else if (arg.equals("--git-full-history")) {
+                config.gitFullHistory = true;
+            } else if (arg.equals("--no-triage")) {
+                config.contentTriage = false;
+            } else if (arg.equals("--structured")) {
+                config.structuredScan = true;
+            } else if (arg.equals("--no-structured")) {
+                config.structuredScan = false;
+            } else if (arg.startsWith("--max-scan-bytes=")) {
+                config.maxScanBytes = parseLong(config, arg, 1, config.maxScanBytes);
+            } else if (arg.startsWith("--sample-bytes=")) {
+                config.sampleBytes = parseLong(config, arg, 0, config.sampleBytes);
+            } else if (arg.equals("--archives")) {
+                config.scanArchives = true;
+            } else if (arg.startsWith("--archive-max-depth=")) {
+                config.archiveMaxDepth = parsePositiveInt(config, arg, config.archiveMaxDepth);
+            } else if (arg.startsWith("--archive-max-entries=")) {
+                config.archiveMaxEntries = parsePositiveInt(config, arg, config.archiveMaxEntries);
+            } else if (arg.startsWith("--archive-max-bytes=")) {
+                config.archiveMaxBytes = parseLong(config, arg, 1, config.archiveMaxBytes);
+            } else if (arg.equals("--mmap")) {
+                config.memoryMappedScan = true;
+            } else if (arg.startsWith("--entropy-min-length=")) {
+                config.entropyMinLength = parsePositiveInt(config, arg, config.entropyMinLength);
+            } else if (arg.startsWith("--entropy-max-length=")) {
+                config.entropyMaxLength = parsePositiveInt(config, arg, config.entropyMaxLength);
+            } else if (arg.startsWith("--entropy-hex=")) {
+                config.entropyHexThreshold = parseThreshold(config, arg, config.entropyHexThreshold);
+            } else if (arg.startsWith("--entropy-base64=")) {
+                config.entropyBase64Threshold = parseThreshold(config, arg, config.entropyBase64Threshold);
+            } else if (arg.startsWith("--entropy-alnum=")) {
+                config.entropyAlphanumericThreshold = parseThreshold(config, arg, config.entropyAlphanumericThreshold);
+            } else if (arg.equals("--entropy-flag-digests")) {
+                config.entropyFlagDigests = true;
+            } else if (arg.startsWith("--metrics=")) {
+                config.metricsPath = arg.substring("--metrics=".length()).trim();
+            } else if (arg.startsWith("--metrics-interval=")) {
+                config.metricsIntervalSeconds = (int) Math.min(Integer.MAX_VALUE, parseLong(config, arg, 0, config.metricsIntervalSeconds));
+            } else if (arg.startsWith("--rules=")) {
+                for (String pack : arg.substring("--rules=".length()).split(",")) {
+                    if (!pack.trim().isEmpty()) config.rulePacks.add(pack.trim());
+                }
+            } else if (arg.startsWith("--rule-step-budget=")) {
+                config.ruleStepsPerChar = parsePositiveInt(config, arg, config.ruleStepsPerChar);
+            } else if (arg.startsWith("--fix-policy=")) {
+                config.fixPolicy = arg.substring("--fix-policy=".length()).trim();
+            } else if (arg.startsWith("--parallelism=")) {
+                config.parallelism = parsePositiveInt(config, arg, config.parallelism);
+            } else {
+                config.argumentErrors.add("Unknown option '" + arg + "'.");
             }
         }
 
         return config;
     }
+
+    // Parses a positive integer option "--name=value", recording an error and keeping the default on bad input
+    private static int parsePositiveInt(ScanConfig config, String arg, int defaultValue) {
+        return (int) Math.min(Integer.MAX_VALUE, parseLong(config, arg, 1, defaultValue));
+    }
+
+    // Parses a whole-number option "--name=value" of at least minimum, recording an error and keeping
+    // the default on bad input
+    private static long parseLong(ScanConfig config, String arg, long minimum, long defaultValue) {
+        String value = optionValue(arg);
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed >= minimum) return parsed;
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        config.argumentErrors.add("Invalid number in '" + arg + "'. Expected a whole number of at least " + minimum + ".");
+        return defaultValue;
+    }
+
+    // Parses a 1-based shard spec "i/N" into shardIndex and shardCount, recording an error on bad input
+    private static void parseShard(ScanConfig config, String value) {
+        String[] parts = value.trim().split("/");
+        try {
+            if (parts.length == 2) {
+                int index = Integer.parseInt(parts[0].trim());
+                int count = Integer.parseInt(parts[1].trim());
+                if (count >= 1 && index >= 1 && index <= count) {
+                    config.shardIndex = index - 1;
+                    config.shardCount = count;
+                    return;
+                }
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        config.argumentErrors.add("Invalid shard '" + value + "'. Expected i/N with 1 <= i <= N.");
+    }
+
+    // Parses an entropy threshold "--name=bits" in bits per character, recording an error and keeping
+    // the default on bad input
+    private static double parseThreshold(ScanConfig config, String arg, double defaultValue) {
+        try {
+            double threshold = Double.parseDouble(optionValue(arg).trim());
+            if (threshold > 0 && threshold <= 8) return threshold;
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        config.argumentErrors.add("Invalid entropy threshold in '" + arg + "'. Expected bits per character in (0, 8].");
+        return defaultValue;
+    }
+
+    // The part of "--name=value" after the first '='
+    private static String optionValue(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
 }
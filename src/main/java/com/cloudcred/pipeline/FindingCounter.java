@@ -0,0 +1,32 @@
+package com.cloudcred.pipeline;
+
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.FindingSink;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+// Pipeline stage that counts findings per severity without keeping them.
+public class FindingCounter implements FindingSink {
+    private final AtomicLongArray counts = new AtomicLongArray(Severity.values().length);
+
+    @Override
+    public void accept(Finding finding) {
+        counts.incrementAndGet(finding.getSeverity().ordinal());
+    }
+
+    // Get the number of findings with the given severity
+    public long count(Severity severity) {
+        return counts.get(severity.ordinal());
+    }
+
+    // Get the total number of findings
+    public long total() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+}
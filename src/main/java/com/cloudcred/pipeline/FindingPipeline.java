@@ -0,0 +1,141 @@
+package com.cloudcred.pipeline;
+
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.FindingSink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * FindingPipeline fans findings out to a list of stages (alerting, reporting, counting, ...)
+ * on a dedicated thread. Scanners push into a bounded queue; when the stages fall behind,
+ * accept() blocks, so slow consumers apply backpressure to the scan instead of letting
+ * findings pile up in memory. Stages see findings in the order they were accepted and are
+ * only ever called from the pipeline thread, so they need not be thread-safe themselves.
+ */
+public class FindingPipeline implements FindingSink {
+    // Default number of findings that may wait between scanners and stages
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // Marker that tells the worker to stop
+    private static final Finding END = new Finding("", 0, "", Finding.Severity.LOW);
+
+    private final BlockingQueue<Finding> queue;
+    private final List<FindingSink> stages;
+    private final Thread worker;
+
+    // Findings accepted, findings delivered to every stage and accept() calls still queuing, guarded by this
+    private long accepted;
+    private long delivered;
+    private int queuing;
+    private boolean closed;
+
+    /**
+     * Creates and starts a pipeline.
+     * @param capacity Maximum number of queued findings before accept() blocks.
+     * @param stages   Stages that receive every finding, in order.
+     */
+    public FindingPipeline(int capacity, List<FindingSink> stages) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.stages = new ArrayList<>(stages);
+        this.worker = new Thread(this::run, "finding-pipeline");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues a finding for the stages, blocking while the queue is full.
+     * @param finding The detected leak or secret.
+     */
+    @Override
+    public void accept(Finding finding) {
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("Pipeline is closed");
+            accepted++;
+            queuing++;
+        }
+        boolean queued = false;
+        try {
+            queue.put(finding);
+            queued = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queuing finding", e);
+        } finally {
+            synchronized (this) {
+                // A finding that never made it into the queue will not be delivered
+                if (!queued) accepted--;
+                queuing--;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until every finding accepted so far has been delivered to all stages.
+     */
+    public synchronized void awaitDrained() {
+        while (delivered < accepted) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drains the queue, stops the pipeline thread and closes every stage.
+     * Findings that concurrent accept() calls are still queuing go in before the end marker.
+     */
+    @Override
+    public void close() {
+        try {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+                while (queuing > 0) wait();
+            }
+            queue.put(END);
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (FindingSink stage : stages) {
+            try {
+                stage.close();
+            } catch (RuntimeException e) {
+                System.err.println("Pipeline stage failed to close: " + e.getMessage());
+            }
+        }
+    }
+
+    // Worker loop: deliver each finding to every stage in order
+    private void run() {
+        while (true) {
+            Finding finding;
+            try {
+                finding = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (finding == END) return;
+
+            for (FindingSink stage : stages) {
+                try {
+                    stage.accept(finding);
+                } catch (RuntimeException e) {
+                    System.err.println("Pipeline stage failed: " + e.getMessage());
+                }
+            }
+            synchronized (this) {
+                delivered++;
+                notifyAll();
+            }
+        }
+    }
+}
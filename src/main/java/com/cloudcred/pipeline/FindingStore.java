@@ -0,0 +1,267 @@
+package com.cloudcred.pipeline;
+
+import com.cloudcred.metrics.Counter;
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.FindingSink;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+
+/**
+ * FindingStore keeps every finding of a scan in a compact, columnar form.
+ * Paths, rule ids, versions and key paths are dictionary-encoded, so thousands of findings in one file share
+ * a single path string; the other fields live in primitive arrays and the snippets in one shared
+ * character buffer. Once more than the configured number of findings is held, the buffered
+ * findings are spilled to a temporary file, so memory stays bounded however many findings a scan
+ * produces. Iteration returns findings in the order they were accepted, spilled ones first.
+ * The store is not thread-safe; use it as a FindingPipeline stage.
+ */
+public class FindingStore implements FindingSink, Iterable<Finding> {
+    private static final Counter SPILLED = Metrics.counter("cloudcred_findings_spilled_total", "Findings moved from memory to the spill file");
+    private static final Severity[] SEVERITIES = Severity.values();
+
+    // Number of findings held in memory before they are spilled to disk
+    private final int memoryLimit;
+
+    // Dictionary of paths, rule ids, versions and key paths; ids index into strings
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    // Columns of the findings currently held in memory
+    private int[] paths = new int[16];
+    private int[] lines = new int[16];
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private byte[] severities = new byte[16];
+    private int[] rules = new int[16];
+    private int[] versions = new int[16];
+    private int[] keyPaths = new int[16];
+    private long[] secretHashes = new long[16];
+    // End offset of each snippet in snippetChars
+    private int[] snippetEnds = new int[16];
+    private final StringBuilder snippetChars = new StringBuilder();
+    private int buffered;
+
+    // Findings already written to the spill file
+    private Path spillFile;
+    private DataOutputStream spill;
+    private long spilled;
+
+    /**
+     * Creates a store.
+     * @param memoryLimit Number of findings kept in memory before spilling to a temporary file.
+     */
+    public FindingStore(int memoryLimit) {
+        this.memoryLimit = Math.max(1, memoryLimit);
+    }
+
+    /**
+     * Adds a finding.
+     * @param finding The detected leak or secret.
+     */
+    @Override
+    public void accept(Finding finding) {
+        if (buffered == memoryLimit) spillBuffered();
+        if (buffered == paths.length) grow();
+        int i = buffered++;
+        paths[i] = id(finding.getFilePath());
+        lines[i] = finding.getLineNumber();
+        starts[i] = finding.getMatchStart();
+        ends[i] = finding.getMatchEnd();
+        severities[i] = (byte) finding.getSeverity().ordinal();
+        rules[i] = id(finding.getRuleId());
+        versions[i] = id(finding.getSourceVersion());
+        keyPaths[i] = id(finding.getKeyPath());
+        secretHashes[i] = finding.getSecretHash();
+        snippetChars.append(finding.getSuspiciousLine());
+        snippetEnds[i] = snippetChars.length();
+    }
+
+    /**
+     * Flushes the spill file. The store stays readable.
+     */
+    @Override
+    public void close() {
+        if (spill == null) return;
+        try {
+            spill.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write finding spill file", e);
+        }
+    }
+
+    /**
+     * Deletes the spill file and drops all findings.
+     */
+    public void clear() {
+        if (spill != null) {
+            try {
+                spill.close();
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                System.err.println("Failed to delete finding spill file: " + spillFile + " - " + e.getMessage());
+            }
+            spill = null;
+            spillFile = null;
+        }
+        spilled = 0;
+        buffered = 0;
+        snippetChars.setLength(0);
+        snippetChars.trimToSize();
+    }
+
+    // Get the number of findings in the store
+    public long size() {
+        return spilled + buffered;
+    }
+
+    // Whether the store holds no findings
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Iterates over all findings in the order they were accepted.
+     * Findings are rebuilt on the fly; paths of the same file share one String instance.
+     * The store must not be modified during iteration.
+     */
+    @Override
+    public Iterator<Finding> iterator() {
+        close();
+        return new Iterator<Finding>() {
+            private DataInputStream in = openSpill();
+            private long spillIndex;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                if (spillIndex < spilled) return true;
+                closeSpill();
+                return index < buffered;
+            }
+
+            @Override
+            public Finding next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                if (spillIndex < spilled) {
+                    spillIndex++;
+                    try {
+                        return readFinding(in);
+                    } catch (IOException e) {
+                        closeSpill();
+                        throw new UncheckedIOException("Failed to read finding spill file", e);
+                    }
+                }
+                return buffered(index++);
+            }
+
+            private void closeSpill() {
+                if (in == null) return;
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+                in = null;
+            }
+        };
+    }
+
+    // Rebuilds the i-th finding held in memory
+    private Finding buffered(int i) {
+        int snippetStart = i == 0 ? 0 : snippetEnds[i - 1];
+        return new Finding(string(paths[i]), lines[i], snippetChars.substring(snippetStart, snippetEnds[i]),
+                starts[i], ends[i], SEVERITIES[severities[i]], string(rules[i]), string(versions[i]), string(keyPaths[i]),
+                secretHashes[i]);
+    }
+
+    // Writes the findings held in memory to the spill file and empties the buffer
+    private void spillBuffered() {
+        try {
+            if (spill == null) {
+                spillFile = Files.createTempFile("cloudcred-findings", ".bin");
+                spillFile.toFile().deleteOnExit();
+                spill = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile), 64 * 1024));
+            }
+            for (int i = 0; i < buffered; i++) {
+                int snippetStart = i == 0 ? 0 : snippetEnds[i - 1];
+                spill.writeInt(paths[i]);
+                spill.writeInt(lines[i]);
+                spill.writeInt(starts[i]);
+                spill.writeInt(ends[i]);
+                spill.writeByte(severities[i]);
+                spill.writeInt(rules[i]);
+                spill.writeInt(versions[i]);
+                spill.writeInt(keyPaths[i]);
+                spill.writeLong(secretHashes[i]);
+                spill.writeInt(snippetEnds[i] - snippetStart);
+                spill.writeChars(snippetChars.substring(snippetStart, snippetEnds[i]));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write finding spill file", e);
+        }
+        SPILLED.add(buffered);
+        spilled += buffered;
+        buffered = 0;
+        snippetChars.setLength(0);
+    }
+
+    private DataInputStream openSpill() {
+        if (spilled == 0) return null;
+        try {
+            return new DataInputStream(new BufferedInputStream(Files.newInputStream(spillFile), 64 * 1024));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read finding spill file", e);
+        }
+    }
+
+    private Finding readFinding(DataInputStream in) throws IOException {
+        String path = string(in.readInt());
+        int line = in.readInt();
+        int start = in.readInt();
+        int end = in.readInt();
+        Severity severity = SEVERITIES[in.readByte()];
+        String rule = string(in.readInt());
+        String version = string(in.readInt());
+        String keyPath = string(in.readInt());
+        long secretHash = in.readLong();
+        char[] snippet = new char[in.readInt()];
+        for (int c = 0; c < snippet.length; c++) snippet[c] = in.readChar();
+        return new Finding(path, line, new String(snippet), start, end, severity, rule, version, keyPath, secretHash);
+    }
+
+    // Dictionary id of a string; -1 for null
+    private int id(String value) {
+        if (value == null) return -1;
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = strings.size();
+            ids.put(value, id);
+            strings.add(value);
+        }
+        return id;
+    }
+
+    private String string(int id) {
+        return id < 0 ? null : strings.get(id);
+    }
+
+    // Doubles every column, up to the memory limit
+    private void grow() {
+        int capacity = (int) Math.min(memoryLimit, paths.length * 2L);
+        paths = Arrays.copyOf(paths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        severities = Arrays.copyOf(severities, capacity);
+        rules = Arrays.copyOf(rules, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        keyPaths = Arrays.copyOf(keyPaths, capacity);
+        secretHashes = Arrays.copyOf(secretHashes, capacity);
+        snippetEnds = Arrays.copyOf(snippetEnds, capacity);
+    }
+}
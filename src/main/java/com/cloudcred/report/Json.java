@@ -0,0 +1,139 @@
+package com.cloudcred.report;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+// Minimal JSON string escaping for the machine-readable report formats,
+// and a parser for the flat objects of JSON Lines reports.
+public final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Returns the value as a quoted JSON string literal, or null.
+     * @param value String to quote (may be null).
+     * @return JSON literal.
+     */
+    public static String quote(String value) {
+        if (value == null) return "null";
+        StringBuilder sb = new StringBuilder(value.length() + 16);
+        appendQuoted(sb, value);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the value as a quoted JSON string literal.
+     * @param sb    Destination.
+     * @param value String to quote (not null).
+     */
+    public static void appendQuoted(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Parses a flat JSON object such as a line of a JSON Lines report.
+     * String values are unescaped; numbers and booleans are returned as their literal text
+     * and null as null. Nested objects and arrays are not supported.
+     * @param text The object.
+     * @return Values by name.
+     * @throws IllegalArgumentException If the text is not a flat JSON object.
+     */
+    public static Map<String, String> parseObject(String text) {
+        Map<String, String> values = new HashMap<>();
+        int[] pos = {skipSpace(text, 0)};
+        expect(text, pos, '{');
+        if (peek(text, pos) == '}') {
+            pos[0]++;
+            return values;
+        }
+        while (true) {
+            String name = parseString(text, pos);
+            expect(text, pos, ':');
+            String value;
+            if (peek(text, pos) == '"') {
+                value = parseString(text, pos);
+            } else {
+                int start = pos[0];
+                while (pos[0] < text.length() && ",} \t\r\n".indexOf(text.charAt(pos[0])) < 0) pos[0]++;
+                String literal = text.substring(start, pos[0]);
+                if (literal.isEmpty() || literal.charAt(0) == '{' || literal.charAt(0) == '[') {
+                    throw new IllegalArgumentException("Unsupported value for " + name + " at offset " + start);
+                }
+                value = literal.equals("null") ? null : literal;
+                pos[0] = skipSpace(text, pos[0]);
+            }
+            values.put(name, value);
+            char c = peek(text, pos);
+            pos[0]++;
+            if (c == '}') return values;
+            if (c != ',') throw new IllegalArgumentException("Expected ',' or '}' at offset " + (pos[0] - 1));
+        }
+    }
+
+    private static String parseString(String text, int[] pos) {
+        if (peek(text, pos) != '"') throw new IllegalArgumentException("Expected '\"' at offset " + pos[0]);
+        StringBuilder sb = new StringBuilder();
+        // Whitespace after the opening quote is content
+        int i = pos[0] + 1;
+        while (true) {
+            if (i >= text.length()) throw new IllegalArgumentException("Unterminated string");
+            char c = text.charAt(i++);
+            if (c == '"') break;
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (i >= text.length()) throw new IllegalArgumentException("Unterminated string");
+            char e = text.charAt(i++);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (i + 4 > text.length()) throw new IllegalArgumentException("Bad escape at offset " + i);
+                    sb.append((char) Integer.parseInt(text.substring(i, i + 4), 16));
+                    i += 4;
+                    break;
+                default: sb.append(e);
+            }
+        }
+        pos[0] = skipSpace(text, i);
+        return sb.toString();
+    }
+
+    private static void expect(String text, int[] pos, char c) {
+        if (peek(text, pos) != c) throw new IllegalArgumentException("Expected '" + c + "' at offset " + pos[0]);
+        pos[0] = skipSpace(text, pos[0] + 1);
+    }
+
+    private static char peek(String text, int[] pos) {
+        if (pos[0] >= text.length()) throw new IllegalArgumentException("Unexpected end of input");
+        return text.charAt(pos[0]);
+    }
+
+    private static int skipSpace(String text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) i++;
+        return i;
+    }
+}
@@ -0,0 +1,78 @@
+package com.cloudcred.report;
+
+import com.cloudcred.metrics.RuleCosts;
+import com.cloudcred.metrics.SampledFiles;
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.ScanConfig;
+
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * Streaming JSON Lines report: one object per finding, then a summary object as the last line.
+ * Every line is a complete JSON document, so consumers can ingest the file incrementally.
+ * Findings carry everything needed to rebuild them, so shard partial results use this format
+ * and are combined by ResultMerger.
+ */
+class JsonLinesReport extends StreamingReport {
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(256);
+
+    JsonLinesReport(String outputPath, ScanConfig config) throws IOException {
+        super(outputPath, config);
+        this.writer = openWriter();
+    }
+
+    @Override
+    protected void writeFinding(Finding finding) throws IOException {
+        line.setLength(0);
+        line.append("{\"type\":\"finding\",\"severity\":\"").append(finding.getSeverity())
+            .append("\",\"rule\":").append(Json.quote(finding.getRuleId()))
+            .append(",\"path\":");
+        Json.appendQuoted(line, finding.getFilePath());
+        line.append(",\"line\":").append(finding.getLineNumber())
+            .append(",\"start\":").append(finding.getMatchStart())
+            .append(",\"end\":").append(finding.getMatchEnd())
+            .append(",\"content\":");
+        Json.appendQuoted(line, finding.getSuspiciousLine());
+        line.append(",\"version\":").append(Json.quote(finding.getSourceVersion()));
+        line.append(",\"key\":").append(Json.quote(finding.getKeyPath()));
+        line.append("}\n");
+        writer.write(line.toString());
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        // One line per slow rule; readers of the findings skip types they don't know
+        for (RuleCosts.Entry rule : slowRules()) {
+            writer.write("{\"type\":\"rule\",\"engine\":" + Json.quote(rule.getEngine())
+                    + ",\"rule\":" + Json.quote(rule.getRule())
+                    + ",\"lines\":" + rule.getEvaluations()
+                    + ",\"hits\":" + rule.getHits()
+                    + ",\"seconds\":" + seconds(rule.getNanos())
+                    + ",\"overBudget\":" + rule.getOverBudget() + "}\n");
+        }
+        // One line per sampled file, so a merge can list them again
+        for (SampledFiles.Entry entry : sampled().snapshot()) {
+            writer.write("{\"type\":\"sampled\",\"path\":" + Json.quote(entry.getPath())
+                    + ",\"bytes\":" + entry.getBytes()
+                    + ",\"sampleBytes\":" + entry.getSampleBytes() + "}\n");
+        }
+        writer.write("{\"type\":\"summary\",\"date\":" + Json.quote(timestamp)
+                + ",\"directory\":" + Json.quote(config.path)
+                + ",\"minSeverity\":\"" + config.minSeverity + "\""
+                + (config.shardCount > 0 ? ",\"shard\":\"" + (config.shardIndex + 1) + "/" + config.shardCount + "\"" : "")
+                + ",\"total\":" + total()
+                + ",\"high\":" + count(Severity.HIGH)
+                + ",\"medium\":" + count(Severity.MEDIUM)
+                + ",\"low\":" + count(Severity.LOW)
+                + ",\"sampled\":" + sampled().count() + "}\n");
+    }
+
+    @Override
+    protected void release() throws IOException {
+        writer.close();
+    }
+}
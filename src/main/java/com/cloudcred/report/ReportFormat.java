@@ -0,0 +1,27 @@
+package com.cloudcred.report;
+
+
+// Output formats supported by ReportWriter.
+public enum ReportFormat {
+    // Human-readable scan_report.txt layout
+    TEXT,
+    // One JSON object per finding, followed by a summary object
+    JSONL,
+    // SARIF 2.1.0 log for code-scanning dashboards
+    SARIF;
+
+    /**
+     * Parses a format name, case-insensitively.
+     * @param name Format name (text, jsonl, sarif).
+     * @return The format, or TEXT if the name is null or unknown.
+     */
+    public static ReportFormat parse(String name) {
+        if (name == null) return TEXT;
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown report format '" + name + "'. Using: TEXT");
+            return TEXT;
+        }
+    }
+}
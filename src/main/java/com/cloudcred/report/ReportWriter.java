@@ -1,73 +1,73 @@
 package com.cloudcred.report;
 
 import com.cloudcred.model.Finding;
-import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.FindingSink;
 import com.cloudcred.model.ScanConfig;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 
-// This class is responsible for generating a human-readable scan report.
-// It summarizes findings and writes details to a file for later review.
+// This class is responsible for generating the scan report.
+// Reports are written in a single streaming pass: findings are written as they arrive and
+// the summary counts are computed along the way. Besides the human-readable text report,
+// JSON Lines and SARIF output are supported, optionally gzip-compressed.
 public class ReportWriter {
+    // Report opened last by openReport; null when it could not be created
+    private StreamingReport opened;
 
     /**
      * Writes a summary and details of findings to the given file path.
-     * @param findings   List of findings collected from the scan.
+     * @param findings   Findings collected from the scan, e.g. a List or a FindingStore.
      * @param outputPath Path to save the report.
      * @param config     Configuration used for the scan.
      */
-    public void writeReport(List<Finding> findings, String outputPath, ScanConfig config) {
-        // Count findings by severity for summary
-        Map<Severity, Long> countsBySeverity = new EnumMap<>(Severity.class);
-        for (Severity s : Severity.values()) {
-            countsBySeverity.put(s, findings.stream().filter(f -> f.getSeverity() == s).count());
+    public void writeReport(Iterable<Finding> findings, String outputPath, ScanConfig config) {
+        FindingSink report = openReport(outputPath, config);
+        for (Finding finding : findings) {
+            report.accept(finding);
         }
+        report.close();
+    }
 
-        int totalFindings = findings.size();
-        int highCount = countsBySeverity.getOrDefault(Severity.HIGH, 0L).intValue();
-        int mediumCount = countsBySeverity.getOrDefault(Severity.MEDIUM, 0L).intValue();
-        int lowCount = countsBySeverity.getOrDefault(Severity.LOW, 0L).intValue();
-
-        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date());
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputPath, false))) {
-            // Write report header and scan configuration
-            writer.write("CloudCred Shield - Scan Report\n");
-            writer.write("====================================\n");
-            writer.write("Date: " + timestamp + "\n");
-            writer.write("Directory Scanned: " + config.path + "\n");
-            writer.write("Minimum Severity: " + config.minSeverity + "\n");
-            writer.write("File Types Included: " + String.join(", ", config.allowedExtensions) + "\n\n");
-
-            // Write summary section
-            writer.write("Summary:\n");
-            writer.write("--------\n");
-            writer.write("Total Findings: " + totalFindings + "\n");
-            writer.write("  - HIGH: " + highCount + "\n");
-            writer.write("  - MEDIUM: " + mediumCount + "\n");
-            writer.write("  - LOW: " + lowCount + "\n\n");
-
-            // Write details for each finding
-            if (totalFindings > 0) {
-                writer.write("Findings:\n");
-                writer.write("---------\n\n");
-                for (Finding finding : findings) {
-                    writer.write("[" + finding.getSeverity() + "] " + finding.getFilePath() +
-                            " (line " + finding.getLineNumber() + "):\n" +
-                            finding.getSuspiciousLine() + "\n\n");
-                }
-            } else {
-                writer.write("No findings detected. All clear!\n");
+    /**
+     * Opens a streaming report in the format selected by config.reportFormat.
+     * Each finding passed to the returned sink is written immediately; close() writes the
+     * summary and finishes the file. With config.reportGzip, ".gz" is appended to the path.
+     * The returned sink is not thread-safe. Whether it was written is told by failed().
+     * @param outputPath Path to save the report.
+     * @param config     Configuration used for the scan.
+     * @return Sink that writes the report.
+     */
+    public FindingSink openReport(String outputPath, ScanConfig config) {
+        String path = config.reportGzip && !outputPath.endsWith(".gz") ? outputPath + ".gz" : outputPath;
+        try {
+            switch (ReportFormat.parse(config.reportFormat)) {
+                case JSONL:
+                    opened = new JsonLinesReport(path, config);
+                    break;
+                case SARIF:
+                    opened = new SarifReport(path, config);
+                    break;
+                case TEXT:
+                default:
+                    opened = new TextReport(path, config);
+                    break;
             }
-
-            System.out.println("Detailed scan report saved to: " + outputPath);
+            return opened;
         } catch (IOException e) {
+            opened = null;
             System.err.println("Failed to write scan report: " + e.getMessage());
+            return finding -> { };
         }
     }
+
+    /**
+     * Whether the report opened last could not be created or written. Meant to be called
+     * after the report has been closed.
+     * @return True if the report is missing or incomplete.
+     */
+    public boolean failed() {
+        return opened == null || opened.failed();
+    }
 }
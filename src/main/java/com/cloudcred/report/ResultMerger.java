@@ -0,0 +1,153 @@
+package com.cloudcred.report;
+
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.ScanConfig;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * ResultMerger combines the partial results written by shards (--shard=i/N) into one report.
+ * Partial results are JSON Lines reports, optionally gzip-compressed. Findings from all inputs
+ * are sorted by path, line and rule, identical findings are reported once, and the merged report
+ * is written in config.reportFormat to config.reportPath, so its summary counts cover all shards.
+ * Files the shards only sampled are listed in the merged report as well.
+ * Inputs that never wrote their summary line (the shard did not finish) and shards missing from
+ * the set of inputs make the merge incomplete: the report is still written from what there is,
+ * but merge() reports the failure.
+ */
+public class ResultMerger {
+    // Order of the merged report
+    private static final Comparator<Finding> ORDER = Comparator
+            .comparing(Finding::getFilePath)
+            .thenComparingInt(Finding::getLineNumber)
+            .thenComparing(Finding::getRuleId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Finding::getSuspiciousLine);
+
+    private final ScanConfig config;
+
+    /**
+     * Creates a merger.
+     * @param config Configuration of the merged report (reportPath, reportFormat, reportGzip).
+     */
+    public ResultMerger(ScanConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Reads the partial results and writes the merged report.
+     * @param inputs Paths of the partial result files.
+     * @return Number of findings in the merged report, or -1 if an input could not be read, a shard
+     *         is missing or did not finish, or the merged report could not be written.
+     */
+    public long merge(List<String> inputs) {
+        List<Finding> findings = new ArrayList<>();
+        // Shard specs ("i/N") of the inputs that finished
+        Set<String> shards = new TreeSet<>();
+        int shardCount = 0;
+        boolean complete = true;
+        for (String input : inputs) {
+            String shard;
+            try {
+                shard = read(input, findings);
+                if (shard != null && !shard.isEmpty()) {
+                    shardCount = Math.max(shardCount, Integer.parseInt(shard.substring(shard.indexOf('/') + 1)));
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println("❌ Cannot read partial results " + input + " - " + e.getMessage());
+                return -1;
+            }
+            if (shard == null) {
+                System.out.println("❌ " + input + " has no summary line; its shard may not have finished");
+                complete = false;
+            } else if (!shard.isEmpty() && !shards.add(shard)) {
+                System.out.println("⚠️ Shard " + shard + " is included more than once");
+            }
+        }
+        for (int i = 1; i <= shardCount; i++) {
+            if (!shards.contains(i + "/" + shardCount)) {
+                System.out.println("❌ Missing partial results for shard " + i + "/" + shardCount + "; the report is incomplete");
+                complete = false;
+            }
+        }
+
+        findings.sort(ORDER);
+        List<Finding> merged = new ArrayList<>(findings.size());
+        Finding previous = null;
+        for (Finding finding : findings) {
+            if (previous == null || ORDER.compare(previous, finding) != 0) merged.add(finding);
+            previous = finding;
+        }
+
+        ReportWriter report = new ReportWriter();
+        report.writeReport(merged, config.reportPath, config);
+        if (report.failed()) return -1;
+        System.out.println((complete ? "✅" : "⚠️") + " Merged " + merged.size() + " findings from " + inputs.size()
+                + " partial results (" + (findings.size() - merged.size()) + " duplicates removed)");
+        return complete ? merged.size() : -1;
+    }
+
+    /**
+     * Reads the findings of one partial result file.
+     * @return The shard spec from the summary line, "" if the summary has none, or null if there is no summary.
+     */
+    private static String read(String input, List<Finding> findings) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(input)), 64 * 1024);
+        if (input.endsWith(".gz")) in = new GZIPInputStream(in, 64 * 1024);
+        String shard = null;
+        long read = 0;
+        long sampled = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+                Map<String, String> values = Json.parseObject(line);
+                String type = values.get("type");
+                if ("finding".equals(type)) {
+                    findings.add(toFinding(values));
+                    read++;
+                } else if ("sampled".equals(type)) {
+                    Metrics.registry().sampled().record(values.get("path"),
+                            Long.parseLong(values.getOrDefault("bytes", "0")),
+                            Long.parseLong(values.getOrDefault("sampleBytes", "0")));
+                    sampled++;
+                } else if ("summary".equals(type)) {
+                    // A summary that disagrees with the findings means the file was cut or edited
+                    String total = values.get("total");
+                    if (total != null && Long.parseLong(total) != read) {
+                        throw new IllegalArgumentException("summary counts " + total + " findings but the file has " + read);
+                    }
+                    // Sampled files the shard counted but did not list
+                    String sampledTotal = values.get("sampled");
+                    if (sampledTotal != null && Long.parseLong(sampledTotal) > sampled) {
+                        Metrics.registry().sampled().addUnlisted(Long.parseLong(sampledTotal) - sampled);
+                    }
+                    shard = values.getOrDefault("shard", "");
+                    if (shard == null) shard = "";
+                }
+            }
+        }
+        return shard;
+    }
+
+    private static Finding toFinding(Map<String, String> values) {
+        String path = values.get("path");
+        if (path == null) throw new IllegalArgumentException("finding without path");
+        return new Finding(path,
+                Integer.parseInt(values.getOrDefault("line", "0")),
+                values.getOrDefault("content", ""),
+                Integer.parseInt(values.getOrDefault("start", "-1")),
+                Integer.parseInt(values.getOrDefault("end", "-1")),
+                Severity.valueOf(values.get("severity")),
+                values.get("rule"),
+                values.get("version"),
+                values.get("key"));
+    }
+}
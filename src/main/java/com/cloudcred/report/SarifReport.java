@@ -0,0 +1,111 @@
+package com.cloudcred.report;
+
+import com.cloudcred.metrics.RuleCosts;
+import com.cloudcred.metrics.SampledFiles;
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.ScanConfig;
+
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * Streaming SARIF 2.1.0 report.
+ * Results are written into the open "results" array as they arrive; the run's summary
+ * counts go into the run property bag written after the array on close.
+ */
+class SarifReport extends StreamingReport {
+    private final Writer writer;
+    private final StringBuilder result = new StringBuilder(512);
+    private boolean first = true;
+
+    SarifReport(String outputPath, ScanConfig config) throws IOException {
+        super(outputPath, config);
+        this.writer = openWriter();
+        writer.write("{\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\",\"version\":\"2.1.0\",\"runs\":[{"
+                + "\"tool\":{\"driver\":{\"name\":\"CloudCred Shield\",\"version\":\"1.0\"}},"
+                + "\"results\":[\n");
+    }
+
+    @Override
+    protected void writeFinding(Finding finding) throws IOException {
+        result.setLength(0);
+        if (!first) result.append(",\n");
+        first = false;
+
+        String ruleId = finding.getRuleId() != null ? finding.getRuleId() : "severity-" + finding.getSeverity().name().toLowerCase();
+        result.append("{\"ruleId\":");
+        Json.appendQuoted(result, ruleId);
+        result.append(",\"level\":\"").append(level(finding.getSeverity()))
+              .append("\",\"message\":{\"text\":\"Possible exposed credential (").append(finding.getSeverity()).append(")\"}")
+              .append(",\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":");
+        Json.appendQuoted(result, finding.getFilePath());
+        result.append("},\"region\":{\"startLine\":").append(finding.getLineNumber())
+              .append(",\"snippet\":{\"text\":");
+        Json.appendQuoted(result, finding.getSuspiciousLine());
+        result.append("}}}}],\"properties\":{\"severity\":\"").append(finding.getSeverity()).append('"');
+        if (finding.getKeyPath() != null) {
+            result.append(",\"keyPath\":");
+            Json.appendQuoted(result, finding.getKeyPath());
+        }
+        result.append("}}");
+        writer.write(result.toString());
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        writer.write("\n],\"properties\":{\"date\":" + Json.quote(timestamp)
+                + ",\"directory\":" + Json.quote(config.path)
+                + ",\"minSeverity\":\"" + config.minSeverity + "\""
+                + ",\"total\":" + total()
+                + ",\"high\":" + count(Severity.HIGH)
+                + ",\"medium\":" + count(Severity.MEDIUM)
+                + ",\"low\":" + count(Severity.LOW)
+                + ",\"sampled\":" + sampledJson()
+                + ",\"slowRules\":" + slowRulesJson() + "}}]}\n");
+    }
+
+    // Sampled files as a JSON object for the run properties: the count and the listed paths
+    private String sampledJson() {
+        StringBuilder sb = new StringBuilder("{\"count\":").append(sampled().count()).append(",\"files\":[");
+        boolean first = true;
+        for (SampledFiles.Entry entry : sampled().snapshot()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append("{\"path\":").append(Json.quote(entry.getPath()))
+              .append(",\"bytes\":").append(entry.getBytes())
+              .append(",\"sampleBytes\":").append(entry.getSampleBytes()).append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    // Slowest rules as a JSON array for the run properties
+    private String slowRulesJson() {
+        StringBuilder sb = new StringBuilder("[");
+        for (RuleCosts.Entry rule : slowRules()) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append("{\"engine\":").append(Json.quote(rule.getEngine()))
+              .append(",\"rule\":").append(Json.quote(rule.getRule()))
+              .append(",\"lines\":").append(rule.getEvaluations())
+              .append(",\"hits\":").append(rule.getHits())
+              .append(",\"seconds\":").append(seconds(rule.getNanos()))
+              .append(",\"overBudget\":").append(rule.getOverBudget()).append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    @Override
+    protected void release() throws IOException {
+        writer.close();
+    }
+
+    // SARIF result level for a severity
+    private static String level(Severity severity) {
+        switch (severity) {
+            case HIGH: return "error";
+            case MEDIUM: return "warning";
+            default: return "note";
+        }
+    }
+}
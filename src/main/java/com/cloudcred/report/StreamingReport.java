@@ -0,0 +1,133 @@
+package com.cloudcred.report;
+
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.metrics.RuleCosts;
+import com.cloudcred.metrics.SampledFiles;
+import com.cloudcred.metrics.Timer;
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.FindingSink;
+import com.cloudcred.model.ScanConfig;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Base class for reports that are written while findings arrive.
+ * Findings are written immediately and counted in the same pass; the summary is
+ * produced on close(), together with the rules that cost the most matching time and the
+ * oversized files of which only a sample was scanned.
+ * Write errors are reported once and further output is skipped.
+ */
+abstract class StreamingReport implements FindingSink {
+    private static final Timer WRITE = Metrics.timer("cloudcred_report_write_seconds", "Time to write one finding to the report");
+    private static final Timer FINISH_PHASE = Metrics.timer("cloudcred_phase_seconds", "Wall time of each scan phase", "phase", "report_finish");
+
+    // Number of slowest rules listed in the summary, besides rules that exceeded the step budget
+    static final int SLOW_RULES_LISTED = 5;
+
+    protected final String outputPath;
+    protected final ScanConfig config;
+    protected final boolean gzip;
+    // "yyyy-MM-dd HH:mm"; java.time avoids loading the locale providers SimpleDateFormat needs at startup
+    protected final String timestamp = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).toString().replace('T', ' ');
+
+    private final long[] counts = new long[Severity.values().length];
+    private long total;
+    private IOException failure;
+
+    StreamingReport(String outputPath, ScanConfig config) {
+        this.outputPath = outputPath;
+        this.config = config;
+        this.gzip = outputPath.endsWith(".gz");
+    }
+
+    @Override
+    public final void accept(Finding finding) {
+        counts[finding.getSeverity().ordinal()]++;
+        total++;
+        if (failure != null) return;
+        long started = Metrics.start();
+        try {
+            writeFinding(finding);
+        } catch (IOException e) {
+            failure = e;
+        }
+        WRITE.record(started);
+    }
+
+    @Override
+    public final void close() {
+        long started = Metrics.start();
+        try {
+            if (failure == null) finish();
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            try {
+                release();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        FINISH_PHASE.record(started);
+
+        if (failure == null) {
+            System.out.println("Detailed scan report saved to: " + outputPath);
+        } else {
+            System.err.println("Failed to write scan report: " + failure.getMessage());
+        }
+    }
+
+    // Whether the report could not be written completely
+    boolean failed() {
+        return failure != null;
+    }
+
+    // Writes one finding as it arrives
+    protected abstract void writeFinding(Finding finding) throws IOException;
+
+    // Writes the summary and any closing structure
+    protected abstract void finish() throws IOException;
+
+    // Closes the underlying output
+    protected abstract void release() throws IOException;
+
+    // Get the number of findings seen with the given severity
+    protected long count(Severity severity) {
+        return counts[severity.ordinal()];
+    }
+
+    // Get the total number of findings seen
+    protected long total() {
+        return total;
+    }
+
+    // Get the rules that cost the most matching time in this process, slowest first
+    protected List<RuleCosts.Entry> slowRules() {
+        return Metrics.registry().ruleCosts().slowest(SLOW_RULES_LISTED);
+    }
+
+    // Get the files and objects of which only the beginning was scanned
+    protected SampledFiles sampled() {
+        return Metrics.registry().sampled();
+    }
+
+    // Formats nanoseconds as seconds for the machine-readable reports
+    protected static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1e9);
+    }
+
+    // Opens a UTF-8 writer on the output path, gzip-compressed when the path ends in .gz
+    protected Writer openWriter() throws IOException {
+        OutputStream out = new FileOutputStream(outputPath, false);
+        if (gzip) out = new GZIPOutputStream(out, 64 * 1024);
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+}
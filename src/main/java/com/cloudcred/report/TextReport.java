@@ -0,0 +1,149 @@
+package com.cloudcred.report;
+
+import com.cloudcred.metrics.RuleCosts;
+import com.cloudcred.metrics.SampledFiles;
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.ScanConfig;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+
+
+/**
+ * Streaming writer for the human-readable scan_report.txt layout.
+ * The summary block is written up front with fixed-width placeholders and patched in place
+ * when the report is closed, so the file reads exactly like the classic report.
+ * Gzip output cannot be patched, so there the summary is written as a trailer instead.
+ */
+class TextReport extends StreamingReport {
+    // Width reserved for each count in the summary block
+    private static final int COUNT_WIDTH = 12;
+
+    private final FileChannel channel;
+    private final Writer writer;
+    private long summaryOffset = -1;
+    private boolean findingsHeaderWritten;
+
+    TextReport(String outputPath, ScanConfig config) throws IOException {
+        super(outputPath, config);
+        if (gzip) {
+            this.channel = null;
+            this.writer = openWriter();
+        } else {
+            this.channel = FileChannel.open(Paths.get(outputPath), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        // Write report header and scan configuration
+        String header = "CloudCred Shield - Scan Report\n"
+                + "====================================\n"
+                + "Date: " + timestamp + "\n"
+                + "Directory Scanned: " + config.path + "\n"
+                + "Minimum Severity: " + config.minSeverity + "\n"
+                + "File Types Included: " + String.join(", ", config.allowedExtensions) + "\n\n";
+        writer.write(header);
+
+        // Reserve the summary section; counts are filled in on close
+        if (!gzip) {
+            summaryOffset = header.getBytes(StandardCharsets.UTF_8).length;
+            writer.write(summary(true));
+        }
+    }
+
+    @Override
+    protected void writeFinding(Finding finding) throws IOException {
+        if (!findingsHeaderWritten) {
+            writer.write("Findings:\n");
+            writer.write("---------\n\n");
+            findingsHeaderWritten = true;
+        }
+        writer.write("[" + finding.getSeverity() + "] " + finding.getFilePath() +
+                " (line " + finding.getLineNumber() +
+                (finding.getKeyPath() != null ? ", key " + finding.getKeyPath() : "") + "):\n" +
+                finding.getSuspiciousLine() + "\n\n");
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        if (total() == 0) {
+            writer.write(sampled().count() == 0 ? "No findings detected. All clear!\n"
+                    : "No findings detected, but some files were only partly scanned (see below).\n");
+        }
+        writeSampledFiles();
+        writeSlowRules();
+        if (gzip) {
+            // Summary trailer for compressed output
+            writer.write(summary(false));
+        }
+        writer.flush();
+
+        if (summaryOffset >= 0) {
+            channel.write(ByteBuffer.wrap(summary(true).getBytes(StandardCharsets.UTF_8)), summaryOffset);
+        }
+    }
+
+    @Override
+    protected void release() throws IOException {
+        writer.close();
+    }
+
+    // Rules that cost the most matching time, and any that exceeded the step budget
+    private void writeSlowRules() throws IOException {
+        List<RuleCosts.Entry> rules = slowRules();
+        if (rules.isEmpty()) return;
+        writer.write("\nSlowest rules:\n");
+        writer.write("--------------\n");
+        for (RuleCosts.Entry rule : rules) {
+            writer.write(String.format(Locale.ROOT, "  %s (%s): %.1f ms, %d lines, %d hits",
+                    rule.getRule(), rule.getEngine(), rule.getNanos() / 1e6, rule.getEvaluations(), rule.getHits()));
+            if (rule.getOverBudget() > 0) {
+                writer.write(", " + rule.getOverBudget() + " lines over the step budget");
+            }
+            writer.write("\n");
+        }
+        writer.write("\n");
+    }
+
+    // Oversized files of which only the beginning was scanned
+    private void writeSampledFiles() throws IOException {
+        long count = sampled().count();
+        if (count == 0) return;
+        List<SampledFiles.Entry> entries = sampled().snapshot();
+        writer.write("\nSampled files (only the beginning was scanned):\n");
+        writer.write("----------------------------------------------\n");
+        for (SampledFiles.Entry entry : entries) {
+            writer.write("  " + entry.getPath() + ": first " + entry.getSampleBytes() + " of " + entry.getBytes() + " bytes\n");
+        }
+        if (count > entries.size()) {
+            writer.write("  ... and " + (count - entries.size()) + " more\n");
+        }
+    }
+
+    // Summary block; padded counts keep the block the same length before and after patching
+    private String summary(boolean padded) {
+        return "Summary:\n"
+                + "--------\n"
+                + "Total Findings: " + count(total(), padded) + "\n"
+                + "  - HIGH: " + count(count(Severity.HIGH), padded) + "\n"
+                + "  - MEDIUM: " + count(count(Severity.MEDIUM), padded) + "\n"
+                + "  - LOW: " + count(count(Severity.LOW), padded) + "\n"
+                + "Sampled Files: " + count(sampled().count(), padded) + "\n\n";
+    }
+
+    private static String count(long value, boolean padded) {
+        String text = Long.toString(value);
+        if (!padded) return text;
+        StringBuilder sb = new StringBuilder(COUNT_WIDTH).append(text);
+        while (sb.length() < COUNT_WIDTH) sb.append(' ');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,411 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.metrics.Counter;
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.model.FindingSink;
+import com.cloudcred.model.ScanConfig;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+
+/**
+ * ArchiveScanner streams into archives and scans their entries in memory.
+ * Zip-family archives (zip, jar, war, ear) and tar archives (tar, tar.gz, tgz) are read
+ * sequentially from any InputStream, so local files and S3 objects are handled alike and
+ * nothing is ever extracted to disk. Entry names go through the same extension and ignore
+ * rules as ordinary files; nested archives are scanned recursively. Findings are reported
+ * as archive!/entry, e.g. app.war!/WEB-INF/lib/core.jar!/application.properties.
+ *
+ * Every top-level archive has a budget guarding against zip bombs: a maximum nesting depth,
+ * a maximum number of entries and a maximum number of decompressed bytes (counted at every
+ * nesting level). When the entry or byte budget runs out the rest of the archive is skipped;
+ * findings from the entries already read are kept.
+ */
+public class ArchiveScanner {
+    // Separator between an archive path and the path of an entry inside it
+    public static final String ENTRY_SEPARATOR = "!/";
+
+    private static final Counter ENTRIES_SCANNED = Metrics.counter("cloudcred_archive_entries_scanned_total", "Archive entries read and matched");
+    private static final Counter LIMITS_REACHED = Metrics.counter("cloudcred_archive_limits_total", "Archives cut short by a depth, entry or size limit");
+
+    private final ScanConfig config;
+    private final MatchEngine engine;
+
+    /**
+     * Constructs an ArchiveScanner.
+     * @param config Scan settings (extension and ignore rules, archive limits).
+     * @param engine Engine used to classify entry lines.
+     */
+    ArchiveScanner(ScanConfig config, MatchEngine engine) {
+        this.config = config;
+        this.engine = engine;
+    }
+
+    /**
+     * Determines if a file name denotes a supported archive.
+     * @param name File name or object key.
+     * @return true for zip, jar, war, ear, tar, tar.gz and tgz.
+     */
+    public static boolean isArchive(String name) {
+        return typeOf(name) != null;
+    }
+
+    /**
+     * Scans an archive and emits findings for its entries.
+     * @param path    Path reported for the archive itself.
+     * @param in      Archive content; it is read but not closed.
+     * @param version Source version attached to the findings (the S3 ETag), or null.
+     * @param sink    Receives findings.
+     * @return true if the archive was read to the end, false if a limit cut it short.
+     * @throws IOException If the archive cannot be read or is malformed.
+     */
+    boolean scan(String path, InputStream in, String version, FindingSink sink) throws IOException {
+        Budget budget = new Budget();
+        try {
+            scanArchive(path, typeOf(path), new NonClosingInputStream(in), 1, version, sink, budget);
+            return true;
+        } catch (LimitReachedException e) {
+            LIMITS_REACHED.increment();
+            System.out.println("⚠️ Archive limit reached in " + path + ": " + e.getMessage() + "; remaining entries skipped");
+            return false;
+        }
+    }
+
+    // Reads every entry of one archive level, recursing into nested archives
+    private void scanArchive(String path, String type, InputStream in, int depth, String version,
+                             FindingSink sink, Budget budget) throws IOException {
+        if (type.equals("zip")) {
+            try (ZipInputStream zip = new ZipInputStream(in)) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (!entry.isDirectory()) {
+                        scanEntry(path, entry.getName(), zip, depth, version, sink, budget);
+                    }
+                }
+            }
+        } else {
+            InputStream raw = type.equals("tgz") ? new GZIPInputStream(in, 64 * 1024) : in;
+            try (TarReader tar = new TarReader(raw)) {
+                String name;
+                while ((name = tar.nextEntry()) != null) {
+                    scanEntry(path, name, tar.entryStream(), depth, version, sink, budget);
+                }
+            }
+        }
+    }
+
+    // Scans one entry as text or as a nested archive, charging it to the budget
+    private void scanEntry(String archivePath, String entryName, InputStream entryStream, int depth,
+                           String version, FindingSink sink, Budget budget) throws IOException {
+        if (++budget.entries > config.archiveMaxEntries) {
+            throw new LimitReachedException("more than " + config.archiveMaxEntries + " entries");
+        }
+        String name = entryName.substring(entryName.lastIndexOf('/') + 1);
+        String path = archivePath + ENTRY_SEPARATOR + entryName;
+        InputStream content = new BudgetedInputStream(entryStream, budget);
+
+        String nestedType = config.ignoreFilenames.contains(name) ? null : typeOf(name);
+        if (nestedType != null && depth >= config.archiveMaxDepth) {
+            LIMITS_REACHED.increment();
+            System.out.println("⚠️ Archive nesting deeper than " + config.archiveMaxDepth + " levels, skipping: " + path);
+            nestedType = null;
+        } else if (nestedType != null) {
+            scanArchive(path, nestedType, content, depth + 1, version, sink, budget);
+            return;
+        }
+        if (config.ignoreFilenames.contains(name) || !FileScanner.matchesScanRules(config, name)) {
+            // Skipped entries are still decompressed to reach the next one, so they count against the budget
+            budget.drain(content);
+            return;
+        }
+
+        // The reader is not closed: that would close the archive stream it reads from
+        BufferedReader reader = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+        KeyPathTokenizer tokenizer = config.structuredScan ? KeyPathTokenizer.forFile(name) : null;
+        String line;
+        int lineNum = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNum++;
+            if (tokenizer == null) {
+                RuleMatch match = engine.classify(line);
+                if (match != null) {
+                    sink.accept(match.toFinding(path, lineNum, line, version));
+                }
+            } else {
+                for (RuleMatch match : tokenizer.classify(line, engine.classifyAll(line, false))) {
+                    sink.accept(match.toFinding(path, lineNum, line, version));
+                }
+            }
+        }
+        ENTRIES_SCANNED.increment();
+    }
+
+    // Archive type from the name: "zip" for the zip family, "tar" or "tgz", or null
+    private static String typeOf(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".zip") || lower.endsWith(".jar") || lower.endsWith(".war") || lower.endsWith(".ear")) {
+            return "zip";
+        }
+        if (lower.endsWith(".tar.gz") || lower.endsWith(".tgz")) return "tgz";
+        if (lower.endsWith(".tar")) return "tar";
+        return null;
+    }
+
+    // Remaining entries and decompressed bytes of one top-level archive
+    private class Budget {
+        int entries;
+        long bytes;
+        private final byte[] skipBuffer = new byte[8192];
+
+        // Reads and discards the rest of a stream
+        void drain(InputStream in) throws IOException {
+            while (in.read(skipBuffer) >= 0) {
+                // discard
+            }
+        }
+
+        void charge(long n) throws LimitReachedException {
+            bytes += n;
+            if (bytes > config.archiveMaxBytes) {
+                throw new LimitReachedException("more than " + config.archiveMaxBytes + " decompressed bytes");
+            }
+        }
+    }
+
+    // Thrown when an archive exceeds its budget
+    private static class LimitReachedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LimitReachedException(String message) {
+            super(message);
+        }
+    }
+
+    // Counts the bytes read through it against the archive budget; closing does not close the source
+    private static class BudgetedInputStream extends FilterInputStream {
+        private final Budget budget;
+
+        BudgetedInputStream(InputStream in, Budget budget) {
+            super(in);
+            this.budget = budget;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) budget.charge(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) budget.charge(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes are decompressed too
+            long skipped = in.skip(n);
+            if (skipped > 0) budget.charge(skipped);
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Lets an archive reader be closed (releasing its inflater) without closing the stream below it
+    private static class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Minimal sequential reader for POSIX (ustar), GNU and pax tar streams.
+     * Only regular files are returned; long names from GNU 'L' and pax 'path' records are honoured.
+     */
+    private static class TarReader implements Closeable {
+        private static final int BLOCK = 512;
+
+        private final InputStream in;
+        private final byte[] header = new byte[BLOCK];
+        // Unread bytes of the current entry, and the padding after it
+        private long remaining;
+        private long padding;
+
+        TarReader(InputStream in) {
+            this.in = in;
+        }
+
+        // Advances to the next regular file and returns its name, or null at the end of the archive
+        String nextEntry() throws IOException {
+            String longName = null;
+            while (true) {
+                skipFully(remaining + padding);
+                remaining = 0;
+                padding = 0;
+                if (!readBlock()) return null;
+
+                long size = parseSize(header, 124, 12);
+                char type = (char) header[156];
+                remaining = size;
+                padding = (BLOCK - size % BLOCK) % BLOCK;
+
+                if (type == 'L') {
+                    longName = trimName(readEntryText());
+                    continue;
+                }
+                if (type == 'x') {
+                    String paxPath = paxPath(readEntryText());
+                    if (paxPath != null) longName = paxPath;
+                    continue;
+                }
+                if (type != '0' && type != '\0' && type != '7') {
+                    // Directories, links, devices and global headers carry no scannable content
+                    longName = null;
+                    continue;
+                }
+
+                String name = longName != null ? longName : headerName();
+                longName = null;
+                return name;
+            }
+        }
+
+        // Stream over the current entry's content
+        InputStream entryStream() {
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    if (remaining <= 0) return -1;
+                    int b = in.read();
+                    if (b < 0) throw new EOFException("Truncated tar entry");
+                    remaining--;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (remaining <= 0) return -1;
+                    int n = in.read(b, off, (int) Math.min(len, remaining));
+                    if (n < 0) throw new EOFException("Truncated tar entry");
+                    remaining -= n;
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        // Reads one header block; false at end of stream or at the zero end-of-archive block
+        private boolean readBlock() throws IOException {
+            int read = 0;
+            while (read < BLOCK) {
+                int n = in.read(header, read, BLOCK - read);
+                if (n < 0) {
+                    if (read == 0) return false;
+                    throw new EOFException("Truncated tar header");
+                }
+                read += n;
+            }
+            for (byte b : header) {
+                if (b != 0) return true;
+            }
+            return false;
+        }
+
+        // Reads the current entry's content as text (GNU long names and pax headers are small)
+        private String readEntryText() throws IOException {
+            if (remaining > 1024 * 1024) throw new IOException("Oversized tar extended header");
+            byte[] data = new byte[(int) remaining];
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) throw new EOFException("Truncated tar entry");
+                read += n;
+            }
+            remaining = 0;
+            return new String(data, StandardCharsets.UTF_8);
+        }
+
+        private String headerName() {
+            String name = field(345, 155).isEmpty() || !field(257, 6).startsWith("ustar")
+                    ? field(0, 100)
+                    : field(345, 155) + "/" + field(0, 100);
+            return trimName(name);
+        }
+
+        private String field(int offset, int length) {
+            int end = offset;
+            while (end < offset + length && header[end] != 0) end++;
+            return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+        }
+
+        private void skipFully(long n) throws IOException {
+            while (n > 0) {
+                long skipped = in.skip(n);
+                if (skipped <= 0) {
+                    if (in.read() < 0) throw new EOFException("Truncated tar entry");
+                    skipped = 1;
+                }
+                n -= skipped;
+            }
+        }
+
+        // Octal size, or GNU base-256 for sizes of 8 GiB and more
+        private static long parseSize(byte[] header, int offset, int length) throws IOException {
+            if ((header[offset] & 0x80) != 0) {
+                long size = 0;
+                for (int i = offset + 1; i < offset + length; i++) {
+                    size = (size << 8) | (header[i] & 0xff);
+                }
+                return size;
+            }
+            long size = 0;
+            for (int i = offset; i < offset + length; i++) {
+                byte b = header[i];
+                if (b == 0 || b == ' ') {
+                    if (size > 0) break;
+                    continue;
+                }
+                if (b < '0' || b > '7') throw new IOException("Invalid tar header");
+                size = size * 8 + (b - '0');
+            }
+            return size;
+        }
+
+        // Value of the "path" record in pax extended header data ("<length> path=<value>\n")
+        private static String paxPath(String data) {
+            for (String record : data.split("\n")) {
+                int space = record.indexOf(' ');
+                if (space > 0 && record.startsWith("path=", space + 1)) {
+                    return trimName(record.substring(space + 1 + "path=".length()));
+                }
+            }
+            return null;
+        }
+
+        private static String trimName(String name) {
+            int end = name.length();
+            while (end > 0 && name.charAt(end - 1) == 0) end--;
+            String trimmed = name.substring(0, end);
+            return trimmed.startsWith("./") ? trimmed.substring(2) : trimmed;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.cloudcred.scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * ByteLineReader splits a file into lines directly on its bytes.
+ * Small files are read into a reusable per-thread direct buffer and larger files are
+ * memory-mapped. Pure ASCII lines are handed out as a reusable CharSequence view over
+ * the buffer, so no String is built unless the caller asks for one. Lines containing
+ * non-ASCII bytes are decoded as UTF-8 (or ISO-8859-1 when they are not valid UTF-8),
+ * and UTF-16 files (with or without BOM) are decoded whole before splitting.
+ * Line boundaries follow BufferedReader.readLine(): \n, \r and \r\n.
+ */
+final class ByteLineReader {
+
+    /**
+     * Callback invoked for every line of a file.
+     * The CharSequence is only valid for the duration of the call.
+     */
+    interface LineHandler {
+        void onLine(int lineNumber, CharSequence line);
+    }
+
+    // Files larger than this are memory-mapped instead of copied into the reusable buffer
+    private static final int MAP_THRESHOLD = 1 << 20;
+
+    // Bytes sampled to detect UTF-16 without a BOM
+    private static final int SNIFF_BYTES = 4096;
+
+    // Reusable read buffer per scanning thread
+    private static final ThreadLocal<ByteBuffer> BUFFER =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(64 * 1024));
+
+    // Strict UTF-8 decoder per thread, used for non-ASCII lines
+    private static final ThreadLocal<CharsetDecoder> UTF8 = ThreadLocal.withInitial(() ->
+        StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT));
+
+    private ByteLineReader() {
+    }
+
+    /**
+     * Reads all lines of a file and passes them to the handler.
+     * @param file    File to read.
+     * @param handler Receives each line with its 1-based line number.
+     * @return false if the file is too large to address as a single buffer (over 2 GB),
+     *         in which case nothing was read and the caller should fall back to a stream.
+     * @throws IOException If the file cannot be read.
+     */
+    static boolean readLines(File file, LineHandler handler) throws IOException {
+        ByteBuffer buffer = load(file);
+        if (buffer == null) return false;
+        readLines(buffer, handler);
+        return true;
+    }
+
+    /**
+     * Brings a whole file into a buffer with position 0 and the file size as its limit: small
+     * files are read into the reusable per-thread buffer, larger ones are memory-mapped. The
+     * reusable buffer is only valid until the next call on the same thread.
+     * @param file File to read.
+     * @return The buffer, or null if the file is too large to address as a single buffer (over 2 GB).
+     * @throws IOException If the file cannot be read.
+     */
+    static ByteBuffer load(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) return null;
+            if (size > MAP_THRESHOLD) {
+                // The mapping stays valid after the channel is closed
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = reusableBuffer((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full or the file ends
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Splits the bytes between position 0 and the limit of a buffer into lines.
+     * @param buffer  Buffer holding the whole content.
+     * @param handler Receives each line with its 1-based line number.
+     */
+    static void readLines(ByteBuffer buffer, LineHandler handler) {
+        int limit = buffer.limit();
+        Charset utf16 = detectUtf16(buffer, limit);
+        if (utf16 != null) {
+            int skip = hasBom(buffer, limit, utf16) ? 2 : 0;
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(skip);
+            readLines(utf16.decode(slice), handler);
+            return;
+        }
+
+        int lineStart = hasUtf8Bom(buffer, limit) ? 3 : 0;
+        ByteLineView view = new ByteLineView(buffer);
+        int lineNum = 0;
+        boolean ascii = true;
+        for (int i = lineStart; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r') {
+                handler.onLine(++lineNum, line(buffer, view, lineStart, i, ascii));
+                if (b == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n') i++;
+                lineStart = i + 1;
+                ascii = true;
+            } else if (b < 0) {
+                ascii = false;
+            }
+        }
+        if (lineStart < limit) {
+            handler.onLine(++lineNum, line(buffer, view, lineStart, limit, ascii));
+        }
+    }
+
+    // Splits already decoded characters into lines
+    private static void readLines(CharBuffer chars, LineHandler handler) {
+        int limit = chars.limit();
+        int lineStart = 0;
+        int lineNum = 0;
+        for (int i = 0; i < limit; i++) {
+            char c = chars.get(i);
+            if (c == '\n' || c == '\r') {
+                handler.onLine(++lineNum, chars.subSequence(lineStart, i));
+                if (c == '\r' && i + 1 < limit && chars.get(i + 1) == '\n') i++;
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < limit) {
+            handler.onLine(++lineNum, chars.subSequence(lineStart, limit));
+        }
+    }
+
+    // ASCII lines reuse the view; anything else is decoded into a String
+    private static CharSequence line(ByteBuffer buffer, ByteLineView view, int start, int end, boolean ascii) {
+        if (ascii) {
+            view.set(start, end);
+            return view;
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        try {
+            return UTF8.get().decode(ByteBuffer.wrap(bytes));
+        } catch (CharacterCodingException e) {
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    // Returns a cleared per-thread buffer with at least the given capacity
+    private static ByteBuffer reusableBuffer(int size) {
+        ByteBuffer buffer = BUFFER.get();
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(Math.max(size, buffer.capacity() * 2));
+            BUFFER.set(buffer);
+        }
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /**
+     * Detects UTF-16 content by BOM, or by the NUL bytes that ASCII text leaves
+     * in every other position when encoded as UTF-16.
+     * @return UTF_16LE or UTF_16BE, or null for byte-oriented encodings.
+     */
+    static Charset detectUtf16(ByteBuffer buffer, int limit) {
+        if (limit >= 2) {
+            int b0 = buffer.get(0) & 0xff;
+            int b1 = buffer.get(1) & 0xff;
+            if (b0 == 0xFF && b1 == 0xFE) return StandardCharsets.UTF_16LE;
+            if (b0 == 0xFE && b1 == 0xFF) return StandardCharsets.UTF_16BE;
+        }
+
+        int sample = Math.min(limit, SNIFF_BYTES) & ~1;
+        if (sample < 4) return null;
+        int evenZeros = 0;
+        int oddZeros = 0;
+        for (int i = 0; i < sample; i += 2) {
+            if (buffer.get(i) == 0) evenZeros++;
+            if (buffer.get(i + 1) == 0) oddZeros++;
+        }
+        int pairs = sample / 2;
+        if (oddZeros * 10 >= pairs * 7 && evenZeros * 10 <= pairs) return StandardCharsets.UTF_16LE;
+        if (evenZeros * 10 >= pairs * 7 && oddZeros * 10 <= pairs) return StandardCharsets.UTF_16BE;
+        return null;
+    }
+
+    private static boolean hasBom(ByteBuffer buffer, int limit, Charset utf16) {
+        if (limit < 2) return false;
+        int b0 = buffer.get(0) & 0xff;
+        int b1 = buffer.get(1) & 0xff;
+        return utf16.equals(StandardCharsets.UTF_16LE) ? (b0 == 0xFF && b1 == 0xFE) : (b0 == 0xFE && b1 == 0xFF);
+    }
+
+    private static boolean hasUtf8Bom(ByteBuffer buffer, int limit) {
+        return limit >= 3
+            && (buffer.get(0) & 0xff) == 0xEF
+            && (buffer.get(1) & 0xff) == 0xBB
+            && (buffer.get(2) & 0xff) == 0xBF;
+    }
+
+    /**
+     * CharSequence view over an ASCII byte range of a buffer.
+     * Only toString() and subSequence() copy bytes.
+     */
+    static final class ByteLineView implements CharSequence {
+        private final ByteBuffer buffer;
+        private int start;
+        private int length;
+
+        ByteLineView(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void set(int start, int end) {
+            this.start = start;
+            this.length = end - start;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) buffer.get(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[length];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.US_ASCII);
+        }
+    }
+}
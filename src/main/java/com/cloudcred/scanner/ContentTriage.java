@@ -0,0 +1,272 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.metrics.Counter;
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.model.ScanConfig;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * ContentTriage decides from the size and the first block of a file or object how to scan it.
+ * The block is classified as text (with its encoding), binary, or compressed data. Binary and
+ * compressed content is skipped. Text larger than config.maxScanBytes is sampled, meaning only its
+ * first config.sampleBytes are scanned, or skipped when sampling is disabled. Everything else is
+ * scanned in full. Only HEADER_BYTES are needed to decide, so large binaries are never read
+ * through a line reader.
+ */
+final class ContentTriage {
+    private static final Counter SKIPPED_BINARY = Metrics.counter("cloudcred_triage_skipped_total", "Files and objects skipped by content triage", "reason", "binary");
+    private static final Counter SKIPPED_COMPRESSED = Metrics.counter("cloudcred_triage_skipped_total", "Files and objects skipped by content triage", "reason", "compressed");
+    private static final Counter SKIPPED_OVERSIZED = Metrics.counter("cloudcred_triage_skipped_total", "Files and objects skipped by content triage", "reason", "oversized");
+    private static final Counter SAMPLED = Metrics.counter("cloudcred_triage_sampled_total", "Oversized files and objects of which only the beginning was scanned");
+
+    // Size of the block used to classify content
+    static final int HEADER_BYTES = 8192;
+
+    // Share of control characters above which byte-oriented content counts as binary
+    private static final int MAX_CONTROL_PERCENT = 10;
+
+    // Reusable header buffer per scanning thread
+    private static final ThreadLocal<byte[]> HEADER = ThreadLocal.withInitial(() -> new byte[HEADER_BYTES]);
+
+    // Strict UTF-8 decoder per thread, used to tell UTF-8 from legacy 8-bit text
+    private static final ThreadLocal<CharsetDecoder> UTF8 = ThreadLocal.withInitial(() ->
+        StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT));
+    private static final ThreadLocal<CharBuffer> CHARS = ThreadLocal.withInitial(() -> CharBuffer.allocate(HEADER_BYTES));
+
+    enum Kind {
+        TEXT,
+        BINARY,
+        COMPRESSED
+    }
+
+    enum Action {
+        SCAN,
+        SAMPLE,
+        SKIP
+    }
+
+    /**
+     * Outcome of triage: what the content is and how much of it to scan.
+     */
+    static final class Decision {
+        private final Kind kind;
+        private final Charset charset;
+        private final Action action;
+        private final long limit;
+
+        private Decision(Kind kind, Charset charset, Action action, long limit) {
+            this.kind = kind;
+            this.charset = charset;
+            this.action = action;
+            this.limit = limit;
+        }
+
+        // Get the kind of content
+        Kind getKind() {
+            return kind;
+        }
+
+        // Get the detected text encoding (null unless the content is text)
+        Charset getCharset() {
+            return charset;
+        }
+
+        // Get how the content should be scanned
+        Action getAction() {
+            return action;
+        }
+
+        // Get the number of leading bytes to scan (Long.MAX_VALUE unless sampling)
+        long getLimit() {
+            return limit;
+        }
+
+        // Whether the content was skipped for its size rather than its kind
+        boolean isOversized() {
+            return action == Action.SKIP && kind == Kind.TEXT;
+        }
+    }
+
+    private final long maxScanBytes;
+    private final long sampleBytes;
+
+    /**
+     * Creates a triage stage from the scan settings.
+     * @param config Scan configuration (maxScanBytes, sampleBytes).
+     */
+    ContentTriage(ScanConfig config) {
+        this.maxScanBytes = config.maxScanBytes;
+        this.sampleBytes = config.sampleBytes;
+    }
+
+    /**
+     * Decides on size alone, before any content is read.
+     * @param size Size in bytes.
+     * @return A SKIP decision if the content is too large and sampling is disabled, otherwise null.
+     */
+    Decision checkSize(long size) {
+        if (size > maxScanBytes && sampleBytes <= 0) {
+            SKIPPED_OVERSIZED.increment();
+            return new Decision(Kind.TEXT, null, Action.SKIP, 0);
+        }
+        return null;
+    }
+
+    /**
+     * Classifies the first block of a stream without consuming it.
+     * @param in   Stream positioned at the start of the content; must support mark/reset.
+     * @param size Total size in bytes.
+     * @return The decision.
+     * @throws IOException If the stream cannot be read.
+     */
+    Decision decide(InputStream in, long size) throws IOException {
+        byte[] header = HEADER.get();
+        in.mark(HEADER_BYTES);
+        int length = 0;
+        int n;
+        while (length < HEADER_BYTES && (n = in.read(header, length, HEADER_BYTES - length)) > 0) {
+            length += n;
+        }
+        in.reset();
+        return decide(header, length, size);
+    }
+
+    /**
+     * Classifies the first block of content held in a buffer, e.g. a memory-mapped file.
+     * @param content Buffer with the content between position 0 and its limit; not modified.
+     * @param size    Total size in bytes.
+     * @return The decision.
+     */
+    Decision decide(ByteBuffer content, long size) {
+        byte[] header = HEADER.get();
+        int length = Math.min(HEADER_BYTES, content.limit());
+        content.duplicate().position(0).get(header, 0, length);
+        return decide(header, length, size);
+    }
+
+    /**
+     * Classifies a block read from the start of the content.
+     * @param header Leading bytes of the content.
+     * @param length Number of valid bytes in header.
+     * @param size   Total size in bytes.
+     * @return The decision.
+     */
+    Decision decide(byte[] header, int length, long size) {
+        if (isCompressed(header, length)) {
+            SKIPPED_COMPRESSED.increment();
+            return new Decision(Kind.COMPRESSED, null, Action.SKIP, 0);
+        }
+        Charset charset = ByteLineReader.detectUtf16(ByteBuffer.wrap(header, 0, length), length);
+        if (charset == null) {
+            if (isBinary(header, length)) {
+                SKIPPED_BINARY.increment();
+                return new Decision(Kind.BINARY, null, Action.SKIP, 0);
+            }
+            charset = isUtf8(header, length) ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+        }
+        if (size > maxScanBytes) {
+            if (sampleBytes <= 0) {
+                SKIPPED_OVERSIZED.increment();
+                return new Decision(Kind.TEXT, charset, Action.SKIP, 0);
+            }
+            SAMPLED.increment();
+            return new Decision(Kind.TEXT, charset, Action.SAMPLE, sampleBytes);
+        }
+        return new Decision(Kind.TEXT, charset, Action.SCAN, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reports that only the beginning of a file or object is scanned: prints the path, like the
+     * message for skipped oversized files, and records it for the report summary.
+     * @param decision Decision with the SAMPLE action.
+     * @param path     File path or S3 URI.
+     * @param size     Total size in bytes.
+     */
+    static void reportSampled(Decision decision, String path, long size) {
+        System.out.println("⚠️ Scanning only the first " + decision.getLimit() + " bytes of oversized file ("
+                + size + " bytes): " + path);
+        Metrics.registry().sampled().record(path, size, decision.getLimit());
+    }
+
+    /**
+     * Wraps a stream so that at most limit bytes can be read from it.
+     * @param in    Stream to wrap.
+     * @param limit Maximum number of bytes.
+     * @return The limited stream; closing it closes in.
+     */
+    static InputStream limit(InputStream in, long limit) {
+        if (limit == Long.MAX_VALUE) return in;
+        return new FilterInputStream(in) {
+            private long remaining = limit;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) return -1;
+                int b = super.read();
+                if (b >= 0) remaining--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) return -1;
+                int n = super.read(b, off, (int) Math.min(len, remaining));
+                if (n > 0) remaining -= n;
+                return n;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+    }
+
+    // Magic numbers of gzip, zip, bzip2, xz, zstd, 7z, rar and lz4
+    private static boolean isCompressed(byte[] h, int length) {
+        if (length < 4) return false;
+        int b0 = h[0] & 0xff, b1 = h[1] & 0xff, b2 = h[2] & 0xff, b3 = h[3] & 0xff;
+        return (b0 == 0x1F && b1 == 0x8B)
+            || (b0 == 'P' && b1 == 'K' && b2 == 3 && b3 == 4)
+            || (b0 == 'B' && b1 == 'Z' && b2 == 'h')
+            || (b0 == 0xFD && b1 == '7' && b2 == 'z' && b3 == 'X')
+            || (b0 == 0x28 && b1 == 0xB5 && b2 == 0x2F && b3 == 0xFD)
+            || (b0 == '7' && b1 == 'z' && b2 == 0xBC && b3 == 0xAF)
+            || (b0 == 'R' && b1 == 'a' && b2 == 'r' && b3 == '!')
+            || (b0 == 0x04 && b1 == 0x22 && b2 == 0x4D && b3 == 0x18);
+    }
+
+    // NUL bytes never occur in 8-bit text; other control characters are tolerated up to a limit
+    private static boolean isBinary(byte[] h, int length) {
+        int control = 0;
+        for (int i = 0; i < length; i++) {
+            int b = h[i] & 0xff;
+            if (b == 0) return true;
+            // Tab, line feed, form feed, carriage return and escape (terminal colors in logs) are text
+            if ((b < 0x20 && b != '\t' && b != '\n' && b != '\f' && b != '\r' && b != 0x1B) || b == 0x7F) {
+                control++;
+            }
+        }
+        return control * 100 > length * MAX_CONTROL_PERCENT;
+    }
+
+    // Valid UTF-8, allowing a multi-byte character to be cut off at the end of the block
+    private static boolean isUtf8(byte[] h, int length) {
+        CharsetDecoder decoder = UTF8.get().reset();
+        CharBuffer out = CHARS.get();
+        out.clear();
+        return !decoder.decode(ByteBuffer.wrap(h, 0, length), out, false).isError();
+    }
+}
@@ -0,0 +1,253 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.alert.AlertService;
+import com.cloudcred.metrics.Counter;
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.metrics.Timer;
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.ScanConfig;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+
+/**
+ * DirectoryWatcher keeps a directory tree under continuous watch and rescans only what changes.
+ * Every directory is registered with a WatchService, and new directories are registered as they
+ * appear. Change events are debounced per file: a file is rescanned once it has been quiet for
+ * config.watchDebounceMillis, or after four times that while it keeps changing, so alerts arrive
+ * within about a second. Findings that were not in the file before are sent to the AlertService,
+ * which should not deduplicate on its own: a finding removed from a file and added back is new again.
+ * If the event queue overflows, the whole tree is walked again to pick up missed changes.
+ * With no pending changes the watcher blocks on the WatchService and uses no CPU.
+ */
+public class DirectoryWatcher implements AutoCloseable {
+    private static final Counter EVENTS = Metrics.counter("cloudcred_watch_events_total", "File system change events received");
+    private static final Counter OVERFLOWS = Metrics.counter("cloudcred_watch_overflows_total", "Watch event queue overflows recovered by a full rescan");
+    private static final Timer RESCAN = Metrics.timer("cloudcred_watch_rescan_seconds", "Time to rescan one debounced batch of changed files");
+
+    private final ScanConfig config;
+    private final AlertService alerts;
+    private final FileScanner scanner;
+    private final WatchService watcher;
+    // Registered directories
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+    // Changed files waiting for their debounce delay: path -> {first event, last event} in millis
+    private final Map<Path, long[]> pending = new HashMap<>();
+    // Findings currently present per file, as rule + secret hash + masked snippet; files without findings are absent
+    private final Map<Path, Set<String>> known = new HashMap<>();
+    private final Path root;
+
+    /**
+     * Creates a watcher for config.path.
+     * @param config Scan settings (path, extensions, ignore list, minimum severity, debounce delay).
+     * @param alerts Receives new findings.
+     * @throws IOException If the WatchService cannot be created.
+     */
+    public DirectoryWatcher(ScanConfig config, AlertService alerts) throws IOException {
+        this.config = config;
+        this.alerts = alerts;
+        this.scanner = new FileScanner(config);
+        this.root = Paths.get(config.path).toAbsolutePath().normalize();
+        this.watcher = root.getFileSystem().newWatchService();
+    }
+
+    /**
+     * Registers the tree, scans it once as a baseline (no alerts) and then processes changes
+     * until close() is called.
+     */
+    public void run() {
+        System.out.println("Watching " + root + " for changes (Ctrl+C to stop)...");
+        int files = registerTree(root, true);
+        // The baseline uses the normal (parallel) directory scan
+        scanner.scanDirectory(root.toString(), finding -> known
+                .computeIfAbsent(Paths.get(finding.getFilePath()), p -> new HashSet<>())
+                .add(key(finding)));
+        int baseline = known.values().stream().mapToInt(Set::size).sum();
+        System.out.println("Baseline: " + files + " files, " + baseline + " existing findings. Watching...");
+
+        long debounce = Math.max(1, config.watchDebounceMillis);
+        try {
+            while (true) {
+                // Block without a timeout while nothing is pending
+                WatchKey key = pending.isEmpty()
+                        ? watcher.take()
+                        : watcher.poll(nextDueIn(debounce), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    handle(key);
+                    // Collect everything that is already queued before scanning
+                    while ((key = watcher.poll()) != null) {
+                        handle(key);
+                    }
+                }
+                rescanDue(debounce);
+            }
+        } catch (ClosedWatchServiceException e) {
+            // close() was called
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the watcher; run() returns shortly after.
+     */
+    @Override
+    public void close() {
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close watch service: " + e.getMessage());
+        }
+    }
+
+    // Queues the files named by one key's events
+    private void handle(WatchKey key) {
+        Path dir = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            EVENTS.increment();
+            if (event.kind() == OVERFLOW) {
+                OVERFLOWS.increment();
+                System.out.println("⚠️ Too many changes at once, rescanning " + root);
+                registerTree(root, false);
+                continue;
+            }
+            if (dir == null) continue;
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                // Files may have been written before the directory was registered
+                registerTree(path, false);
+            } else if (event.kind() == ENTRY_DELETE) {
+                forgetTree(path);
+            } else {
+                touch(path);
+            }
+        }
+        if (!key.reset()) {
+            // The directory is gone
+            keys.remove(key);
+        }
+    }
+
+    /**
+     * Registers every directory below start and queues its files for a rescan (except for the baseline).
+     * @return Number of files found.
+     */
+    private int registerTree(Path start, boolean baseline) {
+        int[] files = {0};
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root) && isSkippedDirectory(dir)) return FileVisitResult.SKIP_SUBTREE;
+                    try {
+                        keys.put(dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+                    } catch (IOException e) {
+                        System.err.println("Cannot watch " + dir + " - " + e.getMessage());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        files[0]++;
+                        if (!baseline) touch(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Cannot watch " + start + " - " + e.getMessage());
+        }
+        return files[0];
+    }
+
+    // Version control metadata changes constantly and holds no working files
+    private boolean isSkippedDirectory(Path dir) {
+        String name = dir.getFileName().toString();
+        return name.equals(".git") || config.ignoreFilenames.contains(name);
+    }
+
+    private void touch(Path file) {
+        long now = System.currentTimeMillis();
+        long[] times = pending.get(file);
+        if (times == null) {
+            pending.put(file, new long[]{now, now});
+        } else {
+            times[1] = now;
+        }
+    }
+
+    // Drops state for a deleted file or directory
+    private void forgetTree(Path path) {
+        pending.keySet().removeIf(p -> p.startsWith(path));
+        known.keySet().removeIf(p -> p.startsWith(path));
+    }
+
+    // Milliseconds until the earliest pending file is due
+    private long nextDueIn(long debounce) {
+        long now = System.currentTimeMillis();
+        long next = Long.MAX_VALUE;
+        for (long[] times : pending.values()) {
+            next = Math.min(next, dueAt(times, debounce));
+        }
+        return Math.max(1, next - now);
+    }
+
+    // Quiet for the debounce delay, or changing for four times as long
+    private static long dueAt(long[] times, long debounce) {
+        return Math.min(times[1] + debounce, times[0] + 4 * debounce);
+    }
+
+    private void rescanDue(long debounce) {
+        if (pending.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        long started = Metrics.start();
+        boolean scanned = false;
+        Iterator<Map.Entry<Path, long[]>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, long[]> entry = it.next();
+            if (dueAt(entry.getValue(), debounce) <= now) {
+                it.remove();
+                rescan(entry.getKey());
+                scanned = true;
+            }
+        }
+        if (scanned) RESCAN.record(started);
+    }
+
+    // Rescans one file and alerts on findings it did not have before
+    private void rescan(Path file) {
+        List<Finding> findings = Files.isRegularFile(file) ? scanner.scanSingleFile(file.toFile()) : Collections.emptyList();
+        Set<String> previous = known.getOrDefault(file, Collections.emptySet());
+        Set<String> current = new HashSet<>();
+        for (Finding finding : findings) {
+            String key = key(finding);
+            current.add(key);
+            if (!previous.contains(key) && finding.getSeverity().atLeast(config.minSeverity)) {
+                alerts.sendAlert(finding);
+            }
+        }
+        if (current.isEmpty()) {
+            known.remove(file);
+        } else {
+            known.put(file, current);
+        }
+    }
+
+    // Identity of a finding within its file; line numbers are left out so edits above it do not re-alert
+    private static String key(Finding finding) {
+        return finding.getRuleId() + '\u0000' + finding.getSecretHash() + '\u0000' + finding.getSuspiciousLine();
+    }
+}
@@ -0,0 +1,213 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.ScanConfig;
+
+import java.util.Locale;
+import java.util.Objects;
+
+
+/**
+ * Flags high-entropy tokens, the LOW tier of both match engines.
+ * A line is split into runs of token characters ([A-Za-z0-9+/_-]) in one pass, directly on the
+ * CharSequence: no substrings, regex or boxing. Each run within the length bounds is classified
+ * by the characters it uses and its Shannon entropy (bits per character) is compared with the
+ * threshold for that charset, capped for short tokens (see SHORT_TOKEN_MARGIN):
+ * - hex: only [0-9a-fA-F], with at least one digit and one letter
+ * - alphanumeric: letters and digits, with at least one of each
+ * - base64: anything that also uses + / - or _, with at least one letter and one digit
+ * Pure numbers, pure words and identifiers without digits are never flagged. Hex runs with the
+ * length of a common digest (MD5, SHA-1 / git object ids, SHA-256) are skipped unless configured
+ * otherwise, because they are usually hashes rather than secrets.
+ * Detectors are immutable and safe to share between threads.
+ */
+public class EntropyDetector {
+    // Rule id reported for high-entropy tokens
+    public static final String RULE_ID = "high-entropy-string";
+
+    // Longest token length the lookup tables cover
+    static final int MAX_SUPPORTED_LENGTH = 4096;
+
+    // A token of n characters has at most log2(n) bits per character, so a fixed threshold can be
+    // out of reach for short tokens (the default 4.5 for base64 needs 23 characters, the minimum
+    // length is 20). The threshold for a token is therefore at most log2(n) minus this margin,
+    // which a random token of that length reaches; longer tokens keep the configured threshold.
+    static final double SHORT_TOKEN_MARGIN = 0.5;
+
+    // Character classes; 0 means "not a token character"
+    private static final byte DIGIT = 1;
+    private static final byte HEX_LETTER = 2;
+    private static final byte OTHER_LETTER = 4;
+    private static final byte SYMBOL = 8;
+    private static final byte[] CLASSES = new byte[128];
+
+    // log2(n) and n*log2(n), so entropy needs no Math.log calls per token
+    private static final double[] LOG2 = new double[MAX_SUPPORTED_LENGTH + 1];
+    private static final double[] N_LOG2_N = new double[MAX_SUPPORTED_LENGTH + 1];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) CLASSES[c] = DIGIT;
+        for (char c = 'a'; c <= 'z'; c++) CLASSES[c] = c <= 'f' ? HEX_LETTER : OTHER_LETTER;
+        for (char c = 'A'; c <= 'Z'; c++) CLASSES[c] = c <= 'F' ? HEX_LETTER : OTHER_LETTER;
+        CLASSES['+'] = SYMBOL;
+        CLASSES['/'] = SYMBOL;
+        CLASSES['-'] = SYMBOL;
+        CLASSES['_'] = SYMBOL;
+
+        for (int n = 1; n <= MAX_SUPPORTED_LENGTH; n++) {
+            LOG2[n] = Math.log(n) / Math.log(2);
+            N_LOG2_N[n] = n * LOG2[n];
+        }
+    }
+
+    private final int minLength;
+    private final int maxLength;
+    private final double hexThreshold;
+    private final double base64Threshold;
+    private final double alphanumericThreshold;
+    private final boolean flagDigests;
+
+    // Per-thread character counts, zeroed again after every token
+    private final ThreadLocal<int[]> counts = ThreadLocal.withInitial(() -> new int[128]);
+
+    /**
+     * Constructs an EntropyDetector.
+     * @param minLength             Shortest token that is scored.
+     * @param maxLength             Longest token that is scored; longer runs are treated as embedded data.
+     * @param hexThreshold          Minimum entropy in bits per character for hex tokens.
+     * @param base64Threshold       Minimum entropy for base64-style tokens.
+     * @param alphanumericThreshold Minimum entropy for alphanumeric tokens.
+     * @param flagDigests           Whether hex tokens of digest lengths (32, 40, 64) are scored.
+     */
+    public EntropyDetector(int minLength, int maxLength, double hexThreshold, double base64Threshold,
+                           double alphanumericThreshold, boolean flagDigests) {
+        this.minLength = Math.max(2, Math.min(minLength, MAX_SUPPORTED_LENGTH));
+        this.maxLength = Math.max(this.minLength, Math.min(maxLength, MAX_SUPPORTED_LENGTH));
+        this.hexThreshold = hexThreshold;
+        this.base64Threshold = base64Threshold;
+        this.alphanumericThreshold = alphanumericThreshold;
+        this.flagDigests = flagDigests;
+    }
+
+    /**
+     * Creates a detector with the entropy settings of a scan.
+     * @param config Scan configuration.
+     * @return Detector for config.entropy* settings.
+     */
+    public static EntropyDetector fromConfig(ScanConfig config) {
+        return new EntropyDetector(config.entropyMinLength, config.entropyMaxLength, config.entropyHexThreshold,
+                config.entropyBase64Threshold, config.entropyAlphanumericThreshold, config.entropyFlagDigests);
+    }
+
+    // Get the shortest token length that is scored
+    public int getMinLength() {
+        return minLength;
+    }
+
+    /**
+     * Finds the first high-entropy token in a line.
+     * @param line Line content without line terminator.
+     * @return A LOW match spanning the token (and any trailing '=' padding), or null.
+     */
+    public RuleMatch find(CharSequence line) {
+        return find(line, 0, line.length());
+    }
+
+    /**
+     * Finds the first high-entropy token in the range line[from..to), without copying it.
+     * Tokens are cut at the edges of the range.
+     * @param line Line content without line terminator.
+     * @param from Start of the range (inclusive).
+     * @param to   End of the range (exclusive).
+     * @return A LOW match with offsets in the line, or null.
+     */
+    public RuleMatch find(CharSequence line, int from, int to) {
+        int i = from;
+        while (i < to) {
+            if (!isTokenChar(line.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            int classes = 0;
+            char c;
+            while (i < to && isTokenChar(c = line.charAt(i))) {
+                classes |= CLASSES[c];
+                i++;
+            }
+            int n = i - start;
+            if (n < minLength || n > maxLength) continue;
+
+            double threshold = threshold(classes, n);
+            if (!Double.isNaN(threshold) && entropy(line, start, i) >= threshold) {
+                int end = i;
+                while (end < to && end - i < 2 && line.charAt(end) == '=') end++;
+                return new RuleMatch(RULE_ID, Severity.LOW, start, end);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Shannon entropy of line[start..end) in bits per character.
+     * Only token characters may occur in the range; the counts are reset before returning.
+     */
+    double entropy(CharSequence line, int start, int end) {
+        int[] counts = this.counts.get();
+        for (int k = start; k < end; k++) {
+            counts[line.charAt(k)]++;
+        }
+        // H = log2(n) - sum(c * log2(c)) / n, summing each distinct character once
+        double sum = 0;
+        for (int k = start; k < end; k++) {
+            char c = line.charAt(k);
+            int count = counts[c];
+            if (count != 0) {
+                sum += N_LOG2_N[count];
+                counts[c] = 0;
+            }
+        }
+        int n = end - start;
+        return LOG2[n] - sum / n;
+    }
+
+    // Threshold for a token of the given classes and length, or NaN if it is not a candidate
+    private double threshold(int classes, int length) {
+        boolean digit = (classes & DIGIT) != 0;
+        boolean letter = (classes & (HEX_LETTER | OTHER_LETTER)) != 0;
+        if (!digit || !letter) return Double.NaN;
+        double reachable = LOG2[length] - SHORT_TOKEN_MARGIN;
+        if ((classes & SYMBOL) != 0) return Math.min(base64Threshold, reachable);
+        if ((classes & OTHER_LETTER) != 0) return Math.min(alphanumericThreshold, reachable);
+        if (!flagDigests && (length == 32 || length == 40 || length == 64)) return Double.NaN;
+        return Math.min(hexThreshold, reachable);
+    }
+
+    // Characters that can be part of a token
+    static boolean isTokenChar(char c) {
+        return c < 128 && CLASSES[c] != 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EntropyDetector)) return false;
+        EntropyDetector other = (EntropyDetector) o;
+        return minLength == other.minLength && maxLength == other.maxLength
+                && Double.compare(hexThreshold, other.hexThreshold) == 0
+                && Double.compare(base64Threshold, other.base64Threshold) == 0
+                && Double.compare(alphanumericThreshold, other.alphanumericThreshold) == 0
+                && flagDigests == other.flagDigests;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minLength, maxLength, hexThreshold, base64Threshold, alphanumericThreshold, flagDigests);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "entropy[length=%d..%d,hex=%s,base64=%s,alphanumeric=%s,digests=%b,shortMargin=%s]",
+                minLength, maxLength, hexThreshold, base64Threshold, alphanumericThreshold, flagDigests, SHORT_TOKEN_MARGIN);
+    }
+}
@@ -1,21 +1,47 @@
 package com.cloudcred.scanner;
 
+import com.cloudcred.metrics.Counter;
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.metrics.Timer;
 import com.cloudcred.model.Finding;
-import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.FindingSink;
 import com.cloudcred.model.ScanConfig;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.regex.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 
 /**
  * FileScanner scans local files and directories for sensitive credential leaks.
- * It uses regex patterns and key-value heuristics to classify findings by severity.
+ * It uses the shared MatchEngine (regex rules, key-value heuristic and entropy detector) to classify findings by severity.
+ * JSON, YAML, .properties/.env, .ini and XML files are also read by a format-aware KeyPathTokenizer, which
+ * replaces the line-based key-value heuristic for them and attributes findings to key paths.
  */
 public class FileScanner {
+    private static final Timer SCAN_PHASE = Metrics.timer("cloudcred_phase_seconds", "Wall time of each scan phase", "phase", "local_scan");
+    private static final Timer LIST_DIRECTORY = Metrics.timer("cloudcred_directory_list_seconds", "Time to list one directory");
+    private static final Timer FILE_SCAN = Metrics.timer("cloudcred_file_scan_seconds", "Time to read and match one local file");
+    private static final Timer FILE_MATCH = Metrics.timer("cloudcred_file_match_seconds", "Time spent classifying the lines of one local file");
+    private static final Counter FILES_SCANNED = Metrics.counter("cloudcred_files_scanned_total", "Local files read and matched");
+    private static final Counter BYTES_SCANNED = Metrics.counter("cloudcred_bytes_scanned_total", "Bytes of local files read and matched");
+    private static final Counter LINES_SCANNED = Metrics.counter("cloudcred_lines_scanned_total", "Lines of local files classified");
+    private static final Counter INDEX_HITS = Metrics.counter("cloudcred_index_hits_total", "Local files answered from the scan index");
+
     // Configuration for scan (extensions, ignore list, etc.)
     private final ScanConfig config;
+    // Compiled detection rules, shared by all scanners with the same settings; replaced when a rule pack is edited
+    private volatile Detection detection;
+    // Classifies content before it is scanned (null unless config.contentTriage)
+    private final ContentTriage triage;
 
     /**
      * Constructor for FileScanner.
@@ -23,112 +49,465 @@ public class FileScanner {
      */
     public FileScanner(ScanConfig config) {
         this.config = config;
+        this.detection = detection();
+        this.triage = config.contentTriage ? new ContentTriage(config) : null;
     }
 
-    // Regex for high risk credentials (AWS keys, secrets)
-    private static final Pattern HIGH_PATTERN = Pattern.compile(
-        "(AKIA[0-9A-Z]{16})|(aws_secret_access_key\\s*=\\s*[A-Za-z0-9/+=]{40})"
-    );
+    // Match engine of the current rules and the archive scanner that uses it
+    private static final class Detection {
+        final MatchEngine engine;
+        // Reads entries of zip/jar/war/tar archives (null unless config.scanArchives)
+        final ArchiveScanner archives;
 
-    // Regex for medium risk credentials (tokens, secrets, keys)
-    private static final Pattern MEDIUM_PATTERN = Pattern.compile(
-        "(?i)(secret|token|key).{0,20}[=:]?\\s*[A-Za-z0-9/+=]{30,60}"
-    );
+        Detection(MatchEngine engine, ArchiveScanner archives) {
+            this.engine = engine;
+            this.archives = archives;
+        }
+    }
 
-    // Regex for low risk: long random strings that could be secrets
-    private static final Pattern LOW_PATTERN = Pattern.compile(
-        "\\b[A-Za-z0-9/+=]{40}\\b"
-    );
+    // Detection for the current rules; rebuilt when an edited rule pack gives a new engine
+    private Detection detection() {
+        MatchEngine engine = MatchEngine.forFiles(config);
+        Detection current = detection;
+        if (current == null || current.engine != engine) {
+            current = new Detection(engine, config.scanArchives ? new ArchiveScanner(config, engine) : null);
+            detection = current;
+        }
+        return current;
+    }
 
     /**
      * Scans the directory recursively for files and sensitive content.
+     * When config.parallelism is greater than 1, directories are walked and files scanned
+     * on a fork-join pool; findings are still returned in the same order as the sequential walk.
+     * With config.shardCount above 1 only the files of shard config.shardIndex are scanned.
      * @param path Root directory path to scan.
      * @return List of detected findings.
      */
     public List<Finding> scanDirectory(String path) {
         List<Finding> findings = new ArrayList<>();
+        scanDirectory(path, findings::add);
+        return findings;
+    }
+
+    /**
+     * Scans the directory recursively and emits each finding into the sink as soon as it can be
+     * delivered in sequential walk order. In parallel mode a file's findings are held back only
+     * until every earlier file has been emitted. The sink is never called concurrently.
+     * @param path Root directory path to scan.
+     * @param sink Receives findings as they are produced.
+     * @return False if the root is not a readable directory or the scan index could not be saved.
+     */
+    public boolean scanDirectory(String path, FindingSink sink) {
         File root = new File(path);
-        scanRecursive(root, findings);
+        if (!root.isDirectory() || !root.canRead()) {
+            System.out.println("❌ Not a readable directory: " + path);
+            return false;
+        }
+        long started = Metrics.start();
+        Detection detection = detection();
+        ScanIndex index = config.indexPath != null
+                ? ScanIndex.load(ScanIndex.location(config.indexPath, config), ScanIndex.fingerprint(detection.engine, config)) : null;
+        // State of this call only: the scanner may be shared by overlapping calls (server, watcher)
+        ScanRun run = new ScanRun(root.toPath(), index, detection);
+        try {
+            if (config.parallelism <= 1) {
+                scanRecursive(root, run, sink);
+            } else {
+                scanParallel(root, run, sink);
+            }
+        } finally {
+            SCAN_PHASE.record(started);
+        }
+        return index == null || index.save(key -> inScope(run, key));
+    }
+
+    // Per-call state of scanDirectory
+    private static final class ScanRun {
+        // Scanned root; shard keys are relative to it
+        final Path root;
+        // Incremental scan index (null when disabled)
+        final ScanIndex index;
+        // Rules of the call, the same for every file
+        final Detection detection;
+
+        ScanRun(Path root, ScanIndex index, Detection detection) {
+            this.root = root;
+            this.index = index;
+            this.detection = detection;
+        }
+    }
+
+    /**
+     * Scans one file, e.g. a file reported as changed by DirectoryWatcher.
+     * The extension and ignore rules apply; the scan index is not used.
+     * @param file File to scan.
+     * @return Findings in the file (empty if it is skipped or unreadable).
+     */
+    public List<Finding> scanSingleFile(File file) {
+        List<Finding> findings = new ArrayList<>();
+        if (file.isFile() && file.canRead() && shouldScan(file)) {
+            scanContent(file, detection(), findings::add);
+        }
         return findings;
     }
 
+    // Walks and scans on a fork-join pool, emitting through a single ordered emitter thread
+    private void scanParallel(File root, ScanRun run, FindingSink sink) {
+        ForkJoinPool pool = new ForkJoinPool(config.parallelism);
+        ExecutorService emitter = Executors.newSingleThreadExecutor();
+        try {
+            StreamTask task = new StreamTask(root, run, CompletableFuture.completedFuture(null), sink, emitter);
+            pool.invoke(task);
+            task.done.join();
+        } finally {
+            pool.shutdown();
+            emitter.shutdown();
+        }
+    }
+
     /**
      * Recursively scans files and subdirectories.
      * @param file File or directory to scan.
-     * @param findings List to collect findings.
+     * @param run  State of the scanDirectory call.
+     * @param sink Receives findings.
      */
-    private void scanRecursive(File file, List<Finding> findings) {
+    private void scanRecursive(File file, ScanRun run, FindingSink sink) {
         if (file.isDirectory()) {
+            long started = Metrics.start();
             File[] children = file.listFiles();
+            LIST_DIRECTORY.record(started);
             if (children != null) {
                 for (File f : children) {
-                    scanRecursive(f, findings);
+                    scanRecursive(f, run, sink);
                 }
             }
-        } else if (file.isFile() && file.canRead() && shouldScan(file)) {
-            scanFile(file, findings);
+        } else if (file.isFile() && file.canRead() && shouldScan(file) && inShard(run, file)) {
+            scanFile(file, run, sink);
         }
     }
 
     /**
-     * Scans a single file for sensitive patterns.
-     * @param file File to scan.
-     * @param findings List to collect findings.
+     * Fork-join task that scans one file or directory and streams its findings in walk order.
+     * Every task is given the future of its predecessor in the sequential walk and completes its own
+     * future once its findings (or, for a directory, those of its last child) have been emitted.
+     * Emission runs on the single emitter thread, which keeps the chain from recursing and
+     * serializes calls into the sink.
      */
-    private void scanFile(File file, List<Finding> findings) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            int lineNum = 0;
-
-            while ((line = reader.readLine()) != null) {
-                lineNum++;
-
-                // Check for high, medium, and low severity patterns
-                if (HIGH_PATTERN.matcher(line).find()) {
-                    findings.add(new Finding(file.getPath(), lineNum, line.trim(), Severity.HIGH));
-                } else if (MEDIUM_PATTERN.matcher(line).find()) {
-                    findings.add(new Finding(file.getPath(), lineNum, line.trim(), Severity.MEDIUM));
-                } else if (LOW_PATTERN.matcher(line).find()) {
-                    findings.add(new Finding(file.getPath(), lineNum, line.trim(), Severity.LOW));
-                } else if (line.contains("=") || line.contains(":")) {
-                    // Heuristic: check key-value pairs for suspicious keys/values
-                    checkKeyValuePattern(file.getPath(), line, lineNum, findings);
+    private class StreamTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File file;
+        private final ScanRun run;
+        private final CompletableFuture<Void> predecessor;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final FindingSink sink;
+        private final Executor emitter;
+
+        StreamTask(File file, ScanRun run, CompletableFuture<Void> predecessor, FindingSink sink, Executor emitter) {
+            this.file = file;
+            this.run = run;
+            this.predecessor = predecessor;
+            this.sink = sink;
+            this.emitter = emitter;
+        }
+
+        @Override
+        protected void compute() {
+            if (file.isDirectory()) {
+                long started = Metrics.start();
+                File[] children = file.listFiles();
+                LIST_DIRECTORY.record(started);
+                List<StreamTask> tasks = new ArrayList<>();
+                CompletableFuture<Void> previous = predecessor;
+                if (children != null) {
+                    for (File f : children) {
+                        StreamTask task = new StreamTask(f, run, previous, sink, emitter);
+                        tasks.add(task);
+                        previous = task.done;
+                    }
                 }
+                previous.thenRunAsync(() -> done.complete(null), emitter);
+                invokeAll(tasks);
+                return;
             }
 
+            List<Finding> findings = new ArrayList<>();
+            try {
+                if (file.isFile() && file.canRead() && shouldScan(file) && inShard(run, file)) {
+                    scanFile(file, run, findings::add);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Error scanning file: " + file.getPath() + " - " + e.getMessage());
+            }
+            if (findings.isEmpty() && predecessor.isDone()) {
+                // Nothing to emit and nothing to wait for
+                done.complete(null);
+                return;
+            }
+            predecessor.thenRunAsync(() -> {
+                try {
+                    findings.forEach(sink::accept);
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to deliver findings for " + file.getPath() + " - " + e.getMessage());
+                } finally {
+                    done.complete(null);
+                }
+            }, emitter);
+        }
+    }
+
+    /**
+     * Scans a single file, answering from the scan index when the file is unchanged.
+     * A file is unchanged if its size and mtime match the index; if only the mtime
+     * differs, its content hash is compared before rescanning.
+     * @param file File to scan.
+     * @param run  State of the scanDirectory call.
+     * @param sink Receives findings.
+     */
+    private void scanFile(File file, ScanRun run, FindingSink sink) {
+        ScanIndex index = run.index;
+        if (index == null) {
+            scanContent(file, run.detection, sink);
+            return;
+        }
+
+        String key = file.getPath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+        ScanIndex.Entry cached = index.lookup(key);
+        if (cached != null && cached.getSize() == size && cached.getLastModified() == lastModified) {
+            INDEX_HITS.increment();
+            cached.getFindings().forEach(sink::accept);
+            return;
+        }
+
+        String hash;
+        try {
+            hash = ScanIndex.hashFile(file);
         } catch (IOException e) {
             System.err.println("Error reading file: " + file.getPath() + " - " + e.getMessage());
+            return;
+        }
+        if (cached != null && cached.getSize() == size && cached.getContentHash().equals(hash)) {
+            INDEX_HITS.increment();
+            index.update(key, new ScanIndex.Entry(size, lastModified, hash, cached.getFindings()));
+            cached.getFindings().forEach(sink::accept);
+            return;
         }
+
+        List<Finding> fresh = new ArrayList<>();
+        scanContent(file, run.detection, fresh::add);
+        index.update(key, new ScanIndex.Entry(size, lastModified, hash, fresh));
+        fresh.forEach(sink::accept);
     }
 
     /**
-     * Checks key-value pairs for suspicious keys and values.
+     * Scans a single file for sensitive patterns.
+     * With content triage, the first block decides whether the file is skipped (binary,
+     * compressed, or oversized without sampling), sampled, or scanned in the detected encoding.
+     * In memory-mapped mode the file is opened once: triage looks at the start of the mapped
+     * buffer, lines are matched on the file's bytes, and only lines that produce a finding are
+     * turned into Strings.
+     * @param file      File to scan.
+     * @param detection Rules to scan with.
+     * @param sink      Receives findings.
+     */
+    private void scanContent(File file, Detection detection, FindingSink sink) {
+        long started = Metrics.start();
+        // Line count, classification time and bytes matched, for the metrics
+        long[] stats = new long[3];
+        try {
+            if (detection.archives != null && ArchiveScanner.isArchive(file.getName())) {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+                    detection.archives.scan(file.getPath(), in, null, sink);
+                    stats[2] = file.length();
+                } catch (IOException e) {
+                    System.err.println("Error reading archive: " + file.getPath() + " - " + e.getMessage());
+                }
+                return;
+            }
+            try {
+                ByteBuffer buffer = config.memoryMappedScan ? ByteLineReader.load(file) : null;
+                if (buffer != null) {
+                    scanBuffer(file.getPath(), buffer, detection.engine, sink, stats);
+                } else {
+                    // The triage block is read through the same stream the lines are read from
+                    try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+                        scanLines(file.getPath(), in, file.length(), detection.engine, sink, stats);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading file: " + file.getPath() + " - " + e.getMessage());
+            }
+        } finally {
+            if (started != 0) {
+                long elapsed = FILE_SCAN.record(started);
+                FILE_MATCH.recordNanos(stats[1]);
+                FILES_SCANNED.increment();
+                LINES_SCANNED.add(stats[0]);
+                // Only what was matched: skipped files add nothing and sampled files their sample
+                BYTES_SCANNED.add(stats[2]);
+                Metrics.registry().slowest().record(file.getPath(), elapsed, file.length());
+            }
+        }
+    }
+
+    /**
+     * Scans content that does not come from a local file, e.g. content posted to the scan server.
+     * Archive handling (when enabled) and content triage apply as for files; the extension and
+     * ignore rules do not, since the caller chose what to scan.
+     * @param name Name reported as the path of the findings; its extension selects archive handling.
+     * @param in   Content; read up to its end (or the sample limit) but not closed.
+     * @param size Content length in bytes, or -1 if unknown.
+     * @return Findings in the content.
+     * @throws IOException If the content cannot be read.
+     */
+    public List<Finding> scanStream(String name, InputStream in, long size) throws IOException {
+        List<Finding> findings = new ArrayList<>();
+        Detection detection = detection();
+        InputStream buffered = new BufferedInputStream(in, 64 * 1024);
+        if (detection.archives != null && ArchiveScanner.isArchive(name)) {
+            detection.archives.scan(name, buffered, null, findings::add);
+        } else {
+            scanLines(name, buffered, Math.max(0, size), detection.engine, findings::add, new long[3]);
+        }
+        return findings;
+    }
+
+    /**
+     * Triages content and classifies its lines.
+     * @param path   Path reported for findings.
+     * @param in     Buffered content stream positioned at the start.
+     * @param size   Content length in bytes.
+     * @param engine Engine to classify lines with.
+     * @param sink   Receives findings.
+     * @param stats  Line count, classification nanoseconds and bytes matched.
+     */
+    private void scanLines(String path, InputStream in, long size, MatchEngine engine,
+                           FindingSink sink, long[] stats) throws IOException {
+        // Same charset FileReader uses
+        Charset charset = Charset.defaultCharset();
+        long limit = Long.MAX_VALUE;
+        if (triage != null) {
+            ContentTriage.Decision decision = triage.decide(in, size);
+            if (skipped(decision, path, size)) return;
+            charset = decision.getCharset();
+            limit = decision.getLimit();
+        }
+
+        KeyPathTokenizer tokenizer = config.structuredScan ? KeyPathTokenizer.forFile(path) : null;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(ContentTriage.limit(in, limit), charset));
+        String line;
+        int lineNum = 0;
+
+        while ((line = reader.readLine()) != null) {
+            lineNum++;
+            inspectLine(path, lineNum, line, engine, tokenizer, sink, stats);
+        }
+        stats[2] = Math.min(size, limit);
+    }
+
+    /**
+     * Triages a file held in a buffer and classifies its lines on the bytes.
+     * @param path   Path reported for findings.
+     * @param buffer Whole file, from position 0 to its limit.
+     * @param engine Engine to classify lines with.
+     * @param sink   Receives findings.
+     * @param stats  Line count, classification nanoseconds and bytes matched.
+     */
+    private void scanBuffer(String path, ByteBuffer buffer, MatchEngine engine, FindingSink sink, long[] stats) {
+        long size = buffer.limit();
+        if (triage != null) {
+            ContentTriage.Decision decision = triage.decide(buffer, size);
+            if (skipped(decision, path, size)) return;
+            // A sample is the leading part of the buffer
+            if (decision.getLimit() < size) buffer.limit((int) decision.getLimit());
+        }
+        KeyPathTokenizer tokenizer = config.structuredScan ? KeyPathTokenizer.forFile(path) : null;
+        ByteLineReader.readLines(buffer, (lineNum, line) -> inspectLine(path, lineNum, line, engine, tokenizer, sink, stats));
+        stats[2] = buffer.limit();
+    }
+
+    // Whether triage skips the content, reporting oversized files whether skipped or sampled
+    private static boolean skipped(ContentTriage.Decision decision, String path, long size) {
+        if (decision.getAction() == ContentTriage.Action.SAMPLE) ContentTriage.reportSampled(decision, path, size);
+        if (decision.getAction() != ContentTriage.Action.SKIP) return false;
+        if (decision.isOversized()) {
+            System.out.println("⚠️ Skipping oversized file (" + size + " bytes): " + path);
+        }
+        return true;
+    }
+
+    /**
+     * Classifies one line and records a finding if it matches.
      * @param filePath Path of the file.
-     * @param line Line content.
      * @param lineNum Line number.
-     * @param findings List to collect findings.
+     * @param line Line content.
+     * @param engine Engine to classify the line with.
+     * @param tokenizer Key path tokenizer of a structured file, or null.
+     * @param sink Receives the finding.
+     * @param stats Line count and classification nanoseconds, updated when metrics are enabled.
      */
-    private void checkKeyValuePattern(String filePath, String line, int lineNum, List<Finding> findings) {
-        String[] parts = line.split("[:=]", 2);
-        if (parts.length != 2) return;
+    private void inspectLine(String filePath, int lineNum, CharSequence line, MatchEngine engine,
+                             KeyPathTokenizer tokenizer, FindingSink sink, long[] stats) {
+        // Single-pass classification in HIGH, MEDIUM, key-value, LOW order; structured files
+        // report every secret of the line by key path
+        long started = Metrics.start();
+        RuleMatch match = null;
+        List<RuleMatch> matches = null;
+        if (tokenizer == null) {
+            match = engine.classify(line);
+        } else {
+            matches = tokenizer.classify(line, engine.classifyAll(line, false));
+        }
+        if (started != 0) {
+            stats[0]++;
+            stats[1] += System.nanoTime() - started;
+        }
+        if (match != null) {
+            sink.accept(match.toFinding(filePath, lineNum, line, null));
+        }
+        if (matches != null) {
+            for (RuleMatch m : matches) {
+                sink.accept(m.toFinding(filePath, lineNum, line, null));
+            }
+        }
+    }
 
-        String key = parts[0].trim().replaceAll("\"", "");
-        String value = parts[1].trim().replaceAll("[\",]", "");
+    // Whether an index key (a file path) lies under the scanned root and in this process's shard
+    private boolean inScope(ScanRun run, String key) {
+        String root = run.root.toString();
+        String prefix = root.endsWith(File.separator) ? root : root + File.separator;
+        return (key.equals(root) || key.startsWith(prefix)) && inShard(run, new File(key));
+    }
 
-        // If key and value are suspicious, classify as medium severity
-        if (isSuspiciousKey(key) && isSuspiciousValue(value)) {
-            findings.add(new Finding(filePath, lineNum, line.trim(), Severity.MEDIUM));
-        }
+    // Whether the file belongs to this process's shard, keyed by its path relative to the scanned root
+    private boolean inShard(ScanRun run, File file) {
+        if (config.shardCount <= 1) return true;
+        String key = run.root.relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+        return Shards.owns(config, key);
     }
 
     /**
      * Determines if a file should be scanned based on extension and ignore list.
+     * Archives are scanned too when config.scanArchives is set.
      * @param file File to check.
      * @return true if file should be scanned.
      */
-    private boolean shouldScan(File file) {
+    boolean shouldScan(File file) {
         String name = file.getName();
+        if (config.scanArchives && ArchiveScanner.isArchive(name) && !config.ignoreFilenames.contains(name)) return true;
+        return matchesScanRules(config, name);
+    }
 
+    /**
+     * Applies the extension and ignore rules to a file name (also used for archive entries).
+     * @param config Scan settings.
+     * @param name   File name without directories.
+     * @return true if a file with this name should be scanned.
+     */
+    static boolean matchesScanRules(ScanConfig config, String name) {
         // Skip ignored filenames
         if (config.ignoreFilenames.contains(name)) return false;
 
@@ -138,26 +517,4 @@ public class FileScanner {
         String ext = name.substring(dotIndex + 1).toLowerCase();
         return config.allowedExtensions.contains(ext);
     }
-
-    /**
-     * Checks if a key is suspicious (e.g., secret, token, key, password).
-     * @param key Key string.
-     * @return true if key is suspicious.
-     */
-    private boolean isSuspiciousKey(String key) {
-        String lower = key.toLowerCase();
-        return lower.contains("secret") ||
-               lower.contains("token") ||
-               lower.contains("key") ||
-               lower.contains("password");
-    }
-
-    /**
-     * Checks if a value is suspicious (long random string).
-     * @param value Value string.
-     * @return true if value is suspicious.
-     */
-    private boolean isSuspiciousValue(String value) {
-        return value.length() >= 30 && value.matches("^[A-Za-z0-9/+=]{30,}$");
-    }
 }
@@ -0,0 +1,456 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.metrics.Counter;
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.metrics.Timer;
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.FindingSink;
+import com.cloudcred.model.ScanConfig;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+
+/**
+ * GitHistoryScanner scans the commit history of local git repositories.
+ * It drives the git command line, which works on local clones without any network access:
+ * git log lists the blobs that each new commit introduces, and one long-running
+ * git cat-file --batch process streams their content. Every unique blob is scanned once per
+ * run, attributed to the oldest new commit that introduced it, however many commits share it.
+ *
+ * The tip of every branch, tag and remote-tracking ref is remembered in a state file inside the
+ * repository's git directory, so later runs only process commits that are not reachable from
+ * a previously scanned tip. Findings are reported as git:<repo>@<commit>:<path> with the
+ * commit id as their source version.
+ */
+public class GitHistoryScanner {
+    // Prefix of the paths reported for findings in git history
+    public static final String PATH_PREFIX = "git:";
+
+    // Per-repository state file, stored in the git directory
+    private static final String STATE_FILE = "cloudcred-history.properties";
+
+    // Bytes inspected for NUL characters to recognise binary blobs (same heuristic as git)
+    private static final int BINARY_CHECK_BYTES = 8000;
+
+    private static final Timer SCAN_PHASE = Metrics.timer("cloudcred_phase_seconds", "Wall time of each scan phase", "phase", "git_history");
+    private static final Counter COMMITS_SCANNED = Metrics.counter("cloudcred_git_commits_scanned_total", "Git commits whose changes were scanned");
+    private static final Counter BLOBS_SCANNED = Metrics.counter("cloudcred_git_blobs_scanned_total", "Unique git blobs read and matched");
+    private static final Counter BLOBS_DUPLICATE = Metrics.counter("cloudcred_git_blobs_duplicate_total", "Git blob references skipped because the blob was already scanned");
+
+    private final ScanConfig config;
+    // Compiled detection rules, shared by all scanners with the same entropy settings
+    private final MatchEngine engine;
+
+    /**
+     * Constructor for GitHistoryScanner.
+     * @param config ScanConfig object with scan settings (config.gitRepositories).
+     */
+    public GitHistoryScanner(ScanConfig config) {
+        this.config = config;
+        this.engine = MatchEngine.forFiles(config);
+    }
+
+    /**
+     * Scans the new history of every repository in config.gitRepositories.
+     * @return List of findings.
+     */
+    public List<Finding> scanHistory() {
+        List<Finding> findings = new ArrayList<>();
+        scanHistory(findings::add);
+        return findings;
+    }
+
+    /**
+     * Scans the new history of every repository in config.gitRepositories, emitting findings
+     * in commit order (oldest first). The sink is called from the calling thread only.
+     * @param sink Receives findings as they are produced.
+     * @return False if a repository could not be scanned (not a git repository, git failed) or
+     *         the scan was interrupted; the other repositories are still scanned.
+     */
+    public boolean scanHistory(FindingSink sink) {
+        long started = Metrics.start();
+        boolean complete = true;
+        try {
+            for (String repository : config.gitRepositories) {
+                try {
+                    scanRepository(Paths.get(repository).toAbsolutePath().normalize(), sink);
+                } catch (IOException e) {
+                    System.out.println("❌ Failed to scan git history of " + repository + " - " + e.getMessage());
+                    complete = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        } finally {
+            SCAN_PHASE.record(started);
+        }
+        return complete;
+    }
+
+    // Scans the commits of one repository that are new since the last run
+    private void scanRepository(Path repository, FindingSink sink) throws IOException, InterruptedException {
+        Path gitDir = Paths.get(runGit(repository, "rev-parse", "--absolute-git-dir").trim());
+        Path stateFile = gitDir.resolve(STATE_FILE);
+
+        Map<String, String> tips = listRefTips(repository);
+        if (tips.isEmpty()) {
+            System.out.println("No commits in " + repository);
+            return;
+        }
+
+        // Tips scanned by earlier runs; ones that no longer exist (rewritten history, gc) are dropped
+        Set<String> scanned = new LinkedHashSet<>();
+        if (!config.gitFullHistory) {
+            scanned.addAll(existingCommits(repository, loadState(stateFile).values()));
+        }
+        Set<String> wanted = new LinkedHashSet<>(tips.values());
+        wanted.removeAll(scanned);
+        if (wanted.isEmpty()) {
+            System.out.println("Git history of " + repository + " is up to date");
+            return;
+        }
+
+        long commits;
+        try (BlobReader blobs = new BlobReader(repository)) {
+            commits = scanNewCommits(repository, wanted, scanned, blobs, sink);
+        }
+        saveState(stateFile, tips);
+        System.out.println("Scanned " + commits + " new commits in " + repository);
+    }
+
+    /**
+     * Walks "git log --raw" over the commits reachable from wanted but not from scanned,
+     * oldest first, and scans each added or modified blob the first time it is seen.
+     * @return Number of commits processed.
+     */
+    private long scanNewCommits(Path repository, Set<String> wanted, Set<String> scanned,
+                                BlobReader blobs, FindingSink sink) throws IOException, InterruptedException {
+        Process log = git(repository, "-c", "core.quotePath=false", "log", "--reverse", "--no-renames",
+                "--raw", "--no-abbrev", "-m", "--format=commit %H", "--stdin");
+        // Revisions go through stdin so any number of refs fits
+        try (Writer revs = new OutputStreamWriter(log.getOutputStream(), StandardCharsets.UTF_8)) {
+            for (String tip : wanted) revs.write(tip + "\n");
+            for (String tip : scanned) revs.write("^" + tip + "\n");
+        }
+
+        Set<String> seenBlobs = new HashSet<>();
+        long commits = 0;
+        String commit = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(log.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("commit ")) {
+                    // With -m a merge is listed once per parent
+                    String next = line.substring("commit ".length());
+                    if (!next.equals(commit)) {
+                        commits++;
+                        COMMITS_SCANNED.increment();
+                    }
+                    commit = next;
+                    continue;
+                }
+                // :<old mode> <new mode> <old blob> <new blob> <status>\t<path>
+                if (commit == null || !line.startsWith(":")) continue;
+                int tab = line.indexOf('\t');
+                if (tab < 0) continue;
+                String[] fields = line.substring(1, tab).split(" ");
+                if (fields.length < 5 || fields[4].startsWith("D")) continue;
+                // Regular files only: no symlinks (120000) or submodules (160000)
+                if (!fields[1].startsWith("100")) continue;
+
+                String path = unquote(line.substring(tab + 1));
+                String name = path.substring(path.lastIndexOf('/') + 1);
+                if (!FileScanner.matchesScanRules(config, name)) continue;
+
+                String blob = fields[3];
+                if (!seenBlobs.add(blob)) {
+                    BLOBS_DUPLICATE.increment();
+                    continue;
+                }
+                String findingPath = PATH_PREFIX + repository + "@" + commit + ":" + path;
+                String version = commit;
+                blobs.scan(blob, (lineNum, text) -> {
+                    RuleMatch match = engine.classify(text);
+                    if (match != null) {
+                        sink.accept(match.toFinding(findingPath, lineNum, text, version));
+                    }
+                });
+            }
+        }
+        int exit = log.waitFor();
+        if (exit != 0) throw new IOException("git log failed with exit code " + exit);
+        return commits;
+    }
+
+    // Ref name -> commit id for all branches, tags (peeled) and remote-tracking refs
+    private Map<String, String> listRefTips(Path repository) throws IOException, InterruptedException {
+        String output = runGit(repository, "for-each-ref",
+                "--format=%(objecttype)%09%(objectname)%09%(*objecttype)%09%(*objectname)%09%(refname)",
+                "refs/heads", "refs/tags", "refs/remotes");
+        Map<String, String> tips = new TreeMap<>();
+        for (String line : output.split("\n")) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length < 5) continue;
+            if (fields[0].equals("commit")) {
+                tips.put(fields[4], fields[1]);
+            } else if (fields[2].equals("commit")) {
+                // Annotated tag pointing at a commit
+                tips.put(fields[4], fields[3]);
+            }
+        }
+        return tips;
+    }
+
+    // The subset of the given ids that name commits present in the repository
+    private Set<String> existingCommits(Path repository, Collection<String> ids) throws IOException, InterruptedException {
+        Set<String> existing = new LinkedHashSet<>();
+        if (ids.isEmpty()) return existing;
+        Process check = git(repository, "cat-file", "--batch-check=%(objectname) %(objecttype)");
+        // Fed from another thread: cat-file answers while it reads, and could otherwise block on a full pipe
+        Thread feeder = new Thread(() -> {
+            try (Writer in = new OutputStreamWriter(check.getOutputStream(), StandardCharsets.UTF_8)) {
+                for (String id : new LinkedHashSet<>(ids)) in.write(id + "\n");
+            } catch (IOException e) {
+                // cat-file exited early; its exit code is checked below
+            }
+        }, "git-batch-check");
+        feeder.start();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(check.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (line.endsWith(" commit")) existing.add(line.substring(0, line.indexOf(' ')));
+            }
+        }
+        feeder.join();
+        int exit = check.waitFor();
+        if (exit != 0) throw new IOException("git cat-file failed with exit code " + exit);
+        return existing;
+    }
+
+    private static Map<String, String> loadState(Path stateFile) {
+        Map<String, String> state = new TreeMap<>();
+        if (!Files.exists(stateFile)) return state;
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            System.err.println("Failed to load git scan state: " + stateFile + " - " + e.getMessage());
+        }
+        for (String ref : properties.stringPropertyNames()) {
+            state.put(ref, properties.getProperty(ref));
+        }
+        return state;
+    }
+
+    // Writes the ref tips atomically, so an interrupted run leaves the previous state intact
+    private static void saveState(Path stateFile, Map<String, String> tips) {
+        Properties properties = new Properties();
+        properties.putAll(tips);
+        Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Ref tips scanned by CloudCred Shield");
+            }
+            Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to save git scan state: " + stateFile + " - " + e.getMessage());
+        }
+    }
+
+    // Runs a short git command and returns its standard output
+    private static String runGit(Path repository, String... args) throws IOException, InterruptedException {
+        Process process = git(repository, args);
+        process.getOutputStream().close();
+        String output;
+        try (InputStream out = process.getInputStream()) {
+            output = new String(out.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        int exit = process.waitFor();
+        if (exit != 0) {
+            throw new IOException("git " + args[0] + " failed with exit code " + exit);
+        }
+        return output;
+    }
+
+    // Starts git in the repository; errors go to our stderr, and missing objects are never fetched
+    private static Process git(Path repository, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.add("-C");
+        command.add(repository.toString());
+        command.addAll(Arrays.asList(args));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        builder.environment().put("GIT_TERMINAL_PROMPT", "0");
+        builder.environment().put("GIT_NO_LAZY_FETCH", "1");
+        return builder.start();
+    }
+
+    // Undoes git's C-style quoting of paths with special characters
+    static String unquote(String path) {
+        if (path.length() < 2 || path.charAt(0) != '"' || path.charAt(path.length() - 1) != '"') return path;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(path.length());
+        for (int i = 1; i < path.length() - 1; i++) {
+            char c = path.charAt(i);
+            if (c != '\\' || i + 1 >= path.length() - 1) {
+                byte[] encoded = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+                bytes.write(encoded, 0, encoded.length);
+                continue;
+            }
+            char next = path.charAt(++i);
+            if (next >= '0' && next <= '7' && i + 2 < path.length() - 1) {
+                // Octal escape of one byte of the UTF-8 encoded name
+                bytes.write(Integer.parseInt(path.substring(i, i + 3), 8));
+                i += 2;
+            } else {
+                switch (next) {
+                    case 'n': bytes.write('\n'); break;
+                    case 't': bytes.write('\t'); break;
+                    case 'r': bytes.write('\r'); break;
+                    case 'a': bytes.write(7); break;
+                    case 'b': bytes.write('\b'); break;
+                    case 'f': bytes.write('\f'); break;
+                    case 'v': bytes.write(11); break;
+                    default: bytes.write(next);
+                }
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // Receives the lines of a blob
+    private interface LineHandler {
+        void line(int lineNum, String text);
+    }
+
+    /**
+     * Streams blob content from one "git cat-file --batch" process.
+     * Requests are answered in order, so each blob is requested and read before the next.
+     */
+    private static class BlobReader implements Closeable {
+        private final Process process;
+        private final OutputStream requests;
+        private final BufferedInputStream responses;
+        private final byte[] head = new byte[BINARY_CHECK_BYTES];
+
+        BlobReader(Path repository) throws IOException {
+            this.process = git(repository, "cat-file", "--batch");
+            this.requests = process.getOutputStream();
+            this.responses = new BufferedInputStream(process.getInputStream(), 64 * 1024);
+        }
+
+        // Reads one blob and hands its lines to the handler; binary and missing blobs are skipped
+        void scan(String blob, LineHandler handler) throws IOException {
+            requests.write((blob + "\n").getBytes(StandardCharsets.US_ASCII));
+            requests.flush();
+
+            // "<id> blob <size>" or "<id> missing"
+            String header = readHeader();
+            String[] fields = header.split(" ");
+            if (fields.length < 3) return;
+            long size = Long.parseLong(fields[2]);
+
+            int headLength = (int) Math.min(size, head.length);
+            readFully(head, headLength);
+            boolean binary = false;
+            for (int i = 0; i < headLength; i++) {
+                if (head[i] == 0) {
+                    binary = true;
+                    break;
+                }
+            }
+            long rest = size - headLength;
+            if (binary) {
+                skipFully(rest);
+            } else {
+                BLOBS_SCANNED.increment();
+                InputStream content = new SequenceInputStream(new ByteArrayInputStream(head, 0, headLength),
+                        new BoundedInputStream(responses, rest));
+                // The reader is not closed: that would close the process output
+                BufferedReader reader = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+                String line;
+                int lineNum = 0;
+                while ((line = reader.readLine()) != null) {
+                    handler.line(++lineNum, line);
+                }
+            }
+            // Content is followed by a newline
+            if (responses.read() < 0) throw new EOFException("git cat-file ended unexpectedly");
+        }
+
+        @Override
+        public void close() throws IOException {
+            requests.close();
+            responses.close();
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroy();
+            }
+        }
+
+        private String readHeader() throws IOException {
+            StringBuilder sb = new StringBuilder(64);
+            int b;
+            while ((b = responses.read()) != '\n') {
+                if (b < 0) throw new EOFException("git cat-file ended unexpectedly");
+                sb.append((char) b);
+            }
+            return sb.toString();
+        }
+
+        private void readFully(byte[] buffer, int length) throws IOException {
+            int read = 0;
+            while (read < length) {
+                int n = responses.read(buffer, read, length - read);
+                if (n < 0) throw new EOFException("git cat-file ended unexpectedly");
+                read += n;
+            }
+        }
+
+        private void skipFully(long n) throws IOException {
+            while (n > 0) {
+                long skipped = responses.skip(n);
+                if (skipped <= 0) {
+                    if (responses.read() < 0) throw new EOFException("git cat-file ended unexpectedly");
+                    skipped = 1;
+                }
+                n -= skipped;
+            }
+        }
+    }
+
+    // Reads at most limit bytes of the underlying stream, which is left open
+    private static class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = in.read();
+            if (b < 0) throw new EOFException("git cat-file ended unexpectedly");
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n < 0) throw new EOFException("git cat-file ended unexpectedly");
+            remaining -= n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.cloudcred.scanner;
+
+import java.util.Arrays;
+
+
+/**
+ * Key paths of JSON files, from a character-level state machine that carries over between lines,
+ * so pretty-printed and minified files read the same. Object keys are appended to the path as
+ * they are read; arrays do not add to the path, so every element of "users" reads "users.password".
+ * Only string values are passed on: numbers, booleans and null are never secrets.
+ * Line and block comments (as in tsconfig.json and VS Code settings) are skipped.
+ */
+class JsonTokenizer extends KeyPathTokenizer {
+    private static final byte OBJECT = 1;
+    private static final byte ARRAY = 2;
+
+    // Open containers, innermost last
+    private byte[] containers = new byte[16];
+    private int containerDepth;
+    // Whether the next string in the current object is a key
+    private boolean expectKey;
+    // String being read: a key or a value, possibly continued from the previous line
+    private boolean inString;
+    private boolean stringIsKey;
+    private boolean escaped;
+    private boolean inComment;
+
+    @Override
+    protected void tokenize(CharSequence line) {
+        int length = line.length();
+        int valueStart = 0;
+        boolean continued = inString && !stringIsKey;
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                    if (stringIsKey) path.append(c);
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                    if (!stringIsKey) value(line, valueStart, i, continued, false);
+                    continued = false;
+                } else if (stringIsKey) {
+                    path.append(c);
+                }
+                continue;
+            }
+            if (inComment) {
+                if (c == '*' && i + 1 < length && line.charAt(i + 1) == '/') {
+                    inComment = false;
+                    i++;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"':
+                    inString = true;
+                    stringIsKey = expectKey && top() == OBJECT;
+                    if (stringIsKey) {
+                        startKey();
+                        expectKey = false;
+                    } else {
+                        valueStart = i + 1;
+                    }
+                    break;
+                case '{':
+                    push(OBJECT);
+                    enter();
+                    expectKey = true;
+                    break;
+                case '[':
+                    push(ARRAY);
+                    expectKey = false;
+                    break;
+                case '}':
+                    if (top() == OBJECT) {
+                        containerDepth--;
+                        leave();
+                    }
+                    expectKey = false;
+                    break;
+                case ']':
+                    if (top() == ARRAY) containerDepth--;
+                    expectKey = false;
+                    break;
+                case ',':
+                    expectKey = top() == OBJECT;
+                    break;
+                case '/':
+                    if (i + 1 < length && line.charAt(i + 1) == '/') return;
+                    if (i + 1 < length && line.charAt(i + 1) == '*') {
+                        inComment = true;
+                        i++;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        // A string value left open at the end of the line
+        if (inString && !stringIsKey) value(line, valueStart, length, continued, true);
+    }
+
+    private byte top() {
+        return containerDepth == 0 ? 0 : containers[containerDepth - 1];
+    }
+
+    private void push(byte container) {
+        if (containerDepth == containers.length) containers = Arrays.copyOf(containers, containerDepth * 2);
+        containers[containerDepth++] = container;
+    }
+}
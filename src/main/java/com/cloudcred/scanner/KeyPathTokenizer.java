@@ -0,0 +1,387 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.metrics.RuleCosts;
+import com.cloudcred.metrics.Timer;
+import com.cloudcred.model.Finding.Severity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+
+/**
+ * Streaming, format-aware reader of the key/value structure of a config file.
+ * A tokenizer is fed the lines of one file in order and keeps just enough state between them
+ * (the nesting of keys, an open block scalar, string or continuation line) to know, for every
+ * value on a line, the dotted path of the key it belongs to, e.g. "db.credentials.password".
+ * Values that span lines (YAML block scalars, .properties continuation lines, multi-line XML text)
+ * keep the path of their key on every line.
+ *
+ * Secrets are looked up by key instead of by the line-based key/value heuristic: a value is a
+ * config-secret finding when its key names a password or a token/secret/key and the value itself
+ * looks like one rather than a placeholder, reference, path, flag or number (see looksLikeSecret).
+ * Because keys and values are delimited by the format, short passwords and values with symbols are
+ * found, and keys that merely contain "key" (keyboard, monkey, key_file) are not suspicious.
+ *
+ * Every value of a line is looked at, so a minified JSON line reports each of its secrets. A value
+ * that continues on the next lines is reported once: further lines of it add no findings.
+ *
+ * The current path is kept in one reusable buffer; a path String is only built for a secret or for
+ * a value a rule matched in. Tokenizers are not thread-safe; use one per file.
+ */
+abstract class KeyPathTokenizer {
+    // Rule id reported for secrets found by key path
+    static final String RULE_ID = "config-secret";
+
+    // Tokenizing time, recorded with --metrics= like the cost of a rule of the local file engine
+    private static final Timer TIMER = Metrics.timer("cloudcred_rule_match_seconds",
+            "Regex evaluation time per rule, for lines that pass the prefilter", "engine", "file", "rule", RULE_ID);
+    private static final RuleCosts.Entry COST = Metrics.registry().ruleCosts().entry("file", RULE_ID);
+
+    // Minimum length of a password value, and of a token, secret or key value
+    static final int MIN_PASSWORD_LENGTH = 8;
+    static final int MIN_TOKEN_LENGTH = 16;
+
+    // Kinds of key, by the last segment of the path
+    static final int PLAIN = 0;
+    static final int PASSWORD = 1;
+    static final int TOKEN = 2;
+
+    private static final String[] PASSWORD_WORDS = {"password", "passwd", "pwd", "passphrase"};
+    private static final String[] TOKEN_WORDS = {"secret", "token", "apikey", "api_key", "api-key", "credential",
+            "private_key", "privatekey", "access_key", "accesskey", "auth_key", "signing_key", "client_key"};
+    // Key endings that name something about a secret rather than the secret itself
+    private static final String[] DESCRIPTIVE_SUFFIXES = {"file", "path", "dir", "url", "uri", "name", "type",
+            "length", "size", "ttl", "timeout", "expiry", "expires", "endpoint", "header", "algorithm",
+            "format", "ref", "env", "enabled", "required", "policy", "version", "location"};
+    // Values that stand for "no secret here"
+    private static final String[] PLACEHOLDER_VALUES = {"password", "changeme", "changeit", "undefined", "placeholder",
+            "redacted", "your_password", "your-password", "yourpassword", "password123"};
+    private static final String[] REFERENCE_PREFIXES = {"${", "{{", "#{", "%(", "$(", "<", "/", "./", "../", "~/",
+            "http://", "https://", "file:", "classpath:", "env:", "vault:", "arn:aws:secretsmanager", "ENC(",
+            "!secret", "!vault"};
+    // PASSWORD_WORDS and TOKEN_WORDS bucketed by first character, with the kind of each word
+    private static final String[][] WORDS_BY_FIRST_CHAR = new String[128][];
+    private static final int[][] KINDS_BY_FIRST_CHAR = new int[128][];
+    private static final String[] FILE_SUFFIXES = {".pem", ".key", ".crt", ".cer", ".p12", ".pfx", ".jks", ".json",
+            ".yml", ".yaml", ".txt", ".properties", ".env"};
+
+    static {
+        for (int kind = PASSWORD; kind <= TOKEN; kind++) {
+            for (String word : kind == PASSWORD ? PASSWORD_WORDS : TOKEN_WORDS) {
+                char c = word.charAt(0);
+                String[] words = WORDS_BY_FIRST_CHAR[c];
+                int[] kinds = KINDS_BY_FIRST_CHAR[c];
+                int n = words == null ? 0 : words.length;
+                words = words == null ? new String[1] : Arrays.copyOf(words, n + 1);
+                kinds = kinds == null ? new int[1] : Arrays.copyOf(kinds, n + 1);
+                words[n] = word;
+                kinds[n] = kind;
+                WORDS_BY_FIRST_CHAR[c] = words;
+                KINDS_BY_FIRST_CHAR[c] = kinds;
+            }
+        }
+    }
+
+    // Dotted path of the key being read; levelStarts[d] is its length before nesting level d was entered
+    protected final StringBuilder path = new StringBuilder(64);
+    private int[] levelStarts = new int[16];
+    private int depth;
+
+    // Secrets found on the current line, in line order
+    private final List<RuleMatch> secrets = new ArrayList<>();
+
+    // Engine matches of the current line, with the key path of the value each falls in and whether
+    // it falls in the continuation of a value that was already reported
+    private List<RuleMatch> matches = Collections.emptyList();
+    private String[] matchPaths = new String[4];
+    private boolean[] matchPlaced = new boolean[4];
+    private boolean[] matchDropped = new boolean[4];
+    // Whether something was already reported for the value that continues on the next line
+    private boolean reportedOpenValue;
+
+    /**
+     * Returns a tokenizer for a file, chosen by its extension or name.
+     * @param fileName File name or path.
+     * @return A new tokenizer, or null if the file is not a structured config format.
+     */
+    static KeyPathTokenizer forFile(String fileName) {
+        int slash = Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'));
+        String name = fileName.substring(slash + 1).toLowerCase(Locale.ROOT);
+        if (name.equals(".env") || name.startsWith(".env.")) return new PropertiesTokenizer(PropertiesTokenizer.Dialect.ENV);
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) return null;
+        switch (name.substring(dot + 1)) {
+            case "json":
+                return new JsonTokenizer();
+            case "yml":
+            case "yaml":
+                return new YamlTokenizer();
+            case "properties":
+                return new PropertiesTokenizer(PropertiesTokenizer.Dialect.PROPERTIES);
+            case "env":
+                return new PropertiesTokenizer(PropertiesTokenizer.Dialect.ENV);
+            case "ini":
+                return new PropertiesTokenizer(PropertiesTokenizer.Dialect.INI);
+            case "xml":
+                return new XmlTokenizer();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Reads one line and combines what it contains with the engine's matches on it.
+     * HIGH and MEDIUM rule matches are kept and get the key path of the value they fall in. Every
+     * value under a suspicious key that looks like a secret and is not covered by such a match is
+     * reported as a MEDIUM config-secret match. A LOW (entropy) match is kept, with its key path, if
+     * it overlaps neither. Matches on further lines of an already reported value are dropped.
+     * @param line    Line content without line terminator.
+     * @param matches Matches of the engine on the line, without the key/value heuristic, by start offset.
+     * @return The matches to report, by start offset; empty if none.
+     */
+    final List<RuleMatch> classify(CharSequence line, List<RuleMatch> matches) {
+        int n = matches.size();
+        if (matchPaths.length < n) {
+            matchPaths = new String[n];
+            matchPlaced = new boolean[n];
+            matchDropped = new boolean[n];
+        }
+        Arrays.fill(matchPaths, 0, n, null);
+        Arrays.fill(matchPlaced, 0, n, false);
+        Arrays.fill(matchDropped, 0, n, false);
+        this.matches = matches;
+        secrets.clear();
+        long started = Metrics.start();
+        tokenize(line);
+        if (started != 0) {
+            COST.record(TIMER.record(started), !secrets.isEmpty());
+        }
+        if (n == 0 && secrets.isEmpty()) return Collections.emptyList();
+
+        List<RuleMatch> result = new ArrayList<>(n + secrets.size());
+        for (int i = 0; i < n; i++) {
+            RuleMatch match = matches.get(i);
+            if (matchDropped[i]) continue;
+            if (match.getSeverity() == Severity.LOW
+                    && (overlapsStrongMatch(match.getStart(), match.getEnd()) || overlapsSecret(match.getStart(), match.getEnd()))) {
+                continue;
+            }
+            result.add(match.withKeyPath(matchPaths[i]));
+        }
+        this.matches = Collections.emptyList();
+        result.addAll(secrets);
+        if (!secrets.isEmpty() && n > 0) result.sort(Comparator.comparingInt(RuleMatch::getStart));
+        return result;
+    }
+
+    /**
+     * Reads one line, calling value() for every value on it.
+     * @param line Line content without line terminator.
+     */
+    protected abstract void tokenize(CharSequence line);
+
+    /**
+     * Records a value of the current line under the key at the end of path.
+     * @param line      Line being tokenized.
+     * @param start     Start offset of the value, without quotes (inclusive).
+     * @param end       End offset of the value (exclusive).
+     * @param continued Whether the value started on an earlier line.
+     * @param continues Whether the value may continue on the next line.
+     */
+    protected final void value(CharSequence line, int start, int end, boolean continued, boolean continues) {
+        start = trimStart(line, start, end);
+        end = trimEnd(line, start, end);
+        if (!continued) reportedOpenValue = false;
+        if (start == end) return;
+        // A multi-line value (e.g. a PEM block) is reported once, on its first reported line
+        boolean repeat = continued && reportedOpenValue;
+        boolean reported = false;
+        String valuePath = null;
+        for (int i = 0; i < matches.size(); i++) {
+            RuleMatch match = matches.get(i);
+            if (matchPlaced[i] || match.getStart() >= end || start >= match.getEnd()) continue;
+            matchPlaced[i] = true;
+            if (repeat) {
+                matchDropped[i] = true;
+                continue;
+            }
+            if (valuePath == null) valuePath = pathString();
+            matchPaths[i] = valuePath;
+            reported = true;
+        }
+        if (repeat) return;
+
+        int kind = keyKind();
+        if (kind != PLAIN && looksLikeSecret(line, start, end, kind) && !overlapsStrongMatch(start, end)) {
+            secrets.add(new RuleMatch(RULE_ID, Severity.MEDIUM, start, end, valuePath != null ? valuePath : pathString()));
+            reported = true;
+        }
+        if (reported) reportedOpenValue = continues;
+    }
+
+    // Whether a HIGH or MEDIUM engine match of the current line overlaps line[start..end)
+    private boolean overlapsStrongMatch(int start, int end) {
+        for (int i = 0; i < matches.size(); i++) {
+            RuleMatch match = matches.get(i);
+            if (match.getSeverity() != Severity.LOW && !matchDropped[i] && match.getStart() < end && start < match.getEnd()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Whether a secret found on the current line overlaps line[start..end)
+    private boolean overlapsSecret(int start, int end) {
+        for (RuleMatch secret : secrets) {
+            if (secret.getStart() < end && start < secret.getEnd()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Enters a nesting level: later keys are appended to the path until the level is left.
+     */
+    protected final void enter() {
+        if (depth == levelStarts.length) levelStarts = Arrays.copyOf(levelStarts, depth * 2);
+        levelStarts[depth++] = path.length();
+    }
+
+    /**
+     * Leaves the innermost nesting level, dropping its key.
+     */
+    protected final void leave() {
+        if (depth == 0) return;
+        path.setLength(levelStarts[--depth]);
+    }
+
+    // Number of nesting levels entered
+    protected final int depth() {
+        return depth;
+    }
+
+    /**
+     * Sets the key of the innermost level, replacing the previous key of that level.
+     * @param line  Text holding the key.
+     * @param start Start offset of the key (inclusive).
+     * @param end   End offset of the key (exclusive).
+     */
+    protected final void key(CharSequence line, int start, int end) {
+        startKey();
+        path.append(line, start, end);
+    }
+
+    /**
+     * Drops the previous key of the innermost level and starts a new one; the caller appends it to path.
+     */
+    protected final void startKey() {
+        path.setLength(depth == 0 ? 0 : levelStarts[depth - 1]);
+        if (path.length() > 0) path.append('.');
+    }
+
+    // Path of the current key, e.g. "db.credentials.password"; the root level is ""
+    private String pathString() {
+        return path.length() == 0 ? null : path.toString();
+    }
+
+    /**
+     * Classifies the last segment of the path: a password, a token/secret/key or neither.
+     * "key" counts as a word only at the end of the segment ("api_key", "signingKey", "key").
+     */
+    private int keyKind() {
+        int end = path.length();
+        int start = end;
+        while (start > 0 && path.charAt(start - 1) != '.') start--;
+        if (end - start < 3) return PLAIN;
+
+        // One pass over the segment, trying only the words that start with each character
+        int kind = PLAIN;
+        for (int i = start; i < end && kind != PASSWORD; i++) {
+            char c = lower(path.charAt(i));
+            String[] candidates = c < 128 ? WORDS_BY_FIRST_CHAR[c] : null;
+            if (candidates == null) continue;
+            for (int w = 0; w < candidates.length; w++) {
+                if (startsWithIgnoreCase(path, i, end, candidates[w])) {
+                    kind = KINDS_BY_FIRST_CHAR[c][w];
+                    break;
+                }
+            }
+        }
+        if (kind == PLAIN && endsWithIgnoreCase(path, start, end, "key")) {
+            int k = end - 3;
+            char before = k == start ? '_' : path.charAt(k - 1);
+            if (before == '_' || before == '-' || (path.charAt(k) == 'K' && Character.isLowerCase(before))) kind = TOKEN;
+        }
+        if (kind == PLAIN) return PLAIN;
+        for (String suffix : DESCRIPTIVE_SUFFIXES) {
+            if (end - start > suffix.length() && endsWithIgnoreCase(path, start, end, suffix)) return PLAIN;
+        }
+        return kind;
+    }
+
+    /**
+     * Decides whether a value under a suspicious key is a secret.
+     * The value must be long enough for its kind of key, a single word, and not a placeholder
+     * (changeme, ********), a reference (${DB_PASSWORD}, vault:, a URL or path), a file name or a number.
+     * Tokens, secrets and keys must also mix letters and digits.
+     */
+    static boolean looksLikeSecret(CharSequence line, int start, int end, int kind) {
+        int length = end - start;
+        if (length < (kind == PASSWORD ? MIN_PASSWORD_LENGTH : MIN_TOKEN_LENGTH)) return false;
+        boolean letter = false;
+        boolean digit = false;
+        boolean distinct = false;
+        char first = line.charAt(start);
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c <= ' ') return false;
+            if (Character.isLetter(c)) letter = true;
+            else if (c >= '0' && c <= '9') digit = true;
+            if (c != first) distinct = true;
+        }
+        if (!distinct || !letter) return false;
+        if (kind == TOKEN && !digit) return false;
+        for (String prefix : REFERENCE_PREFIXES) {
+            if (startsWithIgnoreCase(line, start, end, prefix)) return false;
+        }
+        for (String suffix : FILE_SUFFIXES) {
+            if (endsWithIgnoreCase(line, start, end, suffix)) return false;
+        }
+        for (String placeholder : PLACEHOLDER_VALUES) {
+            if (length == placeholder.length() && startsWithIgnoreCase(line, start, end, placeholder)) return false;
+        }
+        return true;
+    }
+
+    static boolean startsWithIgnoreCase(CharSequence line, int start, int end, String prefix) {
+        int n = prefix.length();
+        if (end - start < n) return false;
+        for (int j = 0; j < n; j++) {
+            if (lower(line.charAt(start + j)) != lower(prefix.charAt(j))) return false;
+        }
+        return true;
+    }
+
+    private static boolean endsWithIgnoreCase(CharSequence line, int start, int end, String suffix) {
+        return end - start >= suffix.length() && startsWithIgnoreCase(line, end - suffix.length(), end, suffix);
+    }
+
+    private static char lower(char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    // String.trim() semantics: skip characters <= ' '
+    static int trimStart(CharSequence line, int from, int to) {
+        while (from < to && line.charAt(from) <= ' ') from++;
+        return from;
+    }
+
+    static int trimEnd(CharSequence line, int from, int to) {
+        while (to > from && line.charAt(to - 1) <= ' ') to--;
+        return to;
+    }
+}
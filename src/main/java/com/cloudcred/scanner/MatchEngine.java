@@ -0,0 +1,608 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.metrics.Counter;
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.metrics.RuleCosts;
+import com.cloudcred.metrics.Timer;
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.ScanConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * MatchEngine classifies lines against an ordered set of rules in a single pass.
+ * One scan over the characters of a line collects every rule keyword it contains,
+ * the longest base64-style run and whether a key/value separator is present. Only rules
+ * whose preconditions hold run their regex, so clean lines never touch a Matcher.
+ * Rules are evaluated in precedence order (HIGH before MEDIUM before LOW) and the
+ * first confirmed rule wins; then the key/value heuristic (MEDIUM), when enabled, and
+ * finally the entropy detector (LOW), which only runs if the line has a long enough token.
+ *
+ * Rule packs (--rules=, see RulePack) add rules to the built-in ones or replace them by id.
+ * Every regex runs on a step-counting view of the line: once a rule has read more characters
+ * than its budget (config.ruleStepsPerChar per character of the line, at least MIN_RULE_STEPS),
+ * it is abandoned for that line, so one pathological pattern or line cannot stall a worker.
+ * The time, hits and abandoned lines of every rule are recorded in the RuleCosts of the metrics
+ * registry, from which the scan report lists the slowest rules.
+ * Engines are immutable and safe to share between threads.
+ */
+public class MatchEngine {
+    // Rule id reported by the key/value heuristic
+    public static final String KEY_VALUE_RULE_ID = "generic-key-value";
+
+    // Keys that make a key/value pair suspicious
+    private static final String[] KEY_VALUE_KEYWORDS = {"secret", "token", "key", "password"};
+
+    // Minimum length of a suspicious key/value value
+    private static final int KEY_VALUE_MIN_VALUE_LENGTH = 30;
+
+    // Step budget of a rule on short lines
+    static final int MIN_RULE_STEPS = 100_000;
+
+    private static final Counter RULE_OVER_BUDGET = Metrics.counter("cloudcred_rule_budget_exceeded_total",
+            "Lines on which a rule was abandoned because its regex exceeded the step budget");
+
+    // Rules used by FileScanner for local files. Whitespace and the trailing value run are matched
+    // possessively: giving characters back can never produce a match, only more backtracking
+    private static final List<Rule> FILE_RULES = Arrays.asList(
+        new Rule("aws-access-key-id", Severity.HIGH,
+            Pattern.compile("AKIA[0-9A-Z]{16}"), new String[]{"AKIA"}, 20),
+        new Rule("aws-secret-access-key", Severity.HIGH,
+            Pattern.compile("aws_secret_access_key\\s*+=\\s*+[A-Za-z0-9/+=]{40}"), new String[]{"aws_secret_access_key"}, 40),
+        new Rule("generic-secret", Severity.MEDIUM,
+            Pattern.compile("(?i)(secret|token|key).{0,20}[=:]?\\s*+[A-Za-z0-9/+=]{30,60}+"), new String[]{"secret", "token", "key"}, 30)
+    );
+
+    // Rules used by S3FileScanner for bucket objects
+    private static final List<Rule> S3_RULES = Arrays.asList(
+        new Rule("aws-access-key-id-assignment", Severity.HIGH,
+            Pattern.compile("(?i)AWS_ACCESS_KEY_ID\\s*+=\\s*+AKIA[0-9A-Z]{16}"), new String[]{"aws_access_key_id"}, 20),
+        new Rule("aws-secret-access-key-assignment", Severity.MEDIUM,
+            Pattern.compile("(?i)AWS_SECRET_ACCESS_KEY\\s*+=\\s*+[A-Za-z0-9/+=]{40}"), new String[]{"aws_secret_access_key"}, 40),
+        new Rule("aws-access-key-id", Severity.LOW,
+            Pattern.compile("\\bAKIA[0-9A-Z]{16}\\b"), new String[]{"AKIA"}, 20)
+    );
+
+    // Engines with the default settings, shared by all scanners that use them
+    private static final ScanConfig DEFAULTS = new ScanConfig();
+    private static final EntropyDetector DEFAULT_ENTROPY = EntropyDetector.fromConfig(DEFAULTS);
+    private static final MatchEngine FILE_ENGINE = new MatchEngine("file", FILE_RULES, true, DEFAULT_ENTROPY, DEFAULTS.ruleStepsPerChar);
+    private static final MatchEngine S3_ENGINE = new MatchEngine("s3", S3_RULES, false, DEFAULT_ENTROPY, DEFAULTS.ruleStepsPerChar);
+    // Engines for other settings or rule packs, so scanners with the same settings share one
+    private static final Map<String, Configured> CONFIGURED = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final Rule[] rules;
+    private final boolean keyValueHeuristic;
+    private final EntropyDetector entropy;
+    private final int stepsPerChar;
+    // Per-rule regex latency, and the key/value heuristic's and entropy detector's
+    private final Timer[] ruleTimers;
+    private final Timer keyValueTimer;
+    private final Timer entropyTimer;
+    // Per-rule cost for the scan report, in the same order
+    private final RuleCosts.Entry[] ruleCosts;
+    private final RuleCosts.Entry keyValueCost;
+    private final RuleCosts.Entry entropyCost;
+
+    // Distinct lowercase keywords across all rules, and per-rule indices into that table
+    private final String[] keywords;
+    private final int[][] ruleKeywords;
+    private final int[] keyValueKeywords;
+    // Keyword indices bucketed by first character, for the single-pass prefilter
+    private final int[][] keywordsByFirstChar = new int[128][];
+
+    // Per-thread reusable matchers and scratch space
+    private final ThreadLocal<State> state;
+
+    /**
+     * Constructs a MatchEngine.
+     * @param rules             Rules in precedence order.
+     * @param keyValueHeuristic Whether to apply the key/value heuristic when no rule matches.
+     */
+    public MatchEngine(List<Rule> rules, boolean keyValueHeuristic) {
+        this("custom", rules, keyValueHeuristic, null);
+    }
+
+    /**
+     * Constructs a named MatchEngine with the default step budget; the name labels its rule metrics.
+     * @param name              Engine name (e.g. file, s3).
+     * @param rules             Rules in precedence order.
+     * @param keyValueHeuristic Whether to apply the key/value heuristic when no rule matches.
+     * @param entropy           LOW-tier entropy detector applied last, or null for none.
+     */
+    public MatchEngine(String name, List<Rule> rules, boolean keyValueHeuristic, EntropyDetector entropy) {
+        this(name, rules, keyValueHeuristic, entropy, DEFAULTS.ruleStepsPerChar);
+    }
+
+    /**
+     * Constructs a named MatchEngine; the name labels its rule metrics.
+     * @param name              Engine name (e.g. file, s3).
+     * @param rules             Rules in precedence order.
+     * @param keyValueHeuristic Whether to apply the key/value heuristic when no rule matches.
+     * @param entropy           LOW-tier entropy detector applied last, or null for none.
+     * @param stepsPerChar      Regex step budget per character of a line.
+     */
+    public MatchEngine(String name, List<Rule> rules, boolean keyValueHeuristic, EntropyDetector entropy, int stepsPerChar) {
+        this.name = name;
+        this.rules = rules.toArray(new Rule[0]);
+        this.keyValueHeuristic = keyValueHeuristic;
+        this.entropy = entropy;
+        this.stepsPerChar = Math.max(1, stepsPerChar);
+
+        RuleCosts costs = Metrics.registry().ruleCosts();
+        this.ruleTimers = new Timer[this.rules.length];
+        this.ruleCosts = new RuleCosts.Entry[this.rules.length];
+        for (int r = 0; r < this.rules.length; r++) {
+            ruleTimers[r] = ruleTimer(this.rules[r].getId());
+            ruleCosts[r] = costs.entry(name, this.rules[r].getId());
+        }
+        this.keyValueTimer = keyValueHeuristic ? ruleTimer(KEY_VALUE_RULE_ID) : null;
+        this.keyValueCost = keyValueHeuristic ? costs.entry(name, KEY_VALUE_RULE_ID) : null;
+        this.entropyTimer = entropy != null ? ruleTimer(EntropyDetector.RULE_ID) : null;
+        this.entropyCost = entropy != null ? costs.entry(name, EntropyDetector.RULE_ID) : null;
+
+        Map<String, Integer> table = new LinkedHashMap<>();
+        this.ruleKeywords = new int[this.rules.length][];
+        for (int r = 0; r < this.rules.length; r++) {
+            ruleKeywords[r] = indexKeywords(this.rules[r].getKeywords(), table);
+        }
+        this.keyValueKeywords = keyValueHeuristic ? indexKeywords(KEY_VALUE_KEYWORDS, table) : new int[0];
+        this.keywords = table.keySet().toArray(new String[0]);
+
+        List<List<Integer>> buckets = new ArrayList<>();
+        for (int c = 0; c < 128; c++) buckets.add(null);
+        for (int k = 0; k < keywords.length; k++) {
+            char first = keywords[k].charAt(0);
+            if (first >= 128) continue;
+            if (buckets.get(first) == null) buckets.set(first, new ArrayList<>());
+            buckets.get(first).add(k);
+        }
+        for (int c = 0; c < 128; c++) {
+            List<Integer> bucket = buckets.get(c);
+            if (bucket != null) {
+                keywordsByFirstChar[c] = bucket.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+
+        this.state = ThreadLocal.withInitial(State::new);
+    }
+
+    // Shared engine for local file scanning with default settings
+    public static MatchEngine forFiles() {
+        return FILE_ENGINE;
+    }
+
+    // Shared engine for S3 object scanning with default settings
+    public static MatchEngine forS3() {
+        return S3_ENGINE;
+    }
+
+    /**
+     * Engine for local file scanning with the entropy settings, rule packs and step budget of a scan.
+     * @param config Scan configuration.
+     * @return The shared default engine, or the shared engine for these settings.
+     */
+    public static MatchEngine forFiles(ScanConfig config) {
+        return forConfig("file", FILE_RULES, true, FILE_ENGINE, config);
+    }
+
+    /**
+     * Engine for S3 object scanning with the entropy settings, rule packs and step budget of a scan.
+     * @param config Scan configuration.
+     * @return The shared default engine, or the shared engine for these settings.
+     */
+    public static MatchEngine forS3(ScanConfig config) {
+        return forConfig("s3", S3_RULES, false, S3_ENGINE, config);
+    }
+
+    private static MatchEngine forConfig(String name, List<Rule> builtIn, boolean keyValueHeuristic,
+                                         MatchEngine defaultEngine, ScanConfig config) {
+        EntropyDetector detector = EntropyDetector.fromConfig(config);
+        if (detector.equals(DEFAULT_ENTROPY) && config.rulePacks.isEmpty()
+                && config.ruleStepsPerChar == DEFAULTS.ruleStepsPerChar) {
+            return defaultEngine;
+        }
+        // Keyed by the versions of the pack files too, so an edited pack gets a new engine
+        String key = name + '\n' + detector + '\n' + config.rulePacks + '\n' + config.ruleStepsPerChar;
+        String packVersions = RulePack.versions(config.rulePacks);
+        return CONFIGURED.compute(key, (k, configured) -> configured != null && configured.packVersions.equals(packVersions)
+                ? configured
+                : new Configured(packVersions, new MatchEngine(name, withPackRules(builtIn, RulePack.rules(config.rulePacks, name)),
+                        keyValueHeuristic, detector, config.ruleStepsPerChar))).engine;
+    }
+
+    // A configured engine and the versions of the rule packs it was built from
+    private static final class Configured {
+        final String packVersions;
+        final MatchEngine engine;
+
+        Configured(String packVersions, MatchEngine engine) {
+            this.packVersions = packVersions;
+            this.engine = engine;
+        }
+    }
+
+    /**
+     * Adds rule pack rules to the built-in rules. A pack rule replaces the built-in rule with
+     * the same id; the result is ordered by severity, keeping the given order within a severity.
+     */
+    private static List<Rule> withPackRules(List<Rule> builtIn, List<Rule> packRules) {
+        Map<String, Rule> byId = new LinkedHashMap<>();
+        for (Rule rule : builtIn) byId.put(rule.getId(), rule);
+        for (Rule rule : packRules) byId.put(rule.getId(), rule);
+        List<Rule> rules = new ArrayList<>(byId.values());
+        rules.sort((a, b) -> Integer.compare(a.getSeverity().ordinal(), b.getSeverity().ordinal()));
+        return rules;
+    }
+
+    // Get the engine name
+    public String getName() {
+        return name;
+    }
+
+    // Get the rules in precedence order
+    public List<Rule> getRules() {
+        return Arrays.asList(rules);
+    }
+
+    // Whether the key/value heuristic runs after the rules
+    public boolean usesKeyValueHeuristic() {
+        return keyValueHeuristic;
+    }
+
+    // Get the regex step budget per character of a line
+    public int getStepsPerChar() {
+        return stepsPerChar;
+    }
+
+    // Get the LOW-tier entropy detector, or null if the engine has none
+    public EntropyDetector getEntropyDetector() {
+        return entropy;
+    }
+
+    /**
+     * Classifies a line against all rules.
+     * @param line Line content without line terminator.
+     * @return The highest-precedence match, or null if the line is clean.
+     */
+    public RuleMatch classify(CharSequence line) {
+        return classify(line, true);
+    }
+
+    /**
+     * Classifies a line, optionally without the key/value heuristic, e.g. for structured config
+     * files whose keys are read by a KeyPathTokenizer instead.
+     * @param line     Line content without line terminator.
+     * @param keyValue Whether to apply the key/value heuristic (if the engine uses it).
+     * @return The highest-precedence match, or null if the line is clean.
+     */
+    public RuleMatch classify(CharSequence line, boolean keyValue) {
+        return classify(line, 0, line.length(), keyValue);
+    }
+
+    /**
+     * Classifies the range line[from..to) without copying it. Rules match within the range but
+     * see the characters around it (transparent bounds), so a word boundary or lookaround at the
+     * edge of the range is judged on the whole line.
+     * @param line     Line content without line terminator.
+     * @param from     Start of the range (inclusive).
+     * @param to       End of the range (exclusive).
+     * @param keyValue Whether to apply the key/value heuristic (if the engine uses it).
+     * @return The highest-precedence match, with offsets in the line, or null if the range is clean.
+     */
+    RuleMatch classify(CharSequence line, int from, int to, boolean keyValue) {
+        State s = state.get();
+        boolean[] present = s.present;
+        Arrays.fill(present, false);
+
+        // Single pass: keywords, longest base64-style and entropy token runs, separator presence
+        int run = 0;
+        int longestRun = 0;
+        int tokenRun = 0;
+        int longestTokenRun = 0;
+        boolean separator = false;
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (isRunChar(c)) {
+                if (++run > longestRun) longestRun = run;
+            } else {
+                run = 0;
+            }
+            if (EntropyDetector.isTokenChar(c)) {
+                if (++tokenRun > longestTokenRun) longestTokenRun = tokenRun;
+            } else {
+                tokenRun = 0;
+            }
+            if (c == '=' || c == ':') separator = true;
+
+            char lower = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+            if (lower < 128) {
+                int[] candidates = keywordsByFirstChar[lower];
+                if (candidates != null) {
+                    for (int k : candidates) {
+                        if (!present[k] && regionMatchesIgnoreCase(line, i, to, keywords[k])) {
+                            present[k] = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Run only the rules whose preconditions hold, in precedence order
+        long budget = Math.max(MIN_RULE_STEPS, (long) stepsPerChar * (to - from));
+        for (int r = 0; r < rules.length; r++) {
+            Rule rule = rules[r];
+            if (longestRun < rule.getMinRunLength()) continue;
+            if (ruleKeywords[r].length > 0 && !anyPresent(present, ruleKeywords[r])) continue;
+
+            Matcher matcher = s.matchers[r].reset(s.input.reset(line, budget)).region(from, to);
+            long started = System.nanoTime();
+            boolean found = false;
+            try {
+                while (matcher.find()) {
+                    if (!isAllowed(rule, line, matcher.start(), matcher.end())) {
+                        found = true;
+                        break;
+                    }
+                }
+            } catch (StepBudgetExceeded e) {
+                ruleCosts[r].recordOverBudget();
+                RULE_OVER_BUDGET.increment();
+            }
+            long elapsed = System.nanoTime() - started;
+            ruleTimers[r].recordNanos(elapsed);
+            ruleCosts[r].record(elapsed, found);
+            if (found) {
+                return new RuleMatch(rule.getId(), rule.getSeverity(), matcher.start(), matcher.end());
+            }
+        }
+
+        // Heuristic: suspicious key with a long random value
+        if (keyValueHeuristic && keyValue && separator && anyPresent(present, keyValueKeywords)) {
+            long started = System.nanoTime();
+            RuleMatch match = checkKeyValue(line, from, to, s.buffer);
+            long elapsed = System.nanoTime() - started;
+            keyValueTimer.recordNanos(elapsed);
+            keyValueCost.record(elapsed, match != null);
+            if (match != null) return match;
+        }
+
+        // LOW tier: any high-entropy token
+        if (entropy != null && longestTokenRun >= entropy.getMinLength()) {
+            long started = System.nanoTime();
+            RuleMatch match = entropy.find(line, from, to);
+            long elapsed = System.nanoTime() - started;
+            entropyTimer.recordNanos(elapsed);
+            entropyCost.record(elapsed, match != null);
+            return match;
+        }
+        return null;
+    }
+
+    /**
+     * Classifies a line and then the text before and after each match again, so that every
+     * secret of a line that holds several (a minified JSON file) is found. A line without a match
+     * costs one classify call; a line with n matches at most 2n + 1. The ranges are classified
+     * in place, not copied.
+     * @param line     Line content without line terminator.
+     * @param keyValue Whether to apply the key/value heuristic (if the engine uses it).
+     * @return The matches ordered by start offset; empty if the line is clean.
+     */
+    public List<RuleMatch> classifyAll(CharSequence line, boolean keyValue) {
+        RuleMatch first = classify(line, keyValue);
+        if (first == null) return Collections.emptyList();
+        List<RuleMatch> matches = new ArrayList<>();
+        matches.add(first);
+        // Pending ranges of the line still to classify, as start/end pairs
+        int[] ranges = {0, first.getStart(), Math.max(first.getEnd(), first.getStart() + 1), line.length()};
+        int pending = 4;
+        while (pending > 0) {
+            int end = ranges[--pending];
+            int start = ranges[--pending];
+            if (start >= end) continue;
+            RuleMatch match = classify(line, start, end, keyValue);
+            if (match == null) continue;
+            matches.add(match);
+            if (pending + 4 > ranges.length) ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            ranges[pending++] = start;
+            ranges[pending++] = match.getStart();
+            // An empty match still moves on, so every range shrinks
+            ranges[pending++] = Math.max(match.getEnd(), match.getStart() + 1);
+            ranges[pending++] = end;
+        }
+        matches.sort(Comparator.comparingInt(RuleMatch::getStart));
+        return matches;
+    }
+
+    // Whether the rule's allowlist discards the match line[start..end)
+    private static boolean isAllowed(Rule rule, CharSequence line, int start, int end) {
+        Pattern allowlist = rule.getAllowlist();
+        return allowlist != null && allowlist.matcher(line.subSequence(start, end)).find();
+    }
+
+    /**
+     * Runs only the key/value heuristic on a line (used by the benchmarks).
+     * @param line Line content without line terminator.
+     * @return A generic-key-value match, or null.
+     */
+    RuleMatch checkKeyValue(CharSequence line) {
+        return checkKeyValue(line, 0, line.length(), state.get().buffer);
+    }
+
+    /**
+     * Checks a "key = value" or "key: value" range of a line for a suspicious key and value.
+     * Mirrors the original split/replace heuristic without allocating substrings:
+     * the key (quotes removed) must contain a suspicious word, and the value
+     * (quotes and commas removed) must be 30+ base64-style characters.
+     */
+    private RuleMatch checkKeyValue(CharSequence line, int from, int to, StringBuilder buffer) {
+        int sep = -1;
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c == ':' || c == '=') {
+                sep = i;
+                break;
+            }
+        }
+        if (sep < 0) return null;
+
+        // Lowercased key with quotes removed
+        buffer.setLength(0);
+        int keyStart = trimStart(line, from, sep);
+        int keyEnd = trimEnd(line, keyStart, sep);
+        for (int i = keyStart; i < keyEnd; i++) {
+            char c = line.charAt(i);
+            if (c != '"') buffer.append(Character.toLowerCase(c));
+        }
+        boolean suspiciousKey = false;
+        for (String word : KEY_VALUE_KEYWORDS) {
+            if (buffer.indexOf(word) >= 0) {
+                suspiciousKey = true;
+                break;
+            }
+        }
+        if (!suspiciousKey) return null;
+
+        // Value with quotes and commas removed must be a long base64-style token
+        int valueStart = trimStart(line, sep + 1, to);
+        int valueEnd = trimEnd(line, valueStart, to);
+        int count = 0;
+        for (int i = valueStart; i < valueEnd; i++) {
+            char c = line.charAt(i);
+            if (c == '"' || c == ',') continue;
+            if (!isRunChar(c)) return null;
+            count++;
+        }
+        if (count < KEY_VALUE_MIN_VALUE_LENGTH) return null;
+        return new RuleMatch(KEY_VALUE_RULE_ID, Severity.MEDIUM, valueStart, valueEnd);
+    }
+
+    private Timer ruleTimer(String ruleId) {
+        return Metrics.timer("cloudcred_rule_match_seconds", "Regex evaluation time per rule, for lines that pass the prefilter",
+                "engine", name, "rule", ruleId);
+    }
+
+    // Registers keywords in the shared table and returns their indices
+    private static int[] indexKeywords(String[] words, Map<String, Integer> table) {
+        int[] indices = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            String word = words[i].toLowerCase(Locale.ROOT);
+            Integer index = table.get(word);
+            if (index == null) {
+                index = table.size();
+                table.put(word, index);
+            }
+            indices[i] = index;
+        }
+        return indices;
+    }
+
+    private static boolean anyPresent(boolean[] present, int[] indices) {
+        for (int k : indices) {
+            if (present[k]) return true;
+        }
+        return false;
+    }
+
+    // ASCII case-insensitive comparison of a lowercase word against line[offset..limit)
+    private static boolean regionMatchesIgnoreCase(CharSequence line, int offset, int limit, String word) {
+        int n = word.length();
+        if (offset + n > limit) return false;
+        for (int j = 0; j < n; j++) {
+            char c = line.charAt(offset + j);
+            if (c >= 'A' && c <= 'Z') c = (char) (c + ('a' - 'A'));
+            if (c != word.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    // Same characters as the [A-Za-z0-9/+=] class used by the patterns
+    static boolean isRunChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+            || c == '/' || c == '+' || c == '=';
+    }
+
+    // String.trim() semantics: skip characters <= ' '
+    private static int trimStart(CharSequence line, int from, int to) {
+        while (from < to && line.charAt(from) <= ' ') from++;
+        return from;
+    }
+
+    private static int trimEnd(CharSequence line, int from, int to) {
+        while (to > from && line.charAt(to - 1) <= ' ') to--;
+        return to;
+    }
+
+    // Reusable per-thread matchers and buffers
+    private class State {
+        final Matcher[] matchers = new Matcher[rules.length];
+        final boolean[] present = new boolean[keywords.length];
+        final StringBuilder buffer = new StringBuilder(64);
+        final StepCountingSequence input = new StepCountingSequence();
+
+        State() {
+            for (int r = 0; r < rules.length; r++) {
+                // Kept across reset(): classifying a range must not treat its edges as line edges
+                matchers[r] = rules[r].getPattern().matcher("").useTransparentBounds(true).useAnchoringBounds(false);
+            }
+        }
+    }
+
+    // Thrown by StepCountingSequence when a regex has used up its budget; shared, without stack trace
+    private static final class StepBudgetExceeded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final StepBudgetExceeded INSTANCE = new StepBudgetExceeded();
+
+        private StepBudgetExceeded() {
+            super("Regex step budget exceeded", null, false, false);
+        }
+    }
+
+    /**
+     * View of a line that counts character reads. java.util.regex has no time limit, but every
+     * step of matching, backtracking included, reads the input, so counting reads bounds the work.
+     */
+    private static final class StepCountingSequence implements CharSequence {
+        private CharSequence line;
+        private long remaining;
+
+        StepCountingSequence reset(CharSequence line, long budget) {
+            this.line = line;
+            this.remaining = budget;
+            return this;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (--remaining < 0) throw StepBudgetExceeded.INSTANCE;
+            return line.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return line.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return line.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.cloudcred.scanner;
+
+
+/**
+ * Key paths of line-oriented "key = value" files: Java .properties, .env and .ini.
+ * Keys are used as written, so "spring.datasource.password" is its own path; in .ini files
+ * the key is prefixed with the current [section]. Dialect differences:
+ * - properties: '=', ':' or blanks separate; a line ending in an odd number of backslashes continues
+ *   the value on the next line; '#' and '!' start comments
+ * - env: an optional "export " prefix; a double-quoted value may span lines; " #" starts an
+ *   inline comment after an unquoted value
+ * - ini: [section] headers; ';' and '#' start comments, also inline after an unquoted value
+ */
+class PropertiesTokenizer extends KeyPathTokenizer {
+
+    // File flavours that differ in comments, continuation lines and sections
+    enum Dialect {
+        PROPERTIES,
+        ENV,
+        INI
+    }
+
+    private final Dialect dialect;
+    // Whether the previous line ended inside a value: a backslash continuation or an open quote
+    private boolean continuation;
+    private char openQuote;
+
+    PropertiesTokenizer(Dialect dialect) {
+        this.dialect = dialect;
+        if (dialect == Dialect.INI) enter();
+    }
+
+    @Override
+    protected void tokenize(CharSequence line) {
+        int length = line.length();
+        if (continuation) {
+            continueValue(line, trimStart(line, 0, length), length);
+            return;
+        }
+
+        int start = trimStart(line, 0, length);
+        if (start == length) return;
+        char first = line.charAt(start);
+        if (first == '#' || (first == '!' && dialect == Dialect.PROPERTIES) || (first == ';' && dialect == Dialect.INI)) {
+            return;
+        }
+        if (first == '[' && dialect == Dialect.INI) {
+            int close = indexOf(line, ']', start + 1, length);
+            if (close > 0) {
+                leave();
+                key(line, start + 1, close);
+                enter();
+            }
+            return;
+        }
+        if (dialect == Dialect.ENV && startsWithIgnoreCase(line, start, length, "export ")) {
+            start = trimStart(line, start + "export ".length(), length);
+        }
+
+        // The key ends at the first unescaped separator
+        int sep = -1;
+        for (int i = start; i < length; i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && dialect == Dialect.PROPERTIES) {
+                i++;
+            } else if (c == '=' || (c == ':' && dialect != Dialect.ENV)) {
+                sep = i;
+                break;
+            } else if (dialect == Dialect.PROPERTIES && isBlank(c)) {
+                // "key value": blanks end the key, and may be followed by '=' or ':'
+                sep = trimStart(line, i, length);
+                if (sep == length || (line.charAt(sep) != '=' && line.charAt(sep) != ':')) sep--;
+                break;
+            }
+        }
+        if (sep < 0) return;
+        int keyEnd = trimEnd(line, start, sep);
+        if (keyEnd == start) return;
+        key(line, start, keyEnd);
+        readValue(line, trimStart(line, sep + 1, length), length);
+    }
+
+    // Blanks that separate a key from its value in .properties files
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+
+    // Reads the value of a "key = value" line starting at from
+    private void readValue(CharSequence line, int from, int length) {
+        if (from < length && dialect != Dialect.PROPERTIES && (line.charAt(from) == '"' || line.charAt(from) == '\'')) {
+            char quote = line.charAt(from);
+            int close = indexOf(line, quote, from + 1, length);
+            if (close < 0 && dialect == Dialect.ENV && quote == '"') {
+                openQuote = quote;
+                continuation = true;
+                value(line, from + 1, length, false, true);
+            } else {
+                value(line, from + 1, close < 0 ? length : close, false, false);
+            }
+            return;
+        }
+        int end = valueEnd(line, from, length);
+        continuation = dialect == Dialect.PROPERTIES && endsWithContinuation(line, from, end);
+        value(line, from, continuation ? end - 1 : end, false, continuation);
+    }
+
+    // Reads a line that continues the value of the previous one
+    private void continueValue(CharSequence line, int from, int length) {
+        if (openQuote != 0) {
+            int close = indexOf(line, openQuote, from, length);
+            if (close >= 0) {
+                openQuote = 0;
+                continuation = false;
+            }
+            value(line, from, close < 0 ? length : close, true, close < 0);
+            return;
+        }
+        int end = trimEnd(line, from, length);
+        continuation = endsWithContinuation(line, from, end);
+        value(line, from, continuation ? end - 1 : end, true, continuation);
+    }
+
+    // End of an unquoted value: before an inline comment in .env and .ini files
+    private int valueEnd(CharSequence line, int from, int length) {
+        if (dialect == Dialect.PROPERTIES) return trimEnd(line, from, length);
+        for (int i = from + 1; i < length; i++) {
+            char c = line.charAt(i);
+            if ((c == '#' || (c == ';' && dialect == Dialect.INI)) && line.charAt(i - 1) <= ' ') {
+                return trimEnd(line, from, i);
+            }
+        }
+        return trimEnd(line, from, length);
+    }
+
+    // Whether line[from..end) ends in an odd number of backslashes
+    private static boolean endsWithContinuation(CharSequence line, int from, int end) {
+        int backslashes = 0;
+        while (end - backslashes > from && line.charAt(end - backslashes - 1) == '\\') backslashes++;
+        return backslashes % 2 == 1;
+    }
+
+    private static int indexOf(CharSequence line, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (line.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,91 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.model.Finding.Severity;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+
+/**
+ * A single detection rule used by {@link MatchEngine}.
+ * Besides the regex itself, a rule declares the cheap preconditions a line must meet
+ * before the regex is worth running: at least one keyword (case-insensitive) and a
+ * minimum run of base64-style characters. An optional allowlist regex discards matches
+ * whose text it finds, e.g. documented example keys.
+ */
+public class Rule {
+    private final String id;
+    private final Severity severity;
+    private final Pattern pattern;
+    private final String[] keywords;
+    private final int minRunLength;
+    private final Pattern allowlist;
+
+    /**
+     * Constructs a Rule without an allowlist.
+     * @param id           Stable identifier of the rule (e.g. "aws-access-key-id").
+     * @param severity     Severity reported when the rule matches.
+     * @param pattern      Regex that confirms a match.
+     * @param keywords     Literals of which at least one must occur in the line; empty for none.
+     * @param minRunLength Minimum run of [A-Za-z0-9/+=] characters the line must contain; 0 for none.
+     */
+    public Rule(String id, Severity severity, Pattern pattern, String[] keywords, int minRunLength) {
+        this(id, severity, pattern, keywords, minRunLength, null);
+    }
+
+    /**
+     * Constructs a Rule.
+     * @param id           Stable identifier of the rule (e.g. "aws-access-key-id").
+     * @param severity     Severity reported when the rule matches.
+     * @param pattern      Regex that confirms a match.
+     * @param keywords     Literals of which at least one must occur in the line; empty for none.
+     * @param minRunLength Minimum run of [A-Za-z0-9/+=] characters the line must contain; 0 for none.
+     * @param allowlist    Regex that discards a match when found in the matched text; null for none.
+     */
+    public Rule(String id, Severity severity, Pattern pattern, String[] keywords, int minRunLength, Pattern allowlist) {
+        this.id = id;
+        this.severity = severity;
+        this.pattern = pattern;
+        this.keywords = new String[keywords.length];
+        for (int i = 0; i < keywords.length; i++) {
+            this.keywords[i] = keywords[i].toLowerCase(Locale.ROOT);
+        }
+        this.minRunLength = minRunLength;
+        this.allowlist = allowlist;
+    }
+
+    // Get the rule identifier
+    public String getId() {
+        return id;
+    }
+
+    // Get the severity reported by this rule
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    // Get the confirming regex
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    // Get the lowercase prefilter keywords
+    public String[] getKeywords() {
+        return keywords;
+    }
+
+    // Get the minimum base64-style run length required by the prefilter
+    public int getMinRunLength() {
+        return minRunLength;
+    }
+
+    // Get the allowlist regex, or null if the rule has none
+    public Pattern getAllowlist() {
+        return allowlist;
+    }
+
+    @Override
+    public String toString() {
+        return id + " [" + severity + "]";
+    }
+}
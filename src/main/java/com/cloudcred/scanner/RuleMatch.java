@@ -0,0 +1,92 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+
+
+/**
+ * Result of classifying a line with {@link MatchEngine}: the rule that fired
+ * and the character span it matched within the line. Matches in structured config files
+ * also carry the key path of the value they fall in (see KeyPathTokenizer).
+ */
+public class RuleMatch {
+    private final String ruleId;
+    private final Severity severity;
+    private final int start;
+    private final int end;
+    private final String keyPath;
+
+    /**
+     * Constructs a RuleMatch.
+     * @param ruleId   Identifier of the rule that matched.
+     * @param severity Severity of the rule.
+     * @param start    Start offset of the match (inclusive).
+     * @param end      End offset of the match (exclusive).
+     */
+    public RuleMatch(String ruleId, Severity severity, int start, int end) {
+        this(ruleId, severity, start, end, null);
+    }
+
+    /**
+     * Constructs a RuleMatch for a value of a structured config file.
+     * @param ruleId   Identifier of the rule that matched.
+     * @param severity Severity of the rule.
+     * @param start    Start offset of the match (inclusive).
+     * @param end      End offset of the match (exclusive).
+     * @param keyPath  Dotted path of the key whose value matched (may be null).
+     */
+    public RuleMatch(String ruleId, Severity severity, int start, int end, String keyPath) {
+        this.ruleId = ruleId;
+        this.severity = severity;
+        this.start = start;
+        this.end = end;
+        this.keyPath = keyPath;
+    }
+
+    // Get the identifier of the rule that matched
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    // Get the severity of the match
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    // Get the start offset of the match
+    public int getStart() {
+        return start;
+    }
+
+    // Get the end offset of the match
+    public int getEnd() {
+        return end;
+    }
+
+    // Get the key path of the matched value, or null
+    public String getKeyPath() {
+        return keyPath;
+    }
+
+    /**
+     * Returns this match attributed to a key path.
+     * @param path Dotted key path (may be null).
+     */
+    public RuleMatch withKeyPath(String path) {
+        return path == null ? this : new RuleMatch(ruleId, severity, start, end, path);
+    }
+
+    /**
+     * Creates the finding for this match. Only the match offsets, a masked snippet of the
+     * line and a hash of the secret are kept, never the line itself.
+     * @param filePath      Path of the file or object.
+     * @param lineNumber    Line number of the match.
+     * @param line          The line that was classified.
+     * @param sourceVersion Version of the scanned content (may be null).
+     * @return The finding.
+     */
+    public Finding toFinding(String filePath, int lineNumber, CharSequence line, String sourceVersion) {
+        return new Finding(filePath, lineNumber, Finding.snippet(line, start, end), start, end,
+                severity, ruleId, sourceVersion, keyPath, Finding.secretHash(line, start, end));
+    }
+}
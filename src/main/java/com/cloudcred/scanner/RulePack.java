@@ -0,0 +1,223 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.report.Json;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+
+/**
+ * A set of detection rules loaded from a JSON Lines file (--rules=).
+ * Every line that is not empty and does not start with '#' defines one rule, e.g.
+ *   {"id":"slack-token","severity":"HIGH","pattern":"xox[baprs]-[0-9A-Za-z-]{10,48}","keywords":"xox"}
+ * id, severity (HIGH, MEDIUM or LOW) and pattern are required. Optional fields:
+ *   keywords  comma-separated literals of which one must occur in the line before the regex runs
+ *   minRun    minimum run of [A-Za-z0-9/+=] characters the line must contain
+ *   allowlist regex that discards a match when found in the matched text
+ *   engines   comma-separated scanners that use the rule: file, s3 (default: both)
+ * A pack rule with the id of a built-in rule of the same engine replaces it.
+ * Packs are read and their patterns compiled once per version of the file (modification time and
+ * size), then shared by every engine; an edited pack is read again on its next use, so a running
+ * scan server or watcher picks it up. A version that fails to load is reported once; until the
+ * file is fixed the last version that loaded is used, or no rules if none did.
+ */
+public final class RulePack {
+    private static final RulePack EMPTY = new RulePack(Collections.emptyList(), Collections.emptyList());
+
+    // Packs by path, with the file version they were read from
+    private static final Map<String, Loaded> LOADED = new ConcurrentHashMap<>();
+
+    // A pack as read from one version of its file
+    private static final class Loaded {
+        final String version;
+        final RulePack pack;
+        // Whether this version failed to load; pack is then the last good one or EMPTY
+        final boolean failed;
+
+        Loaded(String version, RulePack pack, boolean failed) {
+            this.version = version;
+            this.pack = pack;
+            this.failed = failed;
+        }
+    }
+
+    private final List<Rule> fileRules;
+    private final List<Rule> s3Rules;
+
+    private RulePack(List<Rule> fileRules, List<Rule> s3Rules) {
+        this.fileRules = fileRules;
+        this.s3Rules = s3Rules;
+    }
+
+    /**
+     * Returns the rules of the given packs for one engine, in pack and file order.
+     * Packs that cannot be read or parsed are reported and skipped.
+     * @param paths  Rule pack files.
+     * @param engine Engine name, "file" or "s3".
+     * @return Rules for the engine.
+     */
+    static List<Rule> rules(List<String> paths, String engine) {
+        List<Rule> rules = new ArrayList<>();
+        for (String path : paths) {
+            RulePack pack = current(path).pack;
+            rules.addAll(engine.equals("s3") ? pack.s3Rules : pack.fileRules);
+        }
+        return rules;
+    }
+
+    /**
+     * Loads every pack now, so that a broken pack stops a non-interactive run before it scans.
+     * @param paths Rule pack files.
+     * @return true if every pack loaded; failures have been reported.
+     */
+    public static boolean loadAll(List<String> paths) {
+        boolean loaded = true;
+        for (String path : paths) {
+            if (current(path).failed) loaded = false;
+        }
+        return loaded;
+    }
+
+    /**
+     * Versions of the given pack files, which change whenever one of them is edited.
+     * @param paths Rule pack files.
+     * @return One version per pack, in order.
+     */
+    static String versions(List<String> paths) {
+        StringBuilder sb = new StringBuilder();
+        for (String path : paths) sb.append(version(path)).append(';');
+        return sb.toString();
+    }
+
+    // The pack for the current version of the file, read again if the file changed
+    private static Loaded current(String path) {
+        String version = version(path);
+        return LOADED.compute(path, (p, loaded) ->
+                loaded != null && loaded.version.equals(version) ? loaded : loadOrReport(p, version, loaded));
+    }
+
+    private static Loaded loadOrReport(String path, String version, Loaded previous) {
+        String error;
+        try {
+            RulePack pack = load(path);
+            System.out.println("✅ Loaded rule pack " + path + " (" + pack.fileRules.size() + " file rules, "
+                    + pack.s3Rules.size() + " S3 rules)");
+            return new Loaded(version, pack, false);
+        } catch (NoSuchFileException e) {
+            error = "file not found";
+        } catch (IOException | IllegalArgumentException e) {
+            error = e.getMessage();
+        }
+        if (previous != null && previous.pack != EMPTY) {
+            System.out.println("❌ Cannot load rule pack " + path + " - " + error + "; keeping the rules loaded before");
+            return new Loaded(version, previous.pack, true);
+        }
+        System.out.println("❌ Cannot load rule pack " + path + " - " + error);
+        return new Loaded(version, EMPTY, true);
+    }
+
+    // Modification time and size of the file, or a marker if it cannot be read
+    private static String version(String path) {
+        try {
+            Path file = Paths.get(path);
+            return Files.getLastModifiedTime(file).toMillis() + "/" + Files.size(file);
+        } catch (NoSuchFileException e) {
+            return "missing";
+        } catch (IOException | RuntimeException e) {
+            return "unreadable";
+        }
+    }
+
+    /**
+     * Reads and compiles a rule pack.
+     * @param path Rule pack file.
+     * @return The pack.
+     * @throws IOException              If the file cannot be read.
+     * @throws IllegalArgumentException If a line is not a valid rule; the message names the line.
+     */
+    static RulePack load(String path) throws IOException {
+        List<Rule> fileRules = new ArrayList<>();
+        List<Rule> s3Rules = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNum = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNum++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+                Map<String, String> values;
+                Rule rule;
+                try {
+                    values = Json.parseObject(trimmed);
+                    rule = parseRule(values);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("line " + lineNum + ": " + e.getMessage(), e);
+                }
+                String engines = values.get("engines");
+                boolean file = engines == null;
+                boolean s3 = engines == null;
+                if (engines != null) {
+                    for (String engine : engines.split(",")) {
+                        engine = engine.trim().toLowerCase(Locale.ROOT);
+                        if (engine.equals("file")) file = true;
+                        else if (engine.equals("s3")) s3 = true;
+                        else throw new IllegalArgumentException("line " + lineNum + ": unknown engine '" + engine + "'");
+                    }
+                }
+                if (file) fileRules.add(rule);
+                if (s3) s3Rules.add(rule);
+            }
+        }
+        return new RulePack(fileRules, s3Rules);
+    }
+
+    // Builds a rule from the fields of one line; PatternSyntaxException is an IllegalArgumentException
+    private static Rule parseRule(Map<String, String> values) {
+        String id = required(values, "id");
+        Severity severity;
+        try {
+            severity = Severity.valueOf(required(values, "severity").trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("severity must be HIGH, MEDIUM or LOW");
+        }
+        Pattern pattern = Pattern.compile(required(values, "pattern"));
+
+        List<String> keywords = new ArrayList<>();
+        String keywordList = values.get("keywords");
+        if (keywordList != null) {
+            for (String keyword : keywordList.split(",")) {
+                if (!keyword.trim().isEmpty()) keywords.add(keyword.trim());
+            }
+        }
+        int minRun = 0;
+        if (values.get("minRun") != null) {
+            try {
+                minRun = Math.max(0, Integer.parseInt(values.get("minRun").trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("minRun must be a number");
+            }
+        }
+        String allowlist = values.get("allowlist");
+        return new Rule(id, severity, pattern, keywords.toArray(new String[0]), minRun,
+                allowlist == null || allowlist.isEmpty() ? null : Pattern.compile(allowlist));
+    }
+
+    private static String required(Map<String, String> values, String name) {
+        String value = values.get(name);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("missing \"" + name + "\"");
+        return value;
+    }
+}
@@ -0,0 +1,86 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.model.ScanConfig;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.GetBucketLocationResponse;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * S3ClientCache hands out one S3Client per region and remembers which region each bucket lives in.
+ * Clients are thread-safe and are reused for every object of every bucket in that region.
+ * When config.s3Endpoint is set, clients talk to that endpoint with path-style addressing,
+ * which lets the scanner run against a local S3-compatible stand-in.
+ */
+public class S3ClientCache implements AutoCloseable {
+    // Region used for bucket location lookups and buckets without a location constraint
+    private static final Region DEFAULT_REGION = Region.US_EAST_1;
+
+    private final ScanConfig config;
+    private final Map<Region, S3Client> clients = new ConcurrentHashMap<>();
+    private final Map<String, Region> bucketRegions = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for S3ClientCache.
+     * @param config ScanConfig object with S3 settings.
+     */
+    public S3ClientCache(ScanConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Returns the client for the region hosting a bucket.
+     * @param bucketName Name of the S3 bucket.
+     * @return Shared client for the bucket's region.
+     */
+    public S3Client forBucket(String bucketName) {
+        Region region = bucketRegions.computeIfAbsent(bucketName, this::lookupRegion);
+        return forRegion(region);
+    }
+
+    /**
+     * Returns the client for a region, creating it on first use.
+     * @param region AWS region.
+     * @return Shared client.
+     */
+    public S3Client forRegion(Region region) {
+        return clients.computeIfAbsent(region, r -> {
+            S3ClientBuilder builder = S3Client.builder()
+                    .region(r)
+                    .credentialsProvider(DefaultCredentialsProvider.create());
+            if (config.s3Endpoint != null && !config.s3Endpoint.isEmpty()) {
+                builder.endpointOverride(URI.create(config.s3Endpoint)).forcePathStyle(true);
+            }
+            return builder.build();
+        });
+    }
+
+    // Resolves the bucket region, falling back to the default region if the lookup fails
+    private Region lookupRegion(String bucketName) {
+        try {
+            GetBucketLocationResponse location = forRegion(DEFAULT_REGION)
+                    .getBucketLocation(r -> r.bucket(bucketName));
+            String constraint = location.locationConstraintAsString();
+            if (constraint == null || constraint.isEmpty()) return DEFAULT_REGION;
+            if (constraint.equals("EU")) return Region.EU_WEST_1;
+            return Region.of(constraint);
+        } catch (Exception e) {
+            System.out.println("Could not resolve region for bucket " + bucketName + ", using " + DEFAULT_REGION + " - " + e.getMessage());
+            return DEFAULT_REGION;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (S3Client client : clients.values()) {
+            client.close();
+        }
+        clients.clear();
+    }
+}
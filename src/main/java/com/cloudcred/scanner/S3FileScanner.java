@@ -1,40 +1,51 @@
 package com.cloudcred.scanner;
 
+import com.cloudcred.metrics.Counter;
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.metrics.Timer;
 import com.cloudcred.model.Finding;
-import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.FindingSink;
 import com.cloudcred.model.ScanConfig;
-import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
 
 
 // This class is responsible for scanning AWS S3 buckets for credential leaks.
-// It uses regex patterns to classify findings by severity, similar to FileScanner.
+// It uses the shared MatchEngine to classify findings by severity, similar to FileScanner.
+// Listings are fully paginated and objects are downloaded and scanned on a bounded pool,
+// limited both by the number of concurrent requests and by the bytes in flight.
+// With a manifest configured, objects whose ETag, size and last-modified time match
+// the previous run are answered from the manifest instead of being downloaded.
 public class S3FileScanner {
+    private static final Timer SCAN_PHASE = Metrics.timer("cloudcred_phase_seconds", "Wall time of each scan phase", "phase", "s3_scan");
+    private static final Timer LIST_REQUEST = Metrics.timer("cloudcred_s3_request_seconds", "S3 request latency", "operation", "ListObjectsV2");
+    private static final Timer GET_REQUEST = Metrics.timer("cloudcred_s3_request_seconds", "S3 request latency", "operation", "GetObject");
+    private static final Timer PROBE_REQUEST = Metrics.timer("cloudcred_s3_request_seconds", "S3 request latency", "operation", "GetObjectHeader");
+    private static final Timer OBJECT_SCAN = Metrics.timer("cloudcred_s3_object_scan_seconds", "Time to download and match one S3 object");
+    private static final Counter OBJECTS_SCANNED = Metrics.counter("cloudcred_s3_objects_scanned_total", "S3 objects downloaded and matched");
+    private static final Counter BYTES_DOWNLOADED = Metrics.counter("cloudcred_s3_bytes_scanned_total", "Bytes of S3 objects downloaded and matched");
+    private static final Counter MANIFEST_HITS = Metrics.counter("cloudcred_s3_manifest_hits_total", "S3 objects answered from the manifest");
 
-    // Regex for high risk credentials (AWS keys)
-    private static final Pattern HIGH_PATTERN = Pattern.compile(
-        "(?i)AWS_ACCESS_KEY_ID\\s*=\\s*AKIA[0-9A-Z]{16}"
-    );
-
-    // Regex for medium risk credentials (AWS secret keys)
-    private static final Pattern MEDIUM_PATTERN = Pattern.compile(
-        "(?i)AWS_SECRET_ACCESS_KEY\\s*=\\s*[A-Za-z0-9/+=]{40}"
-    );
-
-    // Regex for low risk: long random strings and AWS keys
-    private static final Pattern LOW_PATTERN = Pattern.compile(
-        "\\bAKIA[0-9A-Z]{16}\\b|\\b[A-Za-z0-9/+=]{40}\\b"
-    );
+    // Objects up to this size are triaged on the full download; larger ones get a ranged GET of the header first
+    private static final long PROBE_THRESHOLD = 1024 * 1024;
 
     private final ScanConfig config;
+    // Compiled detection rules, shared by all scanners with the same entropy settings
+    private final MatchEngine engine;
+    // Reads entries of archive objects (null unless config.scanArchives)
+    private final ArchiveScanner archives;
+    // Classifies objects before they are downloaded (null unless config.contentTriage)
+    private final ContentTriage triage;
 
     /**
      * Constructor for S3FileScanner.
@@ -42,10 +53,14 @@ public class S3FileScanner {
      */
     public S3FileScanner(ScanConfig config) {
         this.config = config;
+        this.engine = MatchEngine.forS3(config);
+        this.archives = config.scanArchives ? new ArchiveScanner(config, engine) : null;
+        this.triage = config.contentTriage ? new ContentTriage(config) : null;
     }
 
     /**
      * Scans all buckets listed in config.s3Buckets for leaks.
+     * Buckets are scanned in parallel; findings are returned in bucket order.
      * @return List of all findings from all buckets.
      */
     public List<Finding> scanS3() {
@@ -54,13 +69,67 @@ public class S3FileScanner {
             return allFindings;
         }
 
-        for (String bucket : config.s3Buckets) {
-            allFindings.addAll(scanSingleBucket(bucket));
+        List<List<Finding>> perBucket = new ArrayList<>();
+        for (int i = 0; i < config.s3Buckets.size(); i++) {
+            perBucket.add(new ArrayList<>());
+        }
+        scanBuckets(i -> perBucket.get(i)::add);
+        for (List<Finding> bucketFindings : perBucket) {
+            allFindings.addAll(bucketFindings);
         }
-
         return allFindings;
     }
 
+    /**
+     * Scans all buckets listed in config.s3Buckets and emits findings into the sink as they are produced.
+     * Within a bucket findings arrive in listing order; buckets are scanned in parallel,
+     * so the sink must be thread-safe.
+     * @param sink Receives findings as they are produced.
+     * @return False if a bucket could not be listed or the manifest could not be saved.
+     */
+    public boolean scanS3(FindingSink sink) {
+        if (config.s3Buckets == null || config.s3Buckets.isEmpty()) {
+            return true;
+        }
+        return scanBuckets(i -> sink);
+    }
+
+    // Scans every configured bucket in parallel, sending each bucket's findings to its own sink;
+    // false if a bucket failed or the manifest was not saved
+    private boolean scanBuckets(IntFunction<FindingSink> sinkForBucket) {
+        long started = Metrics.start();
+        // Loaded per call, since the scanner may be shared by overlapping calls
+        ScanIndex manifest = config.s3ManifestPath != null
+                ? ScanIndex.load(ScanIndex.location(config.s3ManifestPath, config), ScanIndex.fingerprint(engine, config)) : null;
+
+        int bucketThreads = Math.max(1, Math.min(config.s3BucketParallelism, config.s3Buckets.size()));
+        ExecutorService bucketPool = Executors.newFixedThreadPool(bucketThreads);
+        ExecutorService objectPool = newObjectPool();
+        Semaphore inFlight = newInFlightLimit();
+        boolean complete = true;
+
+        try (S3ClientCache clients = new S3ClientCache(config)) {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < config.s3Buckets.size(); i++) {
+                String bucket = config.s3Buckets.get(i);
+                FindingSink sink = sinkForBucket.apply(i);
+                results.add(bucketPool.submit(() -> scanBucket(bucket, clients, objectPool, inFlight, manifest, sink)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                complete &= await(results.get(i), "S3 bucket: " + config.s3Buckets.get(i), false);
+            }
+        } finally {
+            bucketPool.shutdownNow();
+            objectPool.shutdownNow();
+            if (manifest != null) {
+                // Objects of the scanned buckets that were not listed this run have been deleted and are pruned
+                complete &= manifest.save(this::inScope);
+            }
+            SCAN_PHASE.record(started);
+        }
+        return complete;
+    }
+
     /**
      * Scans a single S3 bucket for leaks.
      * @param bucketName Name of the S3 bucket.
@@ -68,64 +137,270 @@ public class S3FileScanner {
      */
     public List<Finding> scanSingleBucket(String bucketName) {
         List<Finding> findings = new ArrayList<>();
+        ExecutorService objectPool = newObjectPool();
+        try (S3ClientCache clients = new S3ClientCache(config)) {
+            scanBucket(bucketName, clients, objectPool, newInFlightLimit(), null, findings::add);
+            return findings;
+        } finally {
+            objectPool.shutdownNow();
+        }
+    }
 
-        try (S3Client s3 = S3Client.builder()
-                .region(Region.US_EAST_1)
-                .credentialsProvider(DefaultCredentialsProvider.create())
-                .build()) {
+    /**
+     * Lists every page of a bucket and scans matching objects on the object pool.
+     * At most a small multiple of config.s3Concurrency objects are queued at once, and
+     * results are emitted in listing order so output stays stable between runs.
+     * The manifest of the scanS3 call (may be null) answers unchanged objects.
+     * @return False if the bucket could not be listed to the end.
+     */
+    private boolean scanBucket(String bucketName, S3ClientCache clients, ExecutorService objectPool,
+                            Semaphore inFlight, ScanIndex manifest, FindingSink sink) {
+        int window = Math.max(1, config.s3Concurrency) * 4;
+        Deque<Future<List<Finding>>> pending = new ArrayDeque<>();
+        Deque<String> pendingKeys = new ArrayDeque<>();
+        boolean listed = true;
 
-            // List objects in the bucket
+        try {
+            S3Client s3 = clients.forBucket(bucketName);
             ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
                     .bucket(bucketName)
                     .prefix(config.s3Prefix)
                     .build();
 
-            ListObjectsV2Response listResponse = s3.listObjectsV2(listRequest);
-            for (S3Object s3Object : listResponse.contents()) {
-                String key = s3Object.key();
-                if (!shouldScan(key)) continue;
+            // The paginator follows continuation tokens until the listing is exhausted;
+            // each hasNext() that needs a page issues one ListObjectsV2 request
+            Iterator<ListObjectsV2Response> pages = s3.listObjectsV2Paginator(listRequest).iterator();
+            while (true) {
+                long listStarted = Metrics.start();
+                if (!pages.hasNext()) break;
+                ListObjectsV2Response page = pages.next();
+                LIST_REQUEST.record(listStarted);
 
-                // Download and scan each object
-                GetObjectRequest getRequest = GetObjectRequest.builder()
-                        .bucket(bucketName)
-                        .key(key)
-                        .build();
+                for (S3Object s3Object : page.contents()) {
+                    String key = s3Object.key();
+                    if (!shouldScan(key) || !Shards.owns(config, bucketName + "/" + key)) continue;
 
-                try (ResponseInputStream<GetObjectResponse> s3ObjectStream = s3.getObject(getRequest);
-                     BufferedReader reader = new BufferedReader(new InputStreamReader(s3ObjectStream))) {
+                    pending.add(objectPool.submit(() -> scanObject(s3, bucketName, s3Object, inFlight, manifest)));
+                    pendingKeys.add(key);
+                    while (pending.size() >= window) {
+                        await(pending.poll(), "S3 object: " + pendingKeys.poll(), Collections.<Finding>emptyList()).forEach(sink::accept);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Failed to scan S3 bucket: " + bucketName + " - " + e.getMessage());
+            listed = false;
+            if (manifest != null) {
+                // The listing is incomplete, so absent objects must not be pruned
+                manifest.retainPrefix("s3://" + bucketName + "/");
+            }
+        }
 
+        while (!pending.isEmpty()) {
+            await(pending.poll(), "S3 object: " + pendingKeys.poll(), Collections.<Finding>emptyList()).forEach(sink::accept);
+        }
+        return listed;
+    }
+
+    /**
+     * Downloads and scans one object, holding in-flight byte permits for its size.
+     * Unchanged objects are answered from the manifest without a GET. With content triage,
+     * oversized objects are skipped on their listed size, objects over PROBE_THRESHOLD are
+     * classified from a ranged GET of their first block before being downloaded, and only the
+     * leading sample of an oversized text object is requested.
+     */
+    private List<Finding> scanObject(S3Client s3, String bucketName, S3Object s3Object, Semaphore inFlight,
+                                     ScanIndex manifest) throws InterruptedException {
+        String key = s3Object.key();
+        String path = "s3://" + bucketName + "/" + key;
+        long size = s3Object.size() == null ? 0 : s3Object.size();
+        long lastModified = s3Object.lastModified() == null ? 0 : s3Object.lastModified().toEpochMilli();
+        String eTag = s3Object.eTag() == null ? "" : s3Object.eTag();
+
+        if (manifest != null) {
+            ScanIndex.Entry cached = manifest.lookup(path);
+            if (cached != null && !eTag.isEmpty() && cached.getContentHash().equals(eTag)
+                    && cached.getSize() == size && cached.getLastModified() == lastModified) {
+                MANIFEST_HITS.increment();
+                // The manifest does not store versions; the cached findings belong to this ETag
+                List<Finding> findings = new ArrayList<>(cached.getFindings().size());
+                for (Finding f : cached.getFindings()) {
+                    findings.add(new Finding(f.getFilePath(), f.getLineNumber(), f.getSuspiciousLine(),
+                            f.getMatchStart(), f.getMatchEnd(), f.getSeverity(), f.getRuleId(), eTag, f.getKeyPath(),
+                            f.getSecretHash()));
+                }
+                return findings;
+            }
+        }
+
+        List<Finding> findings = new ArrayList<>();
+        boolean archive = archives != null && ArchiveScanner.isArchive(key);
+        ContentTriage.Decision decision = null;
+        if (triage != null && !archive) {
+            decision = triage.checkSize(size);
+            if (decision == null && size > PROBE_THRESHOLD) {
+                decision = probe(s3, bucketName, key, eTag, size);
+                if (decision == null) return findings;
+            }
+            if (decision != null && decision.getAction() == ContentTriage.Action.SKIP) {
+                if (decision.isOversized()) {
+                    System.out.println("⚠️ Skipping oversized S3 object (" + size + " bytes): " + path);
+                }
+                if (manifest != null) {
+                    manifest.update(path, new ScanIndex.Entry(size, lastModified, eTag, findings));
+                }
+                return findings;
+            }
+        }
+
+        long limit = decision != null ? decision.getLimit() : Long.MAX_VALUE;
+        int permits = permitsFor(Math.min(size, limit));
+        inFlight.acquire(permits);
+        try {
+            // Pin the GET to the listed ETag so findings always describe that exact version
+            GetObjectRequest getRequest = GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .ifMatch(eTag.isEmpty() ? null : eTag)
+                    .range(limit < size ? "bytes=0-" + (limit - 1) : null)
+                    .build();
+
+            long started = Metrics.start();
+            try (ResponseInputStream<GetObjectResponse> s3ObjectStream = s3.getObject(getRequest)) {
+                // Time to response headers
+                GET_REQUEST.record(started);
+
+                if (archive) {
+                    if (!archives.scan(path, new BufferedInputStream(s3ObjectStream, 64 * 1024),
+                            eTag.isEmpty() ? null : eTag, findings::add)) {
+                        // Cut short by a limit: drop the connection instead of draining the rest
+                        s3ObjectStream.abort();
+                    }
+                } else {
+                    InputStream in = s3ObjectStream;
+                    // Platform default, as before triage
+                    Charset charset = Charset.defaultCharset();
+                    if (triage != null) {
+                        if (decision == null) {
+                            // Small object: classify the first block of the download itself
+                            in = new BufferedInputStream(s3ObjectStream, ContentTriage.HEADER_BYTES);
+                            decision = triage.decide(in, size);
+                        }
+                        if (decision.getAction() == ContentTriage.Action.SKIP) {
+                            if (manifest != null) {
+                                manifest.update(path, new ScanIndex.Entry(size, lastModified, eTag, findings));
+                            }
+                            return findings;
+                        }
+                        if (decision.getAction() == ContentTriage.Action.SAMPLE) {
+                            ContentTriage.reportSampled(decision, path, size);
+                        }
+                        charset = decision.getCharset();
+                    }
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset));
                     String line;
                     int lineNum = 0;
                     while ((line = reader.readLine()) != null) {
                         lineNum++;
-                        // Check for high, medium, and low severity patterns
-                        if (HIGH_PATTERN.matcher(line).find()) {
-                            findings.add(new Finding("s3://" + bucketName + "/" + key, lineNum, line.trim(), Severity.HIGH));
-                        } else if (MEDIUM_PATTERN.matcher(line).find()) {
-                            findings.add(new Finding("s3://" + bucketName + "/" + key, lineNum, line.trim(), Severity.MEDIUM));
-                        } else if (LOW_PATTERN.matcher(line).find()) {
-                            findings.add(new Finding("s3://" + bucketName + "/" + key, lineNum, line.trim(), Severity.LOW));
+                        // Single-pass classification in HIGH, MEDIUM, LOW order
+                        RuleMatch match = engine.classify(line);
+                        if (match != null) {
+                            findings.add(match.toFinding(path, lineNum, line, eTag.isEmpty() ? null : eTag));
                         }
                     }
-
-                } catch (Exception e) {
-                    System.out.println("Failed to read S3 object: " + key + " - " + e.getMessage());
                 }
+                if (manifest != null) {
+                    manifest.update(path, new ScanIndex.Entry(size, lastModified, eTag, findings));
+                }
+                if (started != 0) {
+                    long elapsed = OBJECT_SCAN.record(started);
+                    OBJECTS_SCANNED.increment();
+                    BYTES_DOWNLOADED.add(Math.min(size, limit));
+                    Metrics.registry().slowest().record(path, elapsed, size);
+                }
+
+            } catch (Exception e) {
+                System.out.println("Failed to read S3 object: " + key + " - " + e.getMessage());
             }
+        } finally {
+            inFlight.release(permits);
+        }
+        return findings;
+    }
 
+    /**
+     * Classifies an object from a ranged GET of its first block.
+     * @return The decision, or null if the header could not be read.
+     */
+    private ContentTriage.Decision probe(S3Client s3, String bucketName, String key, String eTag, long size) {
+        GetObjectRequest probeRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .ifMatch(eTag.isEmpty() ? null : eTag)
+                .range("bytes=0-" + (ContentTriage.HEADER_BYTES - 1))
+                .build();
+        long started = Metrics.start();
+        try (ResponseInputStream<GetObjectResponse> header = s3.getObject(probeRequest)) {
+            byte[] bytes = header.readNBytes(ContentTriage.HEADER_BYTES);
+            PROBE_REQUEST.record(started);
+            return triage.decide(bytes, bytes.length, size);
         } catch (Exception e) {
-            System.out.println("Failed to scan S3 bucket: " + bucketName + " - " + e.getMessage());
+            System.out.println("Failed to read S3 object: " + key + " - " + e.getMessage());
+            return null;
         }
+    }
 
-        return findings;
+    // Whether a manifest key ("s3://bucket/key") lies under a scanned bucket and prefix and in this shard
+    private boolean inScope(String path) {
+        for (String bucket : config.s3Buckets) {
+            String bucketPrefix = "s3://" + bucket + "/";
+            if (path.startsWith(bucketPrefix)) {
+                String key = path.substring(bucketPrefix.length());
+                return (config.s3Prefix == null || key.startsWith(config.s3Prefix)) && Shards.owns(config, bucket + "/" + key);
+            }
+        }
+        return false;
+    }
+
+    // Waits for a task result, reporting failures instead of aborting the scan
+    private <T> T await(Future<T> future, String what, T fallback) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Interrupted while scanning " + what);
+        } catch (ExecutionException e) {
+            System.out.println("Failed to scan " + what + " - " + e.getCause().getMessage());
+        }
+        return fallback;
+    }
+
+    private ExecutorService newObjectPool() {
+        return Executors.newFixedThreadPool(Math.max(1, config.s3Concurrency));
+    }
+
+    // In-flight bytes are tracked in KiB so large limits fit in an int semaphore
+    private Semaphore newInFlightLimit() {
+        return new Semaphore(maxPermits(), true);
+    }
+
+    private int maxPermits() {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, config.s3MaxInFlightBytes / 1024));
+    }
+
+    // Objects larger than the whole budget take the whole budget, so they run alone
+    private int permitsFor(long size) {
+        return (int) Math.max(1, Math.min(maxPermits(), (size + 1023) / 1024));
     }
 
     /**
      * Determines if an S3 object should be scanned based on its extension.
+     * Archives are scanned too when config.scanArchives is set.
      * @param key S3 object key (filename).
      * @return true if object should be scanned.
      */
     private boolean shouldScan(String key) {
+        if (archives != null && ArchiveScanner.isArchive(key)) return true;
         String lowerKey = key.toLowerCase();
         for (String ext : config.allowedExtensions) {
             if (lowerKey.endsWith("." + ext)) return true;
@@ -0,0 +1,367 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.ScanConfig;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * ScanIndex is a persistent on-disk cache of per-file scan results.
+ * Each entry is keyed by path and records the size, modification time and content hash
+ * seen at the last scan together with the findings produced for that file.
+ * The whole index is tied to a fingerprint of the rule set and scan settings;
+ * if the fingerprint changes, the stored entries are discarded on load.
+ * Entries within the scope of a run (its root, buckets and shard) that were not seen during
+ * the run are pruned when the index is saved; entries outside it are kept as they are on disk,
+ * so scanning a subdirectory, or overlapping runs on different trees, do not drop each other's.
+ * A sharded run keeps its own index file next to the configured one (see location()).
+ * The index is safe to use from parallel scanning threads.
+ */
+public class ScanIndex {
+    // File format marker and version
+    private static final int MAGIC = 0x43435349; // "CCSI"
+    private static final int VERSION = 6;
+
+    // One lock per index file, so runs in the same process save one after another
+    private static final Map<Path, Object> SAVE_LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * Cached state of a single scanned file or object.
+     */
+    public static class Entry {
+        private final long size;
+        private final long lastModified;
+        private final String contentHash;
+        private final List<Finding> findings;
+
+        /**
+         * Constructs an Entry.
+         * @param size         Size in bytes at scan time.
+         * @param lastModified Modification time in epoch millis at scan time.
+         * @param contentHash  Hash (or ETag) of the content at scan time.
+         * @param findings     Findings produced for the content.
+         */
+        public Entry(long size, long lastModified, String contentHash, List<Finding> findings) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+            this.findings = findings;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public List<Finding> getFindings() {
+            return findings;
+        }
+    }
+
+    private final Path indexFile;
+    private final String fingerprint;
+    private final Map<String, Entry> entries;
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+
+    private ScanIndex(Path indexFile, String fingerprint, Map<String, Entry> entries) {
+        this.indexFile = indexFile;
+        this.fingerprint = fingerprint;
+        this.entries = entries;
+    }
+
+    /**
+     * Loads the index from disk.
+     * Returns an empty index if the file is missing, unreadable, or was written for a different fingerprint.
+     * @param indexFile   Location of the index file.
+     * @param fingerprint Fingerprint of the current rules and settings.
+     * @return Loaded or empty index.
+     */
+    public static ScanIndex load(Path indexFile, String fingerprint) {
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                if (!read(indexFile, fingerprint, entries)) {
+                    System.out.println("Scan index " + indexFile + " was built with different rules or settings; rescanning.");
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable scan index: " + indexFile + " - " + e.getMessage());
+                entries.clear();
+            }
+        }
+        return new ScanIndex(indexFile, fingerprint, entries);
+    }
+
+    /**
+     * Location of the index for a run: the configured path, or for a sharded run (--shard=i/N)
+     * a sibling named after the shard, so shards sharing a directory do not replace each other's.
+     * @param configured Configured index or manifest path.
+     * @param config     Scan configuration (shardIndex, shardCount).
+     * @return Path of the index file.
+     */
+    public static Path location(String configured, ScanConfig config) {
+        if (config.shardCount <= 1) return Paths.get(configured);
+        return Paths.get(configured + ".shard-" + (config.shardIndex + 1) + "-of-" + config.shardCount);
+    }
+
+    // Reads the entries of an index file into entries; false if it has another version or fingerprint
+    private static boolean read(Path indexFile, String fingerprint, Map<String, Entry> entries) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(indexFile))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !fingerprint.equals(in.readUTF())) return false;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(in);
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                String hash = readString(in);
+                int findingCount = in.readInt();
+                List<Finding> findings = new ArrayList<>(findingCount);
+                for (int f = 0; f < findingCount; f++) {
+                    String filePath = readString(in);
+                    int lineNumber = in.readInt();
+                    String snippet = readString(in);
+                    int matchStart = in.readInt();
+                    int matchEnd = in.readInt();
+                    Severity severity = Severity.values()[in.readByte()];
+                    String ruleId = in.readBoolean() ? readString(in) : null;
+                    String keyPath = in.readBoolean() ? readString(in) : null;
+                    long secretHash = in.readLong();
+                    findings.add(new Finding(filePath, lineNumber, snippet, matchStart, matchEnd, severity, ruleId,
+                            null, keyPath, secretHash));
+                }
+                entries.put(key, new Entry(size, lastModified, hash, findings));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Looks up the cached entry for a key and marks the key as seen in this run.
+     * @param key Path or object key.
+     * @return Cached entry, or null if none.
+     */
+    public Entry lookup(String key) {
+        seen.add(key);
+        return entries.get(key);
+    }
+
+    /**
+     * Stores the entry for a key and marks the key as seen in this run.
+     * @param key   Path or object key.
+     * @param entry Fresh entry.
+     */
+    public void update(String key, Entry entry) {
+        seen.add(key);
+        entries.put(key, entry);
+    }
+
+    /**
+     * Keeps every entry whose key starts with the prefix, e.g. when a bucket
+     * could not be listed and its entries must not be pruned as deleted.
+     * @param prefix Key prefix to retain.
+     */
+    public void retainPrefix(String prefix) {
+        for (String key : entries.keySet()) {
+            if (key.startsWith(prefix)) seen.add(key);
+        }
+    }
+
+    // Number of entries currently held
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the index back to disk. Entries in the scope of this run that were not seen in it
+     * have been deleted and are dropped. Entries outside the scope are taken from the file as it
+     * is now, since another run may have updated them since this index was loaded.
+     * The file is written to a temporary sibling and atomically moved into place.
+     * @param scope Whether a key belongs to the trees, buckets and shard this run covered.
+     * @return Whether the index was written.
+     */
+    public boolean save(Predicate<String> scope) {
+        Path file = indexFile.toAbsolutePath().normalize();
+        synchronized (SAVE_LOCKS.computeIfAbsent(file, f -> new Object())) {
+            // Entries outside the scope come from the file if it can be read, else from this index
+            Map<String, Entry> outside = new HashMap<>();
+            boolean onDisk;
+            try {
+                onDisk = Files.isRegularFile(file) && read(file, fingerprint, outside);
+            } catch (IOException | RuntimeException e) {
+                onDisk = false;
+            }
+            if (!onDisk) outside = entries;
+
+            Map<String, Entry> merged = new HashMap<>();
+            for (Map.Entry<String, Entry> e : outside.entrySet()) {
+                if (!scope.test(e.getKey())) merged.put(e.getKey(), e.getValue());
+            }
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                if (seen.contains(e.getKey()) && scope.test(e.getKey())) merged.put(e.getKey(), e.getValue());
+            }
+            return write(file, merged);
+        }
+    }
+
+    private boolean write(Path file, Map<String, Entry> snapshot) {
+        Path temp = null;
+        try {
+            Path parent = file.getParent();
+            if (parent != null) Files.createDirectories(parent);
+            temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(fingerprint);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+                    Entry entry = e.getValue();
+                    writeString(out, e.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.lastModified);
+                    writeString(out, entry.contentHash);
+                    out.writeInt(entry.findings.size());
+                    for (Finding finding : entry.findings) {
+                        writeString(out, finding.getFilePath());
+                        out.writeInt(finding.getLineNumber());
+                        writeString(out, finding.getSuspiciousLine());
+                        out.writeInt(finding.getMatchStart());
+                        out.writeInt(finding.getMatchEnd());
+                        out.writeByte(finding.getSeverity().ordinal());
+                        out.writeBoolean(finding.getRuleId() != null);
+                        if (finding.getRuleId() != null) writeString(out, finding.getRuleId());
+                        out.writeBoolean(finding.getKeyPath() != null);
+                        if (finding.getKeyPath() != null) writeString(out, finding.getKeyPath());
+                        out.writeLong(finding.getSecretHash());
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to save scan index: " + indexFile + " - " + e.getMessage());
+            return false;
+        } finally {
+            // Gone after a successful move; otherwise the partial file must not be left behind
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    System.err.println("Failed to delete temporary scan index: " + temp + " - " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the fingerprint that ties an index to the rules and the settings affecting results.
+     * @param engine Match engine in use.
+     * @param config Scan configuration.
+     * @return Hex SHA-256 fingerprint.
+     */
+    public static String fingerprint(MatchEngine engine, ScanConfig config) {
+        StringBuilder sb = new StringBuilder();
+        for (Rule rule : engine.getRules()) {
+            sb.append(rule.getId()).append('\u0000')
+              .append(rule.getSeverity()).append('\u0000')
+              .append(rule.getPattern().pattern()).append('\u0000')
+              .append(String.join(",", rule.getKeywords())).append('\u0000')
+              .append(rule.getMinRunLength());
+            if (rule.getAllowlist() != null) sb.append('\u0000').append(rule.getAllowlist().pattern());
+            sb.append('\n');
+        }
+        sb.append("keyValue=").append(engine.usesKeyValueHeuristic()).append('\n');
+        sb.append("entropy=").append(engine.getEntropyDetector()).append('\n');
+        sb.append("steps=").append(engine.getStepsPerChar()).append('\n');
+        sb.append("ext=").append(new TreeSet<>(config.allowedExtensions)).append('\n');
+        sb.append("ignore=").append(new TreeSet<>(config.ignoreFilenames)).append('\n');
+        sb.append("mmap=").append(config.memoryMappedScan).append('\n');
+        sb.append("charset=").append(Charset.defaultCharset().name()).append('\n');
+        if (config.shardCount > 1) {
+            sb.append("shard=").append(config.shardIndex + 1).append('/').append(config.shardCount).append('\n');
+        }
+        sb.append("structured=").append(config.structuredScan).append('\n');
+        if (config.contentTriage) {
+            sb.append("triage=").append(config.maxScanBytes).append('/').append(config.sampleBytes).append('\n');
+        }
+        if (config.scanArchives) {
+            sb.append("archives=").append(config.archiveMaxDepth).append('/').append(config.archiveMaxEntries)
+              .append('/').append(config.archiveMaxBytes).append('\n');
+        }
+        return toHex(sha256().digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Computes the SHA-256 hash of a file's content.
+     * @param file File to hash.
+     * @return Hex digest.
+     * @throws IOException If the file cannot be read.
+     */
+    public static String hashFile(File file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not found", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    // Length-prefixed UTF-8, since writeUTF is limited to 64 KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
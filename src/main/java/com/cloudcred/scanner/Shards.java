@@ -0,0 +1,39 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.model.ScanConfig;
+
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Assigns files and objects to shards for distributed scanning (--shard=i/N).
+ * The assignment is a 64-bit FNV-1a hash of a stable key modulo the shard count. Local files are
+ * keyed by their path relative to the scanned root and S3 objects by bucket and key, so every
+ * process and host computes the same disjoint slices without coordinating.
+ */
+final class Shards {
+
+    private Shards() {
+    }
+
+    /**
+     * Whether the current shard is responsible for a key.
+     * @param config Scan configuration (shardIndex, shardCount).
+     * @param key    Stable key: relative path with '/' separators, or "bucket/key".
+     * @return true if this shard scans the key (always true when sharding is off).
+     */
+    static boolean owns(ScanConfig config, String key) {
+        if (config.shardCount <= 1) return true;
+        return Long.remainderUnsigned(hash(key), config.shardCount) == config.shardIndex;
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes, independent of JVM and platform
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,224 @@
+package com.cloudcred.scanner;
+
+
+/**
+ * Key paths of XML files, from a character-level state machine that carries over between lines.
+ * Every element adds its name to the path and every attribute adds its own name to its element's,
+ * so both &lt;db&gt;&lt;password&gt;...&lt;/password&gt;&lt;/db&gt; and &lt;db password="..."/&gt; read "db.password".
+ * Two common key/value idioms take the name from the document instead:
+ * - &lt;add key="ApiKey" value="..."/&gt; and &lt;entry name="..." value="..."/&gt; (key or name before value),
+ *   and &lt;entry key="..."&gt;...&lt;/entry&gt; as in Java properties XML
+ * - &lt;property&gt;&lt;name&gt;fs.s3a.secret.key&lt;/name&gt;&lt;value&gt;...&lt;/value&gt;&lt;/property&gt; (Hadoop, Spring)
+ * Comments, processing instructions and DOCTYPE declarations are skipped; CDATA sections are text.
+ */
+class XmlTokenizer extends KeyPathTokenizer {
+    private static final int TEXT = 0;
+    private static final int TAG_NAME = 1;
+    private static final int IN_TAG = 2;
+    private static final int ATTRIBUTE_VALUE = 3;
+    private static final int END_TAG = 4;
+    private static final int COMMENT = 5;
+    private static final int CDATA = 6;
+    private static final int DECLARATION = 7;
+
+    private int state = TEXT;
+    // Whether the text or attribute value being read started on an earlier line
+    private boolean open;
+    private char quote;
+    // Name of the attribute being read, and the key or name attribute of the current tag
+    private final StringBuilder attribute = new StringBuilder(16);
+    private final StringBuilder entryName = new StringBuilder(32);
+    private boolean attributeEnded;
+    // Text of the last <name> element and the depth at which it was read, for <property> idioms
+    private final StringBuilder propertyName = new StringBuilder(32);
+    private int propertyDepth = -1;
+    // Scratch copy of the current element's name while its value is reported under another name
+    private final StringBuilder element = new StringBuilder(32);
+
+    @Override
+    protected void tokenize(CharSequence line) {
+        int length = line.length();
+        int textStart = state == TEXT || state == CDATA || state == ATTRIBUTE_VALUE ? 0 : -1;
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            switch (state) {
+                case TEXT:
+                    if (c == '<') {
+                        if (textStart >= 0) text(line, textStart, i, false);
+                        textStart = -1;
+                        open = false;
+                        i = openTag(line, i, length);
+                        if (state == CDATA) textStart = i + 1;
+                    } else if (textStart < 0 && depth() > 0) {
+                        textStart = i;
+                    }
+                    break;
+                case CDATA:
+                    if (c == ']' && startsWithIgnoreCase(line, i, length, "]]>")) {
+                        text(line, textStart, i, false);
+                        textStart = -1;
+                        open = false;
+                        state = TEXT;
+                        i += 2;
+                    }
+                    break;
+                case TAG_NAME:
+                    if (c == '>' || c == '/' || c <= ' ') {
+                        state = IN_TAG;
+                        i--;
+                    } else {
+                        path.append(c);
+                    }
+                    break;
+                case IN_TAG:
+                    if (c == '>') {
+                        state = TEXT;
+                        if (i > 0 && line.charAt(i - 1) == '/') closeElement();
+                    } else if (c == '=') {
+                        int q = trimStart(line, i + 1, length);
+                        if (q < length && (line.charAt(q) == '"' || line.charAt(q) == '\'')) {
+                            quote = line.charAt(q);
+                            state = ATTRIBUTE_VALUE;
+                            textStart = q + 1;
+                            open = false;
+                            i = q;
+                        }
+                    } else if (c <= ' ' || c == '/') {
+                        attributeEnded = attribute.length() > 0;
+                    } else {
+                        if (attributeEnded) attribute.setLength(0);
+                        attributeEnded = false;
+                        attribute.append(c);
+                    }
+                    break;
+                case ATTRIBUTE_VALUE:
+                    if (c == quote) {
+                        attributeValue(line, textStart, i, false);
+                        textStart = -1;
+                        attribute.setLength(0);
+                        state = IN_TAG;
+                    }
+                    break;
+                case END_TAG:
+                    if (c == '>') {
+                        closeElement();
+                        state = TEXT;
+                    }
+                    break;
+                case COMMENT:
+                    if (c == '-' && startsWithIgnoreCase(line, i, length, "-->")) {
+                        state = TEXT;
+                        i += 2;
+                    }
+                    break;
+                default:
+                    if (c == '>') state = TEXT;
+                    break;
+            }
+        }
+        // Text or an attribute value that continues on the next line
+        if (textStart >= 0 && textStart < length) {
+            if (state == ATTRIBUTE_VALUE) attributeValue(line, textStart, length, true);
+            else if (state == TEXT || state == CDATA) text(line, textStart, length, true);
+        }
+    }
+
+    // Handles the markup starting with '<' at offset i and returns the offset of its last character read
+    private int openTag(CharSequence line, int i, int length) {
+        char next = i + 1 < length ? line.charAt(i + 1) : 0;
+        if (next == '/') {
+            state = END_TAG;
+            return i + 1;
+        }
+        if (next == '!' && startsWithIgnoreCase(line, i, length, "<!--")) {
+            state = COMMENT;
+            return i + 3;
+        }
+        if (next == '!' && startsWithIgnoreCase(line, i, length, "<![CDATA[")) {
+            state = CDATA;
+            open = false;
+            return i + 8;
+        }
+        if (next == '!' || next == '?') {
+            state = DECLARATION;
+            return i + 1;
+        }
+        enter();
+        startKey();
+        attribute.setLength(0);
+        attributeEnded = false;
+        entryName.setLength(0);
+        state = TAG_NAME;
+        return i;
+    }
+
+    private void closeElement() {
+        leave();
+        entryName.setLength(0);
+        if (depth() < propertyDepth - 1) {
+            propertyName.setLength(0);
+            propertyDepth = -1;
+        }
+    }
+
+    // Text of the current element, or the part of it on this line
+    private void text(CharSequence line, int start, int end, boolean continues) {
+        int from = trimStart(line, start, end);
+        int to = trimEnd(line, from, end);
+        if (from == to) return;
+        boolean continued = open;
+        open = continues;
+        if (leafIs("name") || leafIs("key")) {
+            if (!continued) propertyName.setLength(0);
+            propertyName.append(line, from, to);
+            propertyDepth = depth();
+        }
+        if (leafIs("value") && propertyDepth == depth() && propertyName.length() > 0) {
+            // <value> of a <property>: report it under the property's name
+            valueNamed(propertyName, line, from, to, continued, continues);
+        } else if (entryName.length() > 0) {
+            valueNamed(entryName, line, from, to, continued, continues);
+        } else {
+            value(line, from, to, continued, continues);
+        }
+    }
+
+    // Reports a value with the current element's name in the path replaced by name
+    private void valueNamed(CharSequence name, CharSequence line, int from, int to, boolean continued, boolean continues) {
+        int leafStart = path.lastIndexOf(".") + 1;
+        element.setLength(0);
+        element.append(path, leafStart, path.length());
+        startKey();
+        path.append(name);
+        value(line, from, to, continued, continues);
+        startKey();
+        path.append(element);
+    }
+
+    // Value of the attribute named in attribute, or the part of it on this line
+    private void attributeValue(CharSequence line, int start, int end, boolean continues) {
+        boolean continued = open;
+        open = continues;
+        if (equalsIgnoreCase(attribute, "key") || equalsIgnoreCase(attribute, "name")) {
+            if (!continued) entryName.setLength(0);
+            entryName.append(line, start, end);
+            return;
+        }
+        enter();
+        startKey();
+        path.append(equalsIgnoreCase(attribute, "value") && entryName.length() > 0 ? entryName : attribute);
+        value(line, start, end, continued, continues);
+        leave();
+    }
+
+    // Whether the last segment of the path is the given element name
+    private boolean leafIs(String name) {
+        int start = path.length() - name.length();
+        return start >= 0 && (start == 0 || path.charAt(start - 1) == '.')
+            && startsWithIgnoreCase(path, start, path.length(), name);
+    }
+
+    private static boolean equalsIgnoreCase(CharSequence text, String word) {
+        return text.length() == word.length() && startsWithIgnoreCase(text, 0, text.length(), word);
+    }
+}
@@ -0,0 +1,149 @@
+package com.cloudcred.scanner;
+
+import java.util.Arrays;
+
+
+/**
+ * Key paths of YAML files, from indentation alone (block style).
+ * Each "key:" opens a level at its indentation; a line at the same or a lower indentation
+ * closes it. List items ("- ") do not add to the path, so every item of "users:" reads
+ * "users.password". Block scalars ("key: |" and "key: >") keep the path of their key on every
+ * more-indented line that follows. Comments, document markers, anchors, tags and aliases are
+ * skipped, and so are Ansible Vault (!vault) values; flow collections ("{...}", "[...]") are
+ * treated as one value of their key.
+ */
+class YamlTokenizer extends KeyPathTokenizer {
+    // Indentation of each open level, parallel to the path levels
+    private int[] indents = new int[16];
+    // Indentation of the key that owns the open block scalar, or -1 outside one
+    private int blockIndent = -1;
+    // Whether the open block scalar is encrypted (!vault) and its lines are skipped
+    private boolean encryptedBlock;
+
+    YamlTokenizer() {
+        enter();
+    }
+
+    @Override
+    protected void tokenize(CharSequence line) {
+        int length = line.length();
+        int start = trimStart(line, 0, length);
+        if (start == length) return;
+        int indent = start;
+
+        if (blockIndent >= 0) {
+            if (indent > blockIndent) {
+                if (!encryptedBlock) value(line, start, length, true, true);
+                return;
+            }
+            blockIndent = -1;
+        }
+        char first = line.charAt(start);
+        if (first == '#') return;
+        if (startsWithIgnoreCase(line, start, length, "---") || startsWithIgnoreCase(line, start, length, "...")) return;
+
+        // "- item": the item's content is indented past the dash
+        while (start + 1 < length && line.charAt(start) == '-' && line.charAt(start + 1) == ' ') {
+            start = trimStart(line, start + 2, length);
+        }
+        if (start == length) return;
+        indent = start;
+
+        int end = contentEnd(line, start, length);
+        int colon = keySeparator(line, start, end);
+        // Close the levels this line is not nested in
+        while (depth() > 1 && indents[depth() - 1] >= indent) leave();
+
+        if (colon < 0) {
+            // A scalar list item or a plain continuation line: a value of the enclosing key
+            value(line, unquote(line, start, end), unquotedEnd(line, start, end), false, false);
+            return;
+        }
+
+        int keyStart = start;
+        int keyEnd = trimEnd(line, keyStart, colon);
+        if (keyEnd - keyStart >= 2 && isQuote(line.charAt(keyStart)) && line.charAt(keyEnd - 1) == line.charAt(keyStart)) {
+            keyStart++;
+            keyEnd--;
+        }
+        key(line, keyStart, keyEnd);
+        int valueStart = trimStart(line, colon + 1, end);
+        // Ansible Vault values are encrypted, not leaked
+        boolean encrypted = startsWithIgnoreCase(line, valueStart, end, "!vault");
+        valueStart = skipProperties(line, valueStart, end);
+        if (valueStart == end) {
+            // Nested mapping or list follows
+            if (depth() == indents.length) indents = Arrays.copyOf(indents, depth() * 2);
+            indents[depth()] = indent;
+            enter();
+            return;
+        }
+        char c = line.charAt(valueStart);
+        if (c == '|' || c == '>') {
+            blockIndent = indent;
+            encryptedBlock = encrypted;
+            return;
+        }
+        if (c == '*' || encrypted) return;
+        value(line, unquote(line, valueStart, end), unquotedEnd(line, valueStart, end), false, false);
+    }
+
+    // Offset of the ':' that ends a key, outside quotes and followed by a space or the line end; -1 if none
+    private static int keySeparator(CharSequence line, int start, int end) {
+        char quote = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (isQuote(c) && i == start) {
+                quote = c;
+            } else if (c == ':' && (i + 1 == end || line.charAt(i + 1) == ' ' || line.charAt(i + 1) == '\t')) {
+                return i;
+            } else if (c == '{' || c == '[') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // End of the line's content: before a " #" comment outside quotes, trailing blanks trimmed
+    private static int contentEnd(CharSequence line, int start, int length) {
+        char quote = 0;
+        for (int i = start; i < length; i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (isQuote(c) && (i == start || line.charAt(i - 1) == ' ')) {
+                quote = c;
+            } else if (c == '#' && i > start && line.charAt(i - 1) <= ' ') {
+                return trimEnd(line, start, i);
+            }
+        }
+        return trimEnd(line, start, length);
+    }
+
+    // Skips an anchor (&name) and a tag (!tag) in front of a value
+    private static int skipProperties(CharSequence line, int start, int end) {
+        while (start < end && (line.charAt(start) == '&' || line.charAt(start) == '!')) {
+            while (start < end && line.charAt(start) != ' ') start++;
+            start = trimStart(line, start, end);
+        }
+        return start;
+    }
+
+    private static int unquote(CharSequence line, int start, int end) {
+        return isQuoted(line, start, end) ? start + 1 : start;
+    }
+
+    private static int unquotedEnd(CharSequence line, int start, int end) {
+        return isQuoted(line, start, end) ? end - 1 : end;
+    }
+
+    private static boolean isQuoted(CharSequence line, int start, int end) {
+        return end - start >= 2 && isQuote(line.charAt(start)) && line.charAt(end - 1) == line.charAt(start);
+    }
+
+    private static boolean isQuote(char c) {
+        return c == '"' || c == '\'';
+    }
+}
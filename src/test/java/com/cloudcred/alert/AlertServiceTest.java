@@ -0,0 +1,105 @@
+package com.cloudcred.alert;
+
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+/**
+ * Deduplication of alerts by the alert service and the fingerprints it uses.
+ */
+class AlertServiceTest {
+
+    @Test
+    void forgetsTheLeastRecentlySeenFindingsBeyondTheLimit() {
+        RecordingChannel channel = new RecordingChannel();
+        AlertService service = new AlertService(100, Collections.singletonList(channel), 2);
+        // a is seen again before c arrives, so c pushes out b
+        for (String file : new String[]{"a.txt", "b.txt", "a.txt", "c.txt", "a.txt", "b.txt"}) {
+            service.sendAlert(finding(file));
+        }
+        service.close();
+
+        assertEquals(List.of("a.txt", "b.txt", "c.txt", "b.txt"), channel.paths());
+    }
+
+    @Test
+    void alertsEveryFindingWithoutDeduplication() {
+        RecordingChannel channel = new RecordingChannel();
+        AlertService service = new AlertService(100, Collections.singletonList(channel), 0);
+        service.sendAlert(finding("a.txt"));
+        service.sendAlert(finding("a.txt"));
+        service.close();
+
+        assertEquals(List.of("a.txt", "a.txt"), channel.paths());
+    }
+
+    @Test
+    void tellsApartSecretsWithTheSameMaskedForm() {
+        RecordingChannel channel = new RecordingChannel();
+        AlertService service = new AlertService(100, Collections.singletonList(channel));
+        Finding first = finding("a.txt", 3, "aws_access_key_id = AKIAQWERTYUIOPAS1234");
+        Finding second = finding("a.txt", 4, "aws_access_key_id = AKIAZXCVBNMLKJHG1234");
+        Finding again = finding("a.txt", 9, "backup_key = AKIAQWERTYUIOPAS1234");
+        assertEquals(first.getMaskedSecret(), second.getMaskedSecret());
+
+        service.sendAlert(first);
+        service.sendAlert(second);
+        service.sendAlert(again);
+        service.close();
+
+        // The same secret on another line is still merged
+        assertEquals(List.of(3, 4), channel.lines());
+    }
+
+    private static Finding finding(String file, int lineNumber, String line) {
+        int start = line.indexOf("AKIA");
+        return new Finding(file, lineNumber, Finding.snippet(line, start, line.length()), start, line.length(),
+                Severity.HIGH, "aws-access-key-id", null, null, Finding.secretHash(line, start, line.length()));
+    }
+
+    private static Finding finding(String file) {
+        String line = "aws_access_key_id = AKIAQWERTYUIOPAS1234";
+        return new Finding(file, 3, Finding.snippet(line, 20, line.length()), 20, line.length(),
+                Severity.HIGH, "aws-access-key-id", null);
+    }
+
+    // Keeps the path and line of every finding it receives
+    private static final class RecordingChannel implements AlertChannel {
+        private final List<String> paths = Collections.synchronizedList(new ArrayList<>());
+        private final List<Integer> lines = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String getName() {
+            return "recording";
+        }
+
+        @Override
+        public void add(Finding finding) {
+            paths.add(finding.getFilePath());
+            lines.add(finding.getLineNumber());
+        }
+
+        @Override
+        public void flush(boolean closing) {
+        }
+
+        List<String> paths() {
+            synchronized (paths) {
+                return new ArrayList<>(paths);
+            }
+        }
+
+        List<Integer> lines() {
+            synchronized (lines) {
+                return new ArrayList<>(lines);
+            }
+        }
+    }
+}
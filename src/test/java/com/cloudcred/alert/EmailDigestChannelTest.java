@@ -0,0 +1,224 @@
+package com.cloudcred.alert;
+
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.ScanConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Sends alert digests to an in-process SMTP server and checks how findings are batched
+ * into emails: per digest interval, under the hourly cap, and on close.
+ */
+class EmailDigestChannelTest {
+    private SmtpStandIn smtp;
+
+    @BeforeEach
+    void start() throws IOException {
+        smtp = new SmtpStandIn();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        smtp.close();
+    }
+
+    @Test
+    void holdsFindingsUntilTheIntervalHasPassed() throws Exception {
+        EmailDigestChannel channel = new EmailDigestChannel(config(300, 12));
+        channel.add(finding("a.txt", Severity.HIGH));
+        channel.add(finding("b.txt", Severity.MEDIUM));
+        channel.add(finding("c.txt", Severity.LOW));
+
+        channel.flush(false);
+        assertEquals(0, smtp.messages().size());
+
+        // The final flush sends everything in one digest
+        channel.flush(true);
+        List<String> messages = smtp.messages();
+        assertEquals(1, messages.size());
+        String message = messages.get(0);
+        assertTrue(message.contains("Subject: CloudCred Shield: 3 new findings (1 high, 1 medium, 1 low)"), message);
+        assertTrue(message.contains("a.txt") && message.contains("b.txt") && message.contains("c.txt"), message);
+        assertTrue(message.contains("To: security@example.com"), message);
+    }
+
+    @Test
+    void startsANewDigestAfterEachSend() throws Exception {
+        EmailDigestChannel channel = new EmailDigestChannel(config(0, 12));
+        channel.add(finding("a.txt", Severity.HIGH));
+        channel.add(finding("b.txt", Severity.HIGH));
+        channel.flush(false);
+        channel.add(finding("c.txt", Severity.MEDIUM));
+        channel.flush(false);
+        // Nothing new: no empty digest
+        channel.flush(true);
+
+        List<String> messages = smtp.messages();
+        assertEquals(2, messages.size());
+        assertTrue(messages.get(0).contains("2 new findings (2 high, 0 medium, 0 low)"), messages.get(0));
+        assertTrue(messages.get(1).contains("1 new findings (0 high, 1 medium, 0 low)"), messages.get(1));
+        assertFalse(messages.get(1).contains("a.txt"), messages.get(1));
+        assertTrue(messages.get(1).contains("c.txt"), messages.get(1));
+    }
+
+    @Test
+    void keepsFindingsForTheNextDigestWhenTheHourlyCapIsReached() throws Exception {
+        EmailDigestChannel channel = new EmailDigestChannel(config(0, 1));
+        channel.add(finding("a.txt", Severity.HIGH));
+        channel.flush(false);
+        channel.add(finding("b.txt", Severity.HIGH));
+        channel.flush(false);
+        assertEquals(1, smtp.messages().size());
+
+        // Held back by the cap, not dropped: the final digest carries it
+        channel.flush(true);
+        List<String> messages = smtp.messages();
+        assertEquals(2, messages.size());
+        assertTrue(messages.get(1).contains("b.txt"), messages.get(1));
+    }
+
+    @Test
+    void countsFindingsBeyondTheListedOnes() throws Exception {
+        EmailDigestChannel channel = new EmailDigestChannel(config(300, 12));
+        int total = EmailDigestChannel.MAX_LISTED + 2;
+        for (int i = 0; i < total; i++) channel.add(finding("file-" + i + ".txt", Severity.LOW));
+        channel.flush(true);
+
+        String message = smtp.messages().get(0);
+        assertTrue(message.contains(total + " new findings"), message);
+        assertTrue(message.contains("file-" + (EmailDigestChannel.MAX_LISTED - 1) + ".txt"), message);
+        assertFalse(message.contains("file-" + EmailDigestChannel.MAX_LISTED + ".txt"), message);
+        assertTrue(message.contains("... and 2 more"), message);
+    }
+
+    @Test
+    void alertServiceSendsDuplicatesOnce() {
+        ScanConfig config = config(300, 12);
+        AlertService service = new AlertService(config);
+        // The same secret in the same file, reported twice (e.g. by two scans)
+        service.sendAlert(finding("a.txt", Severity.HIGH));
+        service.sendAlert(finding("a.txt", Severity.HIGH));
+        service.sendAlert(finding("b.txt", Severity.HIGH));
+        service.close();
+
+        List<String> messages = smtp.messages();
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0).contains("2 new findings"), messages.get(0));
+    }
+
+    private ScanConfig config(int intervalSeconds, int emailsPerHour) {
+        ScanConfig config = new ScanConfig();
+        config.emailAddress = "security@example.com";
+        config.smtpHost = "127.0.0.1";
+        config.smtpPort = smtp.port();
+        config.alertDigestIntervalSeconds = intervalSeconds;
+        config.alertEmailsPerHour = emailsPerHour;
+        return config;
+    }
+
+    private static Finding finding(String file, Severity severity) {
+        String line = "aws_access_key_id = AKIAQWERTYUIOPAS1234";
+        return new Finding(file, 3, Finding.snippet(line, 20, line.length()), 20, line.length(),
+                severity, "aws-access-key-id", null);
+    }
+
+    /**
+     * Minimal SMTP server: accepts any sender and recipient and keeps each message's data.
+     */
+    private static final class SmtpStandIn implements AutoCloseable {
+        private final ServerSocket socket;
+        private final Thread acceptor;
+        private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+        SmtpStandIn() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            acceptor = new Thread(this::acceptLoop, "smtp-stand-in");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        // Messages received so far, headers and body with CRLF turned into LF
+        List<String> messages() {
+            synchronized (messages) {
+                return new ArrayList<>(messages);
+            }
+        }
+
+        private void acceptLoop() {
+            while (!socket.isClosed()) {
+                try (Socket client = socket.accept()) {
+                    session(client);
+                } catch (IOException e) {
+                    // Closed by close(), or the client hung up
+                }
+            }
+        }
+
+        private void session(Socket client) throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+            Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.US_ASCII);
+            reply(out, "220 localhost SMTP stand-in");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO":
+                    case "HELO":
+                        reply(out, "250 localhost");
+                        break;
+                    case "DATA":
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder data = new StringBuilder();
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // Undo dot-stuffing
+                            data.append(line.startsWith("..") ? line.substring(1) : line).append('\n');
+                        }
+                        messages.add(data.toString());
+                        reply(out, "250 OK");
+                        break;
+                    case "QUIT":
+                        reply(out, "221 Bye");
+                        return;
+                    default:
+                        // MAIL, RCPT, RSET, NOOP
+                        reply(out, "250 OK");
+                        break;
+                }
+            }
+        }
+
+        private static void reply(Writer out, String line) throws IOException {
+            out.write(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
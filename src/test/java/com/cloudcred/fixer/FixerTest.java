@@ -0,0 +1,99 @@
+package com.cloudcred.fixer;
+
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.Finding.Severity;
+import com.cloudcred.model.ScanConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Remediation of lines that hold more than one finding.
+ */
+class FixerTest {
+    private static final String KEY_LINE = "aws_access_key_id = AKIAQWERTYUIOPAS1234 trace=Zx8qLm2Pw9Rt4Vn6Bc1Kd7";
+    private static final String PLAIN_LINE = "region = eu-west-1";
+    private static final String TOKEN_LINE = "session = Qw3Er5Ty7Ui9Op1As3Df5";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void strongestActionWinsForALine() throws IOException {
+        for (boolean lowFirst : new boolean[]{false, true}) {
+            Path file = write("config-" + lowFirst + ".txt");
+            Finding high = finding(file, 2, Severity.HIGH, "aws-access-key-id");
+            Finding low = finding(file, 2, Severity.LOW, "high-entropy");
+            ScanConfig config = new ScanConfig();
+            config.fixPolicy = "HIGH=redact,LOW=leave";
+
+            new Fixer(config).handleFindings(lowFirst ? Arrays.asList(low, high) : Arrays.asList(high, low));
+
+            List<String> lines = Files.readAllLines(file);
+            assertEquals(PLAIN_LINE, lines.get(0));
+            assertFalse(lines.get(1).contains("AKIA"), "order " + lowFirst + ": " + lines.get(1));
+            assertEquals(TOKEN_LINE, lines.get(2));
+        }
+    }
+
+    @Test
+    void promptsOncePerLine() throws IOException {
+        Path file = write("config.txt");
+        List<Finding> findings = Arrays.asList(
+                finding(file, 2, Severity.HIGH, "aws-access-key-id"),
+                finding(file, 2, Severity.LOW, "high-entropy"),
+                finding(file, 3, Severity.LOW, "high-entropy"));
+
+        InputStream stdin = System.in;
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            // Placeholder for line 2, leave line 3
+            System.setIn(new ByteArrayInputStream("3\n1\n".getBytes(StandardCharsets.UTF_8)));
+            System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+            new Fixer().handleFindings(findings);
+        } finally {
+            System.setIn(stdin);
+            System.setOut(stdout);
+        }
+
+        String prompts = output.toString(StandardCharsets.UTF_8);
+        assertEquals(2, prompts.split("Your choice", -1).length - 1, prompts);
+        List<String> lines = Files.readAllLines(file);
+        assertTrue(lines.get(1).contains("REMOVED_CREDENTIAL"), lines.get(1));
+        assertEquals(TOKEN_LINE, lines.get(2));
+    }
+
+    @Test
+    void ranksActions() {
+        assertEquals(RemediationAction.REDACT, RemediationAction.LEAVE.strongest(RemediationAction.REDACT));
+        assertEquals(RemediationAction.REDACT, RemediationAction.REDACT.strongest(RemediationAction.PLACEHOLDER));
+        assertEquals(RemediationAction.PLACEHOLDER, RemediationAction.PLACEHOLDER.strongest(RemediationAction.LEAVE));
+        assertEquals(RemediationAction.LEAVE, RemediationAction.LEAVE.strongest(RemediationAction.LEAVE));
+    }
+
+    private Path write(String name) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, Arrays.asList(PLAIN_LINE, KEY_LINE, TOKEN_LINE));
+        return file;
+    }
+
+    private static Finding finding(Path file, int line, Severity severity, String ruleId) {
+        return new Finding(file.toString(), line, "****", severity, ruleId);
+    }
+}
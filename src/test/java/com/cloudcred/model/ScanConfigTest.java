@@ -0,0 +1,61 @@
+package com.cloudcred.model;
+
+import com.cloudcred.model.Finding.Severity;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Parsing of command-line flags: valid flags are applied, bad ones are collected as errors.
+ */
+class ScanConfigTest {
+
+    @Test
+    void appliesValidOptionsAndTakesTheLastArgumentAsPath() {
+        ScanConfig config = ScanConfig.fromArgs(new String[]{
+                "--min-severity=high", "--shard=2/3", "--parallelism=4", "--entropy-hex=3.5",
+                "--sample-bytes=0", "--metrics-interval=0", "--no-local", "repo"});
+
+        assertTrue(config.argumentErrors.isEmpty(), config.argumentErrors.toString());
+        assertEquals(Severity.HIGH, config.minSeverity);
+        assertEquals(1, config.shardIndex);
+        assertEquals(3, config.shardCount);
+        assertEquals(4, config.parallelism);
+        assertEquals(3.5, config.entropyHexThreshold);
+        assertEquals(0, config.sampleBytes);
+        assertEquals(0, config.metricsIntervalSeconds);
+        assertEquals("repo", config.path);
+    }
+
+    @Test
+    void collectsUnknownOptionsAndInvalidValues() {
+        String[] bad = {
+                "--bogus", "--min-severity=urgent", "--shard=3/2", "--shard=x", "--parallelism=0",
+                "--server-port=http", "--max-scan-bytes=-1", "--entropy-base64=9", "--entropy-alnum=NaN"};
+        for (String arg : bad) {
+            ScanConfig config = ScanConfig.fromArgs(new String[]{arg});
+            assertEquals(1, config.argumentErrors.size(), arg);
+            assertTrue(config.argumentErrors.get(0).contains(arg.substring(2, 6)), config.argumentErrors.get(0));
+        }
+    }
+
+    @Test
+    void keepsDefaultsForInvalidValues() {
+        ScanConfig defaults = new ScanConfig();
+        ScanConfig config = ScanConfig.fromArgs(new String[]{"--parallelism=many", "--shard=0/2"});
+
+        assertEquals(2, config.argumentErrors.size());
+        assertEquals(defaults.parallelism, config.parallelism);
+        assertEquals(defaults.shardCount, config.shardCount);
+    }
+
+    @Test
+    void acceptsAPathOnlyAsTheLastArgument() {
+        ScanConfig config = ScanConfig.fromArgs(new String[]{"repo", "--no-local"});
+
+        assertEquals(1, config.argumentErrors.size());
+        assertTrue(config.argumentErrors.get(0).contains("'repo'"), config.argumentErrors.get(0));
+    }
+}
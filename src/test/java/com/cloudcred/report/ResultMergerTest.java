@@ -0,0 +1,89 @@
+package com.cloudcred.report;
+
+import com.cloudcred.model.ScanConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Merging shard results: the merge fails when a shard is missing or unreadable, or when the
+ * merged report cannot be written.
+ */
+class ResultMergerTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void mergesAllShards() throws IOException {
+        ScanConfig config = config(dir.resolve("merged.txt"));
+        long merged = new ResultMerger(config).merge(Arrays.asList(
+                shard("1/2", "a.txt", "b.txt"), shard("2/2", "c.txt", "a.txt")));
+
+        // a.txt is in both shards and reported once
+        assertEquals(3, merged);
+        assertTrue(Files.isRegularFile(dir.resolve("merged.txt")));
+    }
+
+    @Test
+    void failsWhenAShardIsMissing() throws IOException {
+        ScanConfig config = config(dir.resolve("merged.txt"));
+        long merged = new ResultMerger(config).merge(List.of(shard("1/3", "a.txt"), shard("3/3", "c.txt")));
+
+        assertEquals(-1, merged);
+        // What there is still gets reported
+        String report = Files.readString(dir.resolve("merged.txt"));
+        assertTrue(report.contains("a.txt") && report.contains("c.txt"), report);
+    }
+
+    @Test
+    void failsWhenAShardDidNotFinish() throws IOException {
+        Path unfinished = dir.resolve("unfinished.jsonl");
+        Files.write(unfinished, List.of(finding("a.txt")));
+
+        assertEquals(-1, new ResultMerger(config(dir.resolve("merged.txt"))).merge(List.of(unfinished.toString())));
+    }
+
+    @Test
+    void failsOnAMalformedShardSpec() throws IOException {
+        assertEquals(-1, new ResultMerger(config(dir.resolve("merged.txt"))).merge(List.of(shard("one/two", "a.txt"))));
+    }
+
+    @Test
+    void failsWhenTheReportCannotBeWritten() throws IOException {
+        // A directory cannot be opened as the report file
+        Path report = Files.createDirectory(dir.resolve("merged.txt"));
+
+        assertEquals(-1, new ResultMerger(config(report)).merge(List.of(shard("1/1", "a.txt"))));
+    }
+
+    private static ScanConfig config(Path report) {
+        ScanConfig config = new ScanConfig();
+        config.reportPath = report.toString();
+        return config;
+    }
+
+    // Writes the partial results of one shard with a finding in each of the files
+    private String shard(String spec, String... files) throws IOException {
+        Path path = dir.resolve("shard-" + spec.replace('/', '-') + ".jsonl");
+        StringBuilder content = new StringBuilder();
+        for (String file : files) content.append(finding(file)).append('\n');
+        content.append("{\"type\":\"summary\",\"shard\":\"").append(spec).append("\",\"total\":")
+               .append(files.length).append("}\n");
+        Files.writeString(path, content);
+        return path.toString();
+    }
+
+    private static String finding(String file) {
+        return "{\"type\":\"finding\",\"severity\":\"HIGH\",\"rule\":\"aws-access-key-id\",\"path\":\"" + file
+                + "\",\"line\":3,\"start\":20,\"end\":40,\"content\":\"AKIA********1234\",\"version\":null,\"key\":null}";
+    }
+}
@@ -0,0 +1,33 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.model.ScanConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/**
+ * Entropy thresholds of short tokens, which cannot reach the configured threshold by their length alone.
+ */
+class EntropyDetectorTest {
+    private final EntropyDetector detector = EntropyDetector.fromConfig(new ScanConfig());
+
+    @Test
+    void flagsRandomTokensOfTheMinimumLength() {
+        // 20 distinct characters: log2(20) = 4.32 bits, below the default base64 threshold of 4.5
+        String token = "aB3+xY9/kQ2-mN7_pL5z";
+        assertEquals(new ScanConfig().entropyMinLength, token.length());
+
+        RuleMatch match = detector.find("session = " + token);
+        assertNotNull(match);
+        assertEquals(10, match.getStart());
+    }
+
+    @Test
+    void leavesRepetitiveShortTokensAlone() {
+        assertNull(detector.find("session = ab12ab12ab12ab12ab+/"));
+        assertNull(detector.find("build = 1a2b1a2b1a2b1a2b1a2b1a2b"));
+    }
+}
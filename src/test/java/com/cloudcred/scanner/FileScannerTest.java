@@ -0,0 +1,58 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.metrics.Metrics;
+import com.cloudcred.metrics.SampledFiles;
+import com.cloudcred.model.FindingSink;
+import com.cloudcred.model.ScanConfig;
+import com.cloudcred.report.ReportWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Oversized files that are only sampled are listed in the report instead of passing silently.
+ */
+class FileScannerTest {
+    private static final String KEY_LINE = "aws_access_key_id = AKIAQWERTYUIOPAS1234\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reportsSampledFiles() throws IOException {
+        Path big = dir.resolve("big.txt");
+        Files.write(big, ("x".repeat(2000) + "\n" + KEY_LINE).getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("small.txt"), KEY_LINE.getBytes(StandardCharsets.UTF_8));
+        ScanConfig config = new ScanConfig();
+        config.maxScanBytes = 1000;
+        config.sampleBytes = 500;
+        config.reportPath = dir.resolve("report.txt").toString();
+
+        SampledFiles sampled = Metrics.registry().sampled();
+        long before = sampled.count();
+        ReportWriter report = new ReportWriter();
+        FindingSink sink = report.openReport(config.reportPath, config);
+        assertTrue(new FileScanner(config).scanDirectory(dir.toString(), sink));
+        sink.close();
+
+        assertEquals(before + 1, sampled.count());
+        List<SampledFiles.Entry> entries = sampled.snapshot();
+        SampledFiles.Entry entry = entries.get(entries.size() - 1);
+        assertEquals(big.toString(), entry.getPath());
+        assertEquals(500, entry.getSampleBytes());
+
+        String text = new String(Files.readAllBytes(dir.resolve("report.txt")), StandardCharsets.UTF_8);
+        assertTrue(text.contains("Sampled files (only the beginning was scanned):"), text);
+        assertTrue(text.contains(big + ": first 500 of " + Files.size(big) + " bytes"), text);
+        assertTrue(text.contains("Sampled Files: " + (before + 1)), text);
+    }
+}
@@ -0,0 +1,62 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.model.Finding.Severity;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/**
+ * Classification of every secret on a line, and of ranges of a line.
+ */
+class MatchEngineTest {
+    private static final String FIRST_KEY = "AKIAQWERTYUIOPAS1234";
+    private static final String SECOND_KEY = "AKIAZXCVBNMLKJHG5678";
+    private static final String TOKEN = "Zx8qLm2Pw9Rt4Vn6Bc1Kd7Hj";
+
+    @Test
+    void findsEverySecretOfAMinifiedLine() {
+        String line = "{\"a\":\"" + FIRST_KEY + "\",\"trace\":\"" + TOKEN + "\",\"b\":\"" + SECOND_KEY + "\"}";
+        List<RuleMatch> matches = MatchEngine.forFiles().classifyAll(line, true);
+
+        assertEquals(3, matches.size(), matches.toString());
+        assertMatch(matches.get(0), "aws-access-key-id", line.indexOf(FIRST_KEY), FIRST_KEY.length());
+        assertMatch(matches.get(1), EntropyDetector.RULE_ID, line.indexOf(TOKEN), TOKEN.length());
+        assertMatch(matches.get(2), "aws-access-key-id", line.indexOf(SECOND_KEY), SECOND_KEY.length());
+    }
+
+    @Test
+    void judgesWordBoundariesAtTheEdgeOfARangeOnTheWholeLine() {
+        MatchEngine engine = new MatchEngine(List.of(new Rule("bounded-key", Severity.HIGH,
+                Pattern.compile("\\bAKIA[0-9A-Z]{16}\\b"), new String[]{"AKIA"}, 20)), false);
+        String line = "x" + FIRST_KEY + " " + SECOND_KEY;
+
+        // The range starts inside the token "xAKIA...", so there is no word boundary before AKIA
+        assertNull(engine.classify(line, 1, FIRST_KEY.length() + 1, false));
+        RuleMatch match = engine.classify(line, 1, line.length(), false);
+        assertNotNull(match);
+        assertEquals(line.indexOf(SECOND_KEY), match.getStart());
+    }
+
+    @Test
+    void scoresEntropyWithinARangeOnly() {
+        EntropyDetector detector = MatchEngine.forFiles().getEntropyDetector();
+        String line = "id=" + TOKEN + " other";
+
+        RuleMatch match = detector.find(line, 3, 3 + TOKEN.length());
+        assertNotNull(match);
+        assertEquals(3, match.getStart());
+        assertNull(detector.find(line, 3 + TOKEN.length(), line.length()));
+    }
+
+    private static void assertMatch(RuleMatch match, String ruleId, int start, int length) {
+        assertEquals(ruleId, match.getRuleId());
+        assertEquals(start, match.getStart());
+        assertEquals(start + length, match.getEnd());
+    }
+}
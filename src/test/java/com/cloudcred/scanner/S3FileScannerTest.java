@@ -0,0 +1,414 @@
+package com.cloudcred.scanner;
+
+import com.cloudcred.model.Finding;
+import com.cloudcred.model.ScanConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Runs S3FileScanner against an in-process S3 stand-in reached through config.s3Endpoint.
+ * The stand-in answers GetBucketLocation, ListObjectsV2 (a few keys per page, with continuation
+ * tokens) and GetObject for one bucket, and records the requests it receives. With
+ * config.s3ManifestPath the same objects are scanned twice to check the incremental manifest.
+ */
+class S3FileScannerTest {
+    private static final String BUCKET = "test-bucket";
+    // Keys returned per ListObjectsV2 page
+    private static final int PAGE_SIZE = 5;
+
+    private S3StandIn s3;
+
+    @BeforeAll
+    static void credentials() {
+        // Read by the SDK's default credentials chain; the stand-in does not check signatures
+        System.setProperty("aws.accessKeyId", "test-access-key");
+        System.setProperty("aws.secretAccessKey", "test-secret-key");
+    }
+
+    @BeforeEach
+    void start() throws IOException {
+        s3 = new S3StandIn();
+    }
+
+    @AfterEach
+    void stop() {
+        s3.close();
+    }
+
+    @Test
+    void followsContinuationTokensAcrossPages() {
+        for (int i = 0; i < 12; i++) s3.put(key(i), secretLine(i));
+
+        List<Finding> findings = scan(config(4));
+
+        // 12 keys at 5 per page: 3 listing requests, the last two with the previous page's token
+        assertEquals(3, s3.listRequests.size());
+        assertFalse(s3.listRequests.get(0).containsKey("continuation-token"));
+        assertEquals("5", s3.listRequests.get(1).get("continuation-token"));
+        assertEquals("10", s3.listRequests.get(2).get("continuation-token"));
+
+        // One finding per object, in listing order
+        assertEquals(12, findings.size());
+        for (int i = 0; i < 12; i++) {
+            assertEquals("s3://" + BUCKET + "/" + key(i), findings.get(i).getFilePath());
+            assertEquals("aws-access-key-id-assignment", findings.get(i).getRuleId());
+        }
+    }
+
+    @Test
+    void listsAheadOfDownloadsByAtMostTheWindow() {
+        for (int i = 0; i < 40; i++) s3.put(key(i), secretLine(i));
+        s3.getDelayMillis = 20;
+        ScanConfig config = config(1);
+        int window = config.s3Concurrency * 4;
+
+        List<Finding> findings = scan(config);
+
+        assertEquals(40, findings.size());
+        assertEquals(8, s3.listRequests.size());
+        // When a page is requested, every object of the earlier pages but the last few queued
+        // ones has been downloaded
+        for (int page = 1; page < s3.listRequests.size(); page++) {
+            int listed = page * PAGE_SIZE;
+            int downloaded = s3.getsBeforeList.get(page);
+            assertTrue(listed - downloaded < window,
+                    "page " + page + ": " + listed + " listed but only " + downloaded + " downloaded");
+        }
+    }
+
+    @Test
+    void sendsEveryRequestToTheConfiguredEndpoint() {
+        s3.put("app/config.txt", secretLine(1));
+        s3.put("app/readme.md", "nothing to see");
+
+        List<Finding> findings = scan(config(4));
+
+        assertEquals(1, findings.size());
+        assertEquals("s3://" + BUCKET + "/app/config.txt", findings.get(0).getFilePath());
+        // Path-style addressing: the bucket is the first path segment, not part of the host name
+        assertFalse(s3.paths.isEmpty());
+        for (String path : s3.paths) {
+            assertTrue(path.startsWith("/" + BUCKET), path);
+        }
+        assertTrue(s3.paths.contains("/" + BUCKET + "/app/config.txt"));
+        // Objects the extension filter skips are never downloaded
+        assertFalse(s3.paths.contains("/" + BUCKET + "/app/readme.md"));
+    }
+
+    @Test
+    void reportsABucketThatCannotBeListed() {
+        ScanConfig config = config(4);
+        config.s3Buckets = Collections.singletonList("missing-bucket");
+
+        List<Finding> findings = new ArrayList<>();
+        boolean complete = new S3FileScanner(config).scanS3(findings::add);
+
+        assertFalse(complete);
+        assertTrue(findings.isEmpty());
+    }
+
+    @Test
+    void skipsTheDownloadOfUnchangedObjects(@TempDir Path dir) {
+        for (int i = 0; i < 7; i++) s3.put(key(i), secretLine(i));
+        ScanConfig config = manifestConfig(dir);
+
+        assertEquals(7, scan(config).size());
+        assertEquals(7, s3.gets());
+
+        // Same ETags, sizes and dates: the findings come from the manifest without a GET
+        List<Finding> findings = scan(config);
+        assertEquals(7, s3.gets());
+        assertEquals(7, findings.size());
+        for (int i = 0; i < 7; i++) {
+            assertEquals("s3://" + BUCKET + "/" + key(i), findings.get(i).getFilePath());
+        }
+    }
+
+    @Test
+    void downloadsChangedObjectsAgain(@TempDir Path dir) {
+        for (int i = 0; i < 7; i++) s3.put(key(i), secretLine(i));
+        ScanConfig config = manifestConfig(dir);
+        scan(config);
+
+        s3.put(key(3), "rotated, nothing here\n");
+        List<Finding> findings = scan(config);
+
+        // Only the changed object is fetched, and its old finding is gone
+        assertEquals(8, s3.gets());
+        assertEquals(6, findings.size());
+        for (Finding finding : findings) {
+            assertFalse(finding.getFilePath().endsWith(key(3)), finding.getFilePath());
+        }
+        assertTrue(manifest(config).lookup(path(key(3))).getFindings().isEmpty());
+    }
+
+    @Test
+    void prunesDeletedObjectsFromTheManifest(@TempDir Path dir) {
+        for (int i = 0; i < 7; i++) s3.put(key(i), secretLine(i));
+        ScanConfig config = manifestConfig(dir);
+        scan(config);
+        assertEquals(7, manifest(config).size());
+
+        s3.delete(key(5));
+        assertEquals(6, scan(config).size());
+
+        ScanIndex manifest = manifest(config);
+        assertEquals(6, manifest.size());
+        assertNull(manifest.lookup(path(key(5))));
+        assertNotNull(manifest.lookup(path(key(4))));
+    }
+
+    @Test
+    void keepsTheEntriesOfABucketWhoseListingFails(@TempDir Path dir) {
+        for (int i = 0; i < 12; i++) s3.put(key(i), secretLine(i));
+        ScanConfig config = manifestConfig(dir);
+        scan(config);
+        int listed = s3.listRequests.size();
+
+        // The second run gets the first page, then the listing is denied
+        s3.denyListingFrom = listed + 1;
+        List<Finding> findings = new ArrayList<>();
+        assertFalse(new S3FileScanner(config).scanS3(findings::add));
+
+        // Objects on the pages that were not listed are not taken for deleted
+        assertEquals(PAGE_SIZE, findings.size());
+        assertEquals(12, manifest(config).size());
+        assertNotNull(manifest(config).lookup(path(key(11))));
+    }
+
+    private ScanConfig manifestConfig(Path dir) {
+        ScanConfig config = config(4);
+        config.s3ManifestPath = dir.resolve("s3-manifest.bin").toString();
+        return config;
+    }
+
+    // Reads the manifest the last scan saved
+    private static ScanIndex manifest(ScanConfig config) {
+        return ScanIndex.load(ScanIndex.location(config.s3ManifestPath, config),
+                ScanIndex.fingerprint(MatchEngine.forS3(config), config));
+    }
+
+    private static String path(String key) {
+        return "s3://" + BUCKET + "/" + key;
+    }
+
+    // Scans the stand-in's bucket and returns the findings in the order they were emitted
+    private static List<Finding> scan(ScanConfig config) {
+        List<Finding> findings = Collections.synchronizedList(new ArrayList<>());
+        assertTrue(new S3FileScanner(config).scanS3(findings::add));
+        return findings;
+    }
+
+    private ScanConfig config(int concurrency) {
+        ScanConfig config = new ScanConfig();
+        config.s3Endpoint = s3.endpoint();
+        config.s3Buckets = Collections.singletonList(BUCKET);
+        config.s3Concurrency = concurrency;
+        return config;
+    }
+
+    private static String key(int i) {
+        return String.format("configs/app-%02d.txt", i);
+    }
+
+    private static String secretLine(int i) {
+        return "aws_access_key_id = AKIAQWERTYUIOPAS" + String.format("%04d", i) + "\n";
+    }
+
+    /**
+     * Minimal S3 REST endpoint for one bucket, path-style only.
+     */
+    private static final class S3StandIn implements AutoCloseable {
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newFixedThreadPool(8);
+        // Objects by key, listed in key order like S3
+        private final TreeMap<String, byte[]> objects = new TreeMap<>();
+        // Query parameters of each ListObjectsV2 request, in arrival order
+        final List<Map<String, String>> listRequests = Collections.synchronizedList(new ArrayList<>());
+        // Number of GetObject requests received before each ListObjectsV2 request
+        final List<Integer> getsBeforeList = Collections.synchronizedList(new ArrayList<>());
+        // Request paths, in arrival order
+        final List<String> paths = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger gets = new AtomicInteger();
+        // Delay before each GetObject response
+        volatile long getDelayMillis;
+        // ListObjectsV2 requests from this one on (0-based, counted over the stand-in's life) are denied; -1 for none
+        volatile int denyListingFrom = -1;
+
+        S3StandIn() throws IOException {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext("/", this::handle);
+            server.setExecutor(executor);
+            server.start();
+        }
+
+        String endpoint() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        synchronized void put(String key, String content) {
+            objects.put(key, content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        synchronized void delete(String key) {
+            objects.remove(key);
+        }
+
+        // Number of GetObject requests received so far
+        int gets() {
+            return gets.get();
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try {
+                String path = exchange.getRequestURI().getRawPath();
+                paths.add(URLDecoder.decode(path, StandardCharsets.UTF_8));
+                Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+                String bucketPrefix = "/" + BUCKET;
+                if (!path.equals(bucketPrefix) && !path.startsWith(bucketPrefix + "/")) {
+                    send(exchange, 404, error("NoSuchBucket", "The specified bucket does not exist"));
+                } else if (query.containsKey("location")) {
+                    send(exchange, 200, "<LocationConstraint xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"></LocationConstraint>");
+                } else if ("2".equals(query.get("list-type"))) {
+                    getsBeforeList.add(gets.get());
+                    listRequests.add(query);
+                    if (denyListingFrom >= 0 && listRequests.size() > denyListingFrom) {
+                        send(exchange, 403, error("AccessDenied", "Access Denied"));
+                    } else {
+                        send(exchange, 200, list(query));
+                    }
+                } else {
+                    getObject(exchange, URLDecoder.decode(path.substring(bucketPrefix.length() + 1), StandardCharsets.UTF_8));
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private synchronized String list(Map<String, String> query) {
+            String prefix = query.getOrDefault("prefix", "");
+            List<String> keys = new ArrayList<>();
+            for (String key : objects.keySet()) {
+                if (key.startsWith(prefix)) keys.add(key);
+            }
+            int from = query.containsKey("continuation-token") ? Integer.parseInt(query.get("continuation-token")) : 0;
+            int to = Math.min(keys.size(), from + PAGE_SIZE);
+
+            StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                    .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                    .append("<Name>").append(BUCKET).append("</Name>")
+                    .append("<Prefix>").append(prefix).append("</Prefix>")
+                    .append("<KeyCount>").append(to - from).append("</KeyCount>")
+                    .append("<MaxKeys>").append(PAGE_SIZE).append("</MaxKeys>")
+                    .append("<IsTruncated>").append(to < keys.size()).append("</IsTruncated>");
+            if (to < keys.size()) xml.append("<NextContinuationToken>").append(to).append("</NextContinuationToken>");
+            for (String key : keys.subList(from, to)) {
+                byte[] content = objects.get(key);
+                xml.append("<Contents><Key>").append(key).append("</Key>")
+                        .append("<LastModified>2024-01-01T00:00:00.000Z</LastModified>")
+                        .append("<ETag>&quot;").append(md5(content)).append("&quot;</ETag>")
+                        .append("<Size>").append(content.length).append("</Size>")
+                        .append("<StorageClass>STANDARD</StorageClass></Contents>");
+            }
+            return xml.append("</ListBucketResult>").toString();
+        }
+
+        private void getObject(HttpExchange exchange, String key) throws IOException {
+            gets.incrementAndGet();
+            byte[] content;
+            synchronized (this) {
+                content = objects.get(key);
+            }
+            if (content == null) {
+                send(exchange, 404, error("NoSuchKey", "The specified key does not exist."));
+                return;
+            }
+            try {
+                Thread.sleep(getDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().set("ETag", "\"" + md5(content) + "\"");
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+        }
+
+        private static String error(String code, String message) {
+            return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>" + code + "</Code><Message>"
+                    + message + "</Message></Error>";
+        }
+
+        private static void send(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/xml");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        private static Map<String, String> query(String rawQuery) {
+            Map<String, String> query = new HashMap<>();
+            if (rawQuery == null) return query;
+            for (String param : rawQuery.split("&")) {
+                int eq = param.indexOf('=');
+                String name = URLDecoder.decode(eq < 0 ? param : param.substring(0, eq), StandardCharsets.UTF_8);
+                String value = eq < 0 ? "" : URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8);
+                query.put(name, value);
+            }
+            return query;
+        }
+
+        private static String md5(byte[] content) {
+            try {
+                StringBuilder hex = new StringBuilder();
+                for (byte b : MessageDigest.getInstance("MD5").digest(content)) {
+                    hex.append(String.format("%02x", b));
+                }
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
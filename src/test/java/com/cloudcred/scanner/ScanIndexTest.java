@@ -0,0 +1,54 @@
+package com.cloudcred.scanner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Saving the scan index through a temporary file.
+ */
+class ScanIndexTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void savesAndLoadsEntries() {
+        Path file = dir.resolve("index.bin");
+        ScanIndex index = ScanIndex.load(file, "fingerprint");
+        index.update("a.txt", new ScanIndex.Entry(10, 20, "hash", Collections.emptyList()));
+
+        assertTrue(index.save(key -> true));
+        assertEquals(1, ScanIndex.load(file, "fingerprint").size());
+        assertEquals(0, temporaryFiles());
+    }
+
+    @Test
+    void removesTheTemporaryFileWhenTheSaveFails() throws IOException {
+        // A non-empty directory where the index should go: the final move fails
+        Path file = Files.createDirectory(dir.resolve("index.bin"));
+        Files.createFile(file.resolve("occupied"));
+        ScanIndex index = ScanIndex.load(file, "fingerprint");
+        index.update("a.txt", new ScanIndex.Entry(10, 20, "hash", Collections.emptyList()));
+
+        assertFalse(index.save(key -> true));
+        assertEquals(0, temporaryFiles());
+    }
+
+    private long temporaryFiles() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".tmp")).count();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}